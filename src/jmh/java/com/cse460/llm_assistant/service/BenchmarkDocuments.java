@@ -0,0 +1,46 @@
+package com.cse460.llm_assistant.service;
+
+import com.cse460.llm_assistant.support.SyntheticPdfGenerator;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * PDFs shared by the benchmarks: the bundled sample document or a generated one
+ */
+final class BenchmarkDocuments {
+
+    static final String SAMPLE = "sample";
+    static final String SYNTHETIC = "synthetic";
+
+    private static final String SAMPLE_RESOURCE = "test-documents/sample-architecture.pdf";
+
+    private BenchmarkDocuments() {
+    }
+
+    static byte[] load(String source, int pages, int wordsPerPage, int imagesPerPage) throws IOException {
+        if (SYNTHETIC.equals(source)) {
+            return SyntheticPdfGenerator.generate(pages, wordsPerPage, imagesPerPage, 460L);
+        }
+        if (!SAMPLE.equals(source)) {
+            throw new IllegalArgumentException("Unknown benchmark document source: " + source);
+        }
+
+        try (InputStream in = BenchmarkDocuments.class.getClassLoader().getResourceAsStream(SAMPLE_RESOURCE)) {
+            if (in == null) {
+                throw new IOException("Missing test resource " + SAMPLE_RESOURCE);
+            }
+            return in.readAllBytes();
+        }
+    }
+
+    static BufferedImage renderFirstPage(byte[] pdfData) throws IOException {
+        MultimodalPdfExtractor extractor = new MultimodalPdfExtractor();
+        try (PDDocument document = Loader.loadPDF(pdfData)) {
+            return extractor.renderPage(extractor.createRenderer(document), 0);
+        }
+    }
+}
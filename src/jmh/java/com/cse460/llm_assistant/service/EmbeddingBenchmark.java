@@ -0,0 +1,136 @@
+package com.cse460.llm_assistant.service;
+
+import com.cse460.llm_assistant.service.embedding.EmbeddingModelType;
+import com.cse460.llm_assistant.service.vector.VectorMath;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Embedding one chunk at a time against one batched call, for each selectable model.
+ * Batched scores are batches per second; multiply by the batch size for chunks per second.
+ * A model other than the full precision one also reports, once per trial, its recall of the full
+ * precision model's nearest chunks for queries cut from the chunks themselves. The chunks come from
+ * the sample document, or from the PDFs in a directory given with -p corpus=/path/to/pdfs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class EmbeddingBenchmark {
+
+    private static final int RECALL_K = 10;
+    private static final int QUERY_WORDS = 8;
+
+    @Param({"all-minilm-l6-v2", "all-minilm-l6-v2-q"})
+    private String model;
+
+    @Param({"16"})
+    private int batchSize;
+
+    @Param({""})
+    private String corpus;
+
+    private EmbeddingService embeddingService;
+    private List<String> chunks;
+    private List<String> batch;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        embeddingService = embeddingService(model);
+
+        chunks = new ArrayList<>();
+        for (byte[] pdfData : corpusDocuments()) {
+            for (String pageText : new MultimodalPdfExtractor().extractText(pdfData).values()) {
+                chunks.addAll(PdfProcessingService.splitTextIntoChunks(pageText));
+            }
+        }
+
+        batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            batch.add(chunks.get(i % chunks.size()));
+        }
+
+        if (!EmbeddingModelType.ALL_MINILM_L6_V2.id().equals(model)) {
+            reportRecall();
+        }
+    }
+
+    @Benchmark
+    public List<Float> generateEmbedding() {
+        next = (next + 1) % chunks.size();
+        return embeddingService.generateEmbedding(chunks.get(next));
+    }
+
+    @Benchmark
+    public List<List<Float>> generateEmbeddingsBatched() {
+        return embeddingService.generateEmbeddings(batch);
+    }
+
+    /**
+     * Searches the chunks with the opening words of each chunk under both models, and prints the
+     * share of the full precision model's top results this model also returns
+     */
+    private void reportRecall() {
+        List<String> queries = chunks.stream()
+                .map(chunk -> String.join(" ", Arrays.stream(chunk.trim().split("\\s+")).limit(QUERY_WORDS).toList()))
+                .toList();
+        EmbeddingService reference = embeddingService(EmbeddingModelType.ALL_MINILM_L6_V2.id());
+        int k = Math.min(RECALL_K, chunks.size());
+
+        int[][] expected = nearest(reference, queries, k);
+        int[][] found = nearest(embeddingService, queries, k);
+        long hits = 0;
+        for (int q = 0; q < queries.size(); q++) {
+            for (int id : found[q]) {
+                if (Arrays.stream(expected[q]).anyMatch(expectedId -> expectedId == id)) {
+                    hits++;
+                }
+            }
+        }
+        System.out.printf("%nRecall@%d of %s against %s: %.3f (%d queries over %d chunks)%n", k, model,
+                EmbeddingModelType.ALL_MINILM_L6_V2.id(), (double) hits / ((long) queries.size() * k),
+                queries.size(), chunks.size());
+    }
+
+    private List<byte[]> corpusDocuments() throws IOException {
+        if (corpus.isEmpty()) {
+            return List.of(BenchmarkDocuments.load(BenchmarkDocuments.SAMPLE, 0, 0, 0));
+        }
+        try (Stream<Path> files = Files.list(Path.of(corpus))) {
+            List<byte[]> documents = new ArrayList<>();
+            for (Path file : files.filter(f -> f.toString().toLowerCase().endsWith(".pdf")).sorted().toList()) {
+                documents.add(Files.readAllBytes(file));
+            }
+            return documents;
+        }
+    }
+
+    private int[][] nearest(EmbeddingService service, List<String> queries, int k) {
+        int dims = service.modelType().dimensions();
+        float[] rows = VectorMath.normalizeRows(VectorMath.pack(service.generateEmbeddings(chunks), dims), dims);
+        List<List<Float>> queryVectors = service.generateEmbeddings(queries);
+        int[][] nearest = new int[queries.size()][];
+        for (int q = 0; q < queries.size(); q++) {
+            nearest[q] = VectorMath.topK(VectorMath.normalize(VectorMath.toArray(queryVectors.get(q))), rows, dims, k);
+        }
+        return nearest;
+    }
+
+    private static EmbeddingService embeddingService(String model) {
+        EmbeddingService service = new EmbeddingService(null, null, null, null);
+        ReflectionTestUtils.setField(service, "modelName", model);
+        return service;
+    }
+}
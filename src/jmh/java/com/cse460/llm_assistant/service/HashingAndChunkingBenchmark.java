@@ -0,0 +1,56 @@
+package com.cse460.llm_assistant.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Upload hashing, rendered image hashing and text chunking
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class HashingAndChunkingBenchmark {
+
+    @Param({BenchmarkDocuments.SAMPLE, BenchmarkDocuments.SYNTHETIC})
+    private String source;
+
+    @Param({"20"})
+    private int pages;
+
+    private MockMultipartFile upload;
+    private byte[] renderedPage;
+    private String pageText;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        byte[] pdfData = BenchmarkDocuments.load(source, pages, 400, 1);
+        upload = new MockMultipartFile("file", "benchmark.pdf", "application/pdf", pdfData);
+
+        MultimodalPdfExtractor extractor = new MultimodalPdfExtractor();
+        renderedPage = extractor.extractImages(pdfData).get(1).get(0);
+        pageText = String.join("", extractor.extractText(pdfData).values());
+    }
+
+    @Benchmark
+    public String computeHash() throws IOException {
+        return PdfProcessingService.computeHash(upload);
+    }
+
+    @Benchmark
+    public String generateHash() throws NoSuchAlgorithmException {
+        return ImageStorageService.generateHash(renderedPage);
+    }
+
+    @Benchmark
+    public List<String> splitTextIntoChunks() {
+        return PdfProcessingService.splitTextIntoChunks(pageText);
+    }
+}
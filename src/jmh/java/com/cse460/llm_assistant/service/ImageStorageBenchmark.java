@@ -0,0 +1,75 @@
+package com.cse460.llm_assistant.service;
+
+import com.cse460.llm_assistant.model.Document;
+import com.cse460.llm_assistant.model.DocumentImage;
+import com.cse460.llm_assistant.repository.DocumentImageRepository;
+import com.cse460.llm_assistant.service.codec.ImageCodecs;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.FileSystemUtils;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Storing one rendered page to disk with each codec; the repository is stubbed so only
+ * encoding and file work are measured
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class ImageStorageBenchmark {
+
+    @Param({BenchmarkDocuments.SAMPLE, BenchmarkDocuments.SYNTHETIC})
+    private String source;
+
+    @Param({ImageCodecs.PNG, ImageCodecs.PNG_FAST, ImageCodecs.JPEG})
+    private String codec;
+
+    private ImageStorageService imageStorageService;
+    private Document document;
+    private BufferedImage renderedPage;
+    private Path storageLocation;
+    private int sequence;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        byte[] pdfData = BenchmarkDocuments.load(source, 1, 400, 1);
+        renderedPage = BenchmarkDocuments.renderFirstPage(pdfData);
+
+        DocumentImageRepository imageRepository = mock(DocumentImageRepository.class);
+        when(imageRepository.save(any(DocumentImage.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        storageLocation = Files.createTempDirectory("benchmark-images-");
+        imageStorageService = new ImageStorageService(imageRepository, storageLocation,
+                ImageCodecs.create(codec, 4, 0.85f));
+        document = Document.builder().id(1L).build();
+    }
+
+    @TearDown(Level.Iteration)
+    public void clearImages() throws IOException {
+        FileSystemUtils.deleteRecursively(storageLocation);
+        Files.createDirectories(storageLocation);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(storageLocation);
+    }
+
+    @Benchmark
+    public DocumentImage storeImage() throws IOException {
+        int imageSequence = sequence++;
+        String imagePath = imageStorageService.writeImage(document.getId(), renderedPage, 1, imageSequence);
+        return imageStorageService.saveImage(document, imagePath, 1, imageSequence);
+    }
+}
@@ -0,0 +1,76 @@
+package com.cse460.llm_assistant.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole-document text extraction and page rendering, plus the latency of rendering a single page.
+ * The page count, text density and images per page only apply to the synthetic source.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class PdfExtractionBenchmark {
+
+    @Param({BenchmarkDocuments.SAMPLE, BenchmarkDocuments.SYNTHETIC})
+    private String source;
+
+    @Param({"20"})
+    private int pages;
+
+    @Param({"400"})
+    private int wordsPerPage;
+
+    @Param({"1"})
+    private int imagesPerPage;
+
+    private MultimodalPdfExtractor extractor;
+    private byte[] pdfData;
+    private Path pdfFile;
+    private int pageCount;
+    private int nextPage;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        extractor = new MultimodalPdfExtractor();
+        pdfData = BenchmarkDocuments.load(source, pages, wordsPerPage, imagesPerPage);
+        pdfFile = Files.createTempFile("benchmark-", ".pdf");
+        Files.write(pdfFile, pdfData);
+        pageCount = extractor.measure(pdfData).pageCount();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(pdfFile);
+    }
+
+    @Benchmark
+    public Map<Integer, String> extractText() throws IOException {
+        return extractor.extractText(pdfData);
+    }
+
+    @Benchmark
+    public Map<Integer, List<byte[]>> extractImages() throws IOException {
+        return extractor.extractImages(pdfData);
+    }
+
+    /**
+     * Cycles through the pages so the sampled latency covers the whole document
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public byte[] renderPage() throws IOException {
+        nextPage = nextPage % pageCount + 1;
+        return extractor.renderPage(pdfFile.toFile(), nextPage);
+    }
+}
@@ -0,0 +1,100 @@
+package com.cse460.llm_assistant.service.vector;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Re-ranking search candidates: MMR and top-k over contiguous arrays with the SIMD and scalar
+ * kernels, against the same top-k computed over boxed vectors
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class VectorMathBenchmark {
+
+    private static final int DIMS = 384;
+
+    @Param({"300"})
+    private int candidates;
+
+    @Param({"10"})
+    private int k;
+
+    private float[] query;
+    private float[] rows;
+    private List<Float> boxedQuery;
+    private List<List<Float>> boxedRows;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(7);
+        query = VectorMath.normalize(randomVector(random, DIMS));
+        rows = VectorMath.normalizeRows(randomVector(random, DIMS * candidates), DIMS);
+
+        boxedQuery = box(query, 0);
+        boxedRows = new ArrayList<>();
+        for (int row = 0; row < candidates; row++) {
+            boxedRows.add(box(rows, row * DIMS));
+        }
+    }
+
+    @Benchmark
+    public int[] mmr() {
+        return MaximalMarginalRelevance.rerank(query, rows, DIMS, k, 0.7f);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Dvector.simd=false")
+    public int[] mmrScalar() {
+        return MaximalMarginalRelevance.rerank(query, rows, DIMS, k, 0.7f);
+    }
+
+    @Benchmark
+    public int[] topK() {
+        return VectorMath.topK(query, rows, DIMS, k);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Dvector.simd=false")
+    public int[] topKScalar() {
+        return VectorMath.topK(query, rows, DIMS, k);
+    }
+
+    // What scoring over the entity's List<Float> vectors costs
+    @Benchmark
+    public int[] topKBoxed() {
+        float[] scores = new float[boxedRows.size()];
+        for (int row = 0; row < scores.length; row++) {
+            List<Float> vector = boxedRows.get(row);
+            float sum = 0;
+            for (int i = 0; i < DIMS; i++) {
+                sum += boxedQuery.get(i) * vector.get(i);
+            }
+            scores[row] = sum;
+        }
+        return VectorMath.topK(scores, k);
+    }
+
+    private static float[] randomVector(Random random, int length) {
+        float[] vector = new float[length];
+        for (int i = 0; i < length; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    private static List<Float> box(float[] array, int offset) {
+        List<Float> vector = new ArrayList<>(DIMS);
+        for (int i = 0; i < DIMS; i++) {
+            vector.add(array[offset + i]);
+        }
+        return vector;
+    }
+}
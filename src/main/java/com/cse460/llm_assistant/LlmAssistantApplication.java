@@ -2,8 +2,13 @@ package com.cse460.llm_assistant;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.data.elasticsearch.ElasticsearchRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.elasticsearch.ElasticsearchRestClientAutoConfiguration;
 
-@SpringBootApplication
+// ElasticsearchConfig builds the REST client; Boot's would also register a plain-HTTP node sniffer on it.
+// It also enables the repositories, so none are created when elasticsearch.enabled is false.
+@SpringBootApplication(exclude = {ElasticsearchRestClientAutoConfiguration.class,
+        ElasticsearchRepositoriesAutoConfiguration.class})
 public class LlmAssistantApplication {
     public static void main(String[] args) {
         SpringApplication.run(LlmAssistantApplication.class, args);
@@ -4,35 +4,136 @@ import co.elastic.clients.elasticsearch.ElasticsearchClient;
 import co.elastic.clients.json.jackson.JacksonJsonpMapper;
 import co.elastic.clients.transport.ElasticsearchTransport;
 import co.elastic.clients.transport.rest_client.RestClientTransport;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.http.HttpHost;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.CredentialsProvider;
+import org.apache.http.config.RegistryBuilder;
 import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.pool.PoolStats;
+import org.elasticsearch.client.Node;
+import org.elasticsearch.client.NodeSelector;
 import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.sniff.ElasticsearchNodesSniffer;
+import org.elasticsearch.client.sniff.SniffOnFailureListener;
+import org.elasticsearch.client.sniff.Sniffer;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.elasticsearch.repository.config.EnableElasticsearchRepositories;
 
+import javax.net.ssl.SSLContext;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Low-level REST client for the Elasticsearch cluster.
+ * Requests are spread over every configured (or sniffed) node; a node that fails is taken out of
+ * rotation by the client and retried after a backoff, so one slow or dead node does not stall
+ * ingest and search. The connection pool is sized and timed out explicitly and reported under
+ * elasticsearch.client.connections.
+ */
 @Configuration
+@ConditionalOnProperty(name = "elasticsearch.enabled", matchIfMissing = true)
 @EnableElasticsearchRepositories(basePackages = "com.cse460.llm_assistant.repository")
+@Slf4j
 public class ElasticsearchConfig {
 
-    @Value("${elasticsearch.host}")
+    @Value("${elasticsearch.host:localhost}")
     private String elasticsearchHost;
 
     @Value("${elasticsearch.port:9200}")
     private int elasticsearchPort;
 
+    // Comma separated host[:port] or scheme://host:port entries; defaults to the single host above
+    @Value("${elasticsearch.hosts:}")
+    private String elasticsearchHosts;
+
+    @Value("${elasticsearch.scheme:https}")
+    private String elasticsearchScheme;
+
     @Value("${elasticsearch.username:}")
     private String elasticsearchUsername;
 
     @Value("${elasticsearch.password:}")
     private String elasticsearchPassword;
 
+    @Value("${elasticsearch.pool.max-total:100}")
+    private int maxConnectionsTotal;
+
+    @Value("${elasticsearch.pool.max-per-route:30}")
+    private int maxConnectionsPerRoute;
+
+    @Value("${elasticsearch.connect-timeout-ms:5000}")
+    private int connectTimeoutMillis;
+
+    @Value("${elasticsearch.socket-timeout-ms:60000}")
+    private int socketTimeoutMillis;
+
+    // How long a request waits for a pooled connection before failing
+    @Value("${elasticsearch.pool.acquire-timeout-ms:2000}")
+    private int acquireTimeoutMillis;
+
+    @Value("${elasticsearch.keep-alive-ms:60000}")
+    private long keepAliveMillis;
+
+    @Value("${elasticsearch.compression:true}")
+    private boolean compression;
+
+    @Value("${elasticsearch.io-threads:0}")
+    private int ioThreads;
+
+    @Value("${elasticsearch.sniff.interval-ms:300000}")
+    private int sniffIntervalMillis;
+
+    @Value("${elasticsearch.sniff.after-failure-delay-ms:60000}")
+    private int sniffAfterFailureDelayMillis;
+
+    // Shut down by the REST client when it closes
+    @Bean(destroyMethod = "")
+    public PoolingNHttpClientConnectionManager elasticsearchConnectionManager()
+            throws IOReactorException, NoSuchAlgorithmException {
+        IOReactorConfig.Builder reactorConfig = IOReactorConfig.custom()
+                .setConnectTimeout(connectTimeoutMillis)
+                .setSoTimeout(socketTimeoutMillis)
+                .setSoKeepAlive(true);
+        if (ioThreads > 0) {
+            reactorConfig.setIoThreadCount(ioThreads);
+        }
+
+        // Setting our own manager bypasses the client builder's SSL setup, so register it here
+        PoolingNHttpClientConnectionManager connectionManager = new PoolingNHttpClientConnectionManager(
+                new DefaultConnectingIOReactor(reactorConfig.build()),
+                RegistryBuilder.<SchemeIOSessionStrategy>create()
+                        .register("http", NoopIOSessionStrategy.INSTANCE)
+                        .register("https", new SSLIOSessionStrategy(SSLContext.getDefault(),
+                                SSLIOSessionStrategy.getDefaultHostnameVerifier()))
+                        .build());
+        connectionManager.setMaxTotal(maxConnectionsTotal);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        return connectionManager;
+    }
+
     @Bean
-    public RestClient restClient() {
+    public RestClient restClient(PoolingNHttpClientConnectionManager elasticsearchConnectionManager,
+                                 ObjectProvider<SniffOnFailureListener> sniffOnFailureListener) {
         final CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
 
         if (!elasticsearchUsername.isEmpty()) {
@@ -40,19 +141,106 @@ public class ElasticsearchConfig {
                     new UsernamePasswordCredentials(elasticsearchUsername, elasticsearchPassword));
         }
 
-        return RestClient.builder(new HttpHost(elasticsearchHost, elasticsearchPort, "https"))
-                .setHttpClientConfigCallback(httpClientBuilder ->
-                        httpClientBuilder.setDefaultCredentialsProvider(credentialsProvider))
+        HttpHost[] hosts = hosts();
+        log.info("Elasticsearch client targeting {} node(s): {}", hosts.length, Arrays.toString(hosts));
+
+        SniffOnFailureListener resniff = sniffOnFailureListener.getIfAvailable();
+        return RestClient.builder(hosts)
+                .setNodeSelector(NodeSelector.SKIP_DEDICATED_MASTERS)
+                .setCompressionEnabled(compression)
+                .setRequestConfigCallback(requestConfig -> requestConfig
+                        .setConnectTimeout(connectTimeoutMillis)
+                        .setSocketTimeout(socketTimeoutMillis)
+                        .setConnectionRequestTimeout(acquireTimeoutMillis))
+                .setHttpClientConfigCallback(httpClientBuilder -> httpClientBuilder
+                        .setDefaultCredentialsProvider(credentialsProvider)
+                        .setConnectionManager(elasticsearchConnectionManager)
+                        .setKeepAliveStrategy((response, context) -> keepAliveMillis))
+                .setFailureListener(new RestClient.FailureListener() {
+                    @Override
+                    public void onFailure(Node node) {
+                        log.warn("Elasticsearch node {} failed, routing requests to the remaining nodes", node.getHost());
+                        if (resniff != null) {
+                            resniff.onFailure(node);
+                        }
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Replaces the configured node list with the cluster's HTTP-enabled nodes, periodically
+     * and shortly after any node fails
+     */
+    @Bean
+    @ConditionalOnProperty(name = "elasticsearch.sniff.enabled")
+    public SniffOnFailureListener sniffOnFailureListener() {
+        return new SniffOnFailureListener();
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "elasticsearch.sniff.enabled")
+    public Sniffer elasticsearchSniffer(RestClient restClient, SniffOnFailureListener sniffOnFailureListener) {
+        Sniffer sniffer = Sniffer.builder(restClient)
+                .setSniffIntervalMillis(sniffIntervalMillis)
+                .setSniffAfterFailureDelayMillis(sniffAfterFailureDelayMillis)
+                .setNodesSniffer(new ElasticsearchNodesSniffer(restClient,
+                        TimeUnit.SECONDS.toMillis(5),
+                        ElasticsearchNodesSniffer.Scheme.valueOf(elasticsearchScheme.toUpperCase())))
                 .build();
+        sniffOnFailureListener.setSniffer(sniffer);
+        return sniffer;
     }
 
     @Bean
-    public ElasticsearchTransport elasticsearchTransport() {
-        return new RestClientTransport(restClient(), new JacksonJsonpMapper());
+    public MeterBinder elasticsearchConnectionPoolMetrics(PoolingNHttpClientConnectionManager elasticsearchConnectionManager) {
+        return registry -> {
+            poolGauge(registry, elasticsearchConnectionManager, "leased", PoolStats::getLeased);
+            poolGauge(registry, elasticsearchConnectionManager, "available", PoolStats::getAvailable);
+            poolGauge(registry, elasticsearchConnectionManager, "pending", PoolStats::getPending);
+            poolGauge(registry, elasticsearchConnectionManager, "max", PoolStats::getMax);
+        };
     }
 
     @Bean
-    public ElasticsearchClient elasticsearchClient() {
-        return new ElasticsearchClient(elasticsearchTransport());
+    public ElasticsearchTransport elasticsearchTransport(RestClient restClient) {
+        // Stored documents carry fields their classes do not declare, such as Spring Data's _class
+        ObjectMapper objectMapper = new ObjectMapper()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        return new RestClientTransport(restClient, new JacksonJsonpMapper(objectMapper));
+    }
+
+    @Bean
+    public ElasticsearchClient elasticsearchClient(ElasticsearchTransport elasticsearchTransport) {
+        return new ElasticsearchClient(elasticsearchTransport);
+    }
+
+    private HttpHost[] hosts() {
+        if (elasticsearchHosts.isBlank()) {
+            return new HttpHost[]{new HttpHost(elasticsearchHost, elasticsearchPort, elasticsearchScheme)};
+        }
+        return Arrays.stream(elasticsearchHosts.split(","))
+                .map(String::trim)
+                .filter(host -> !host.isEmpty())
+                .map(host -> {
+                    if (host.contains("://")) {
+                        return HttpHost.create(host);
+                    }
+                    int colon = host.lastIndexOf(':');
+                    return colon < 0
+                            ? new HttpHost(host, elasticsearchPort, elasticsearchScheme)
+                            : new HttpHost(host.substring(0, colon), Integer.parseInt(host.substring(colon + 1)), elasticsearchScheme);
+                })
+                .toArray(HttpHost[]::new);
+    }
+
+    private static void poolGauge(MeterRegistry registry,
+                                  PoolingNHttpClientConnectionManager connectionManager,
+                                  String state, ToDoubleFunction<PoolStats> value) {
+        Gauge.builder("elasticsearch.client.connections", connectionManager,
+                        manager -> value.applyAsDouble(manager.getTotalStats()))
+                .description("Connections in the Elasticsearch client pool")
+                .tag("state", state)
+                .register(registry);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,27 @@
+package com.cse460.llm_assistant.config;
+
+import com.cse460.llm_assistant.service.codec.ImageCodec;
+import com.cse460.llm_assistant.service.codec.ImageCodecs;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ImageCodecConfig {
+
+    // png, png-fast or jpeg
+    @Value("${pdf.render.codec:png}")
+    private String codec;
+
+    // Deflate level 0-9 for the png codec; 4 matches the JDK writer's default
+    @Value("${pdf.render.png.compression-level:4}")
+    private int pngCompressionLevel;
+
+    @Value("${pdf.render.jpeg.quality:0.85}")
+    private float jpegQuality;
+
+    @Bean
+    public ImageCodec pageImageCodec() {
+        return ImageCodecs.create(codec, pngCompressionLevel, jpegQuality);
+    }
+}
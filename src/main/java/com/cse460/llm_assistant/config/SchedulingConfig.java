@@ -0,0 +1,11 @@
+package com.cse460.llm_assistant.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Background jobs such as the embedding outbox drain; spring.task.scheduling.pool.size threads run them,
+// so a long drain or compaction does not hold up the keyword index refresh
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
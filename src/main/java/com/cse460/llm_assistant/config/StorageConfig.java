@@ -16,6 +16,9 @@ public class StorageConfig {
     @Value("${storage.images.location:./uploads/images}")
     private String imagesLocation;
 
+    @Value("${storage.sources.location:./uploads/sources}")
+    private String sourcesLocation;
+
     @Bean
     public Path imageStorageLocation() throws IOException {
         Path location = Paths.get(imagesLocation);
@@ -24,4 +27,13 @@ public class StorageConfig {
         }
         return location;
     }
+
+    @Bean
+    public Path sourceStorageLocation() throws IOException {
+        Path location = Paths.get(sourcesLocation);
+        if (!Files.exists(location)) {
+            Files.createDirectories(location);
+        }
+        return location;
+    }
 }
\ No newline at end of file
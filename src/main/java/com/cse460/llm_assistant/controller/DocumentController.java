@@ -3,26 +3,50 @@ package com.cse460.llm_assistant.controller;
 import com.cse460.llm_assistant.model.Document;
 import com.cse460.llm_assistant.model.DocumentImage;
 import com.cse460.llm_assistant.repository.DocumentImageRepository;
-import com.cse460.llm_assistant.repository.DocumentContentRepository;
-import com.cse460.llm_assistant.model.DocumentContent;
+import com.cse460.llm_assistant.model.projection.DocumentImageView;
+import com.cse460.llm_assistant.service.BatchIngestService;
+import com.cse460.llm_assistant.service.ChunkTextStore;
+import com.cse460.llm_assistant.service.DocumentDeletionService;
+import com.cse460.llm_assistant.service.DocumentListingService;
+import com.cse460.llm_assistant.service.DocumentStatusCountService;
+import com.cse460.llm_assistant.service.EmbeddingOutboxService;
+import com.cse460.llm_assistant.service.ImageEvictionService;
 import com.cse460.llm_assistant.service.PdfProcessingService;
 import com.cse460.llm_assistant.service.ImageStorageService;
+import com.cse460.llm_assistant.service.IngestRejectedException;
+import com.cse460.llm_assistant.service.PageRenderService;
+import com.cse460.llm_assistant.service.ResumableUploadService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 
 import java.io.IOException;
 import java.io.File;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.SortedMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @RestController
 @RequestMapping("/api/documents")
@@ -31,9 +55,30 @@ import java.util.Optional;
 public class DocumentController {
 
     private final PdfProcessingService pdfProcessingService;
-    private final DocumentContentRepository contentRepository;
+    private final ChunkTextStore chunkTextStore;
     private final DocumentImageRepository imageRepository;
     private final ImageStorageService imageStorageService;
+    private final PageRenderService pageRenderService;
+    private final ObjectProvider<EmbeddingOutboxService> outboxService;
+    private final BatchIngestService batchIngestService;
+    private final ImageEvictionService imageEvictionService;
+    private final DocumentDeletionService deletionService;
+    private final DocumentListingService listingService;
+    private final DocumentStatusCountService statusCountService;
+    private final ResumableUploadService uploadService;
+    private final ObjectMapper objectMapper;
+
+    private static final int MAX_PAGE_SIZE = 500;
+
+    // Seconds a client is asked to wait when too many batch uploads are running
+    private static final long BATCH_RETRY_AFTER_SECONDS = 30;
+
+    // "bytes first-last/total", where total may be "*" while the upload's size is unknown
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d{1,18})-(\\d{1,18})/(\\d{1,18}|\\*)");
+
+    // How long a batch response may stay open while its files are processed
+    @Value("${ingest.batch.timeout-ms:3600000}")
+    private long batchTimeoutMillis;
 
     @PostMapping("/upload")
     public ResponseEntity<?> uploadDocument(
@@ -54,6 +99,13 @@ public class DocumentController {
             Document document = pdfProcessingService.processAndStorePdf(file, title, description);
             log.info("Document processed successfully with ID: {}", document.getId());
             return ResponseEntity.ok(document);
+        } catch (IngestRejectedException e) {
+            log.warn("Upload of {} rejected: {}", file.getOriginalFilename(), e.getMessage());
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(error);
         } catch (IOException e) {
             log.error("Error processing file: {}", e.getMessage(), e);
             Map<String, String> error = new HashMap<>();
@@ -62,27 +114,274 @@ public class DocumentController {
         }
     }
 
+    /**
+     * Start a resumable upload of a file of the given size. Send its bytes with PUT
+     * /uploads/{uploadId} and a Content-Range header, in one or more ranges, then ingest it with
+     * POST /uploads/{uploadId}/complete. After a dropped connection, GET /uploads/{uploadId}
+     * gives the offset to continue from.
+     */
+    @PostMapping("/uploads")
+    public ResponseEntity<?> createUpload(
+            @RequestParam("filename") String filename,
+            @RequestParam("size") long size,
+            @RequestParam(value = "contentType", defaultValue = MediaType.APPLICATION_PDF_VALUE) String contentType,
+            @RequestParam(value = "title", required = false) String title,
+            @RequestParam(value = "description", required = false) String description) {
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .body(uploadService.create(filename, contentType, size, title, description));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        } catch (IOException e) {
+            log.error("Error starting upload of {}: {}", filename, e.getMessage(), e);
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Failed to start upload: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
+    @GetMapping("/uploads/{uploadId}")
+    public ResponseEntity<?> getUpload(@PathVariable String uploadId) {
+        return uploadService.status(uploadId)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Send a range of an upload's bytes as the raw request body. A range may start before the
+     * upload's offset, as when it is resent after a lost response; bytes already received are
+     * skipped. A range starting past the offset is refused with the offset to continue from.
+     * The body must hold exactly the bytes the Content-Range names; without the header it is sent
+     * from the start of the file.
+     */
+    @PutMapping("/uploads/{uploadId}")
+    public ResponseEntity<?> appendUpload(
+            @PathVariable String uploadId,
+            @RequestHeader(value = HttpHeaders.CONTENT_RANGE, required = false) String contentRange,
+            HttpServletRequest request) {
+        long start = 0;
+        long end = -1;
+        long total = -1;
+        if (contentRange != null) {
+            Matcher range = CONTENT_RANGE.matcher(contentRange.trim());
+            if (!range.matches()) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Invalid Content-Range: " + contentRange);
+                return ResponseEntity.badRequest().body(error);
+            }
+            start = Long.parseLong(range.group(1));
+            end = Long.parseLong(range.group(2));
+            total = "*".equals(range.group(3)) ? -1 : Long.parseLong(range.group(3));
+        }
+
+        try {
+            return uploadService.append(uploadId, start, end, total, request.getInputStream())
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        } catch (IllegalStateException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            uploadService.status(uploadId).ifPresent(status -> error.put("offset", status.offset()));
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        } catch (IOException e) {
+            // Usually the client went away; the bytes that arrived are kept
+            log.warn("Upload {} interrupted: {}", uploadId, e.getMessage());
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Failed to receive upload: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
+    /**
+     * Ingest a fully received upload. Its content hash was computed as its bytes arrived.
+     */
+    @PostMapping("/uploads/{uploadId}/complete")
+    public ResponseEntity<?> completeUpload(@PathVariable String uploadId) {
+        try {
+            Optional<Document> document = uploadService.complete(uploadId);
+            if (document.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            log.info("Upload {} processed as document {}", uploadId, document.get().getId());
+            return ResponseEntity.ok(document.get());
+        } catch (IllegalStateException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+        } catch (IngestRejectedException e) {
+            log.warn("Upload {} rejected: {}", uploadId, e.getMessage());
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(error);
+        } catch (IOException e) {
+            log.error("Error processing upload {}: {}", uploadId, e.getMessage(), e);
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Failed to process file: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
+    @DeleteMapping("/uploads/{uploadId}")
+    public ResponseEntity<?> abortUpload(@PathVariable String uploadId) {
+        try {
+            return uploadService.abort(uploadId)
+                    ? ResponseEntity.noContent().build()
+                    : ResponseEntity.notFound().build();
+        } catch (IllegalStateException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+        }
+    }
+
+    /**
+     * Upload many files at once; ZIP and TAR archives among them are expanded.
+     * Responds with one NDJSON line per file as it finishes, then a summary line.
+     */
+    @PostMapping(value = "/batch", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ResponseBodyEmitter> uploadBatch(@RequestParam("files") List<MultipartFile> files) {
+        log.info("Received batch upload request with {} files", files.size());
+        return streamBatch(results -> batchIngestService.ingestFiles(files, results));
+    }
+
+    /**
+     * Upload a ZIP, TAR or gzipped TAR archive as the raw request body.
+     * The archive is read as it arrives instead of being buffered first.
+     */
+    @PostMapping(value = "/batch", consumes = {"application/zip", "application/x-zip-compressed",
+            "application/x-tar", "application/gzip", "application/x-gzip"})
+    public ResponseEntity<ResponseBodyEmitter> uploadArchive(HttpServletRequest request) throws IOException {
+        String type = BatchIngestService.archiveType(null, request.getContentType());
+        log.info("Received batch archive upload ({}), size: {}", type, request.getContentLengthLong());
+        InputStream in = request.getInputStream();
+        return streamBatch(results -> batchIngestService.ingestArchive(in, type, results));
+    }
+
+    private interface BatchRun {
+        Map<String, Object> run(Consumer<BatchIngestService.ItemResult> results)
+                throws InterruptedException;
+    }
+
+    private ResponseEntity<ResponseBodyEmitter> streamBatch(BatchRun batch) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(batchTimeoutMillis);
+
+        // The request thread is released; the batch reads its input and writes results from its own thread
+        Runnable run = () -> {
+            try {
+                Map<String, Object> summary = batch.run(result -> sendLine(emitter, result));
+                log.info("Batch upload finished: {}", summary);
+                sendLine(emitter, Map.of("summary", summary));
+                emitter.complete();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                emitter.completeWithError(e);
+            } catch (RuntimeException e) {
+                log.error("Batch upload failed: {}", e.getMessage(), e);
+                emitter.completeWithError(e);
+            }
+        };
+        try {
+            batchIngestService.start(run);
+        } catch (RejectedExecutionException e) {
+            log.warn("Batch upload rejected: too many batches running");
+            // The error is the only line of the stream
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Too many batch uploads are running; try again later");
+            sendLine(emitter, error);
+            emitter.complete();
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(BATCH_RETRY_AFTER_SECONDS))
+                    .contentType(MediaType.APPLICATION_NDJSON)
+                    .body(emitter);
+        }
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(emitter);
+    }
+
+    private void sendLine(ResponseBodyEmitter emitter, Object line) {
+        try {
+            emitter.send(objectMapper.writeValueAsString(line) + "\n", MediaType.APPLICATION_NDJSON);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * List documents newest first, optionally in one status and uploaded in [from, to). Pass the
+     * nextCursor of a page as cursor to get the page after it.
+     */
+    @GetMapping
+    public ResponseEntity<?> listDocuments(
+            @RequestParam(value = "status", required = false) String status,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "50") int size) {
+
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "size must be 1-" + MAX_PAGE_SIZE);
+            return ResponseEntity.badRequest().body(error);
+        }
+
+        DocumentListingService.DocumentPage page;
+        try {
+            page = listingService.list(status == null ? null : status.toUpperCase(), from, to, cursor, size);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("documents", page.documents());
+        response.put("nextCursor", page.nextCursor());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Get the number of documents in each status
+     */
+    @GetMapping("/status-counts")
+    public ResponseEntity<Map<String, Long>> getStatusCounts() {
+        return ResponseEntity.ok(statusCountService.counts());
+    }
+
     @GetMapping("/{id}/text")
     public ResponseEntity<?> getDocumentText(@PathVariable Long id) {
         log.info("Retrieving text for document with ID: {}", id);
 
-        List<DocumentContent> contents = contentRepository.findByDocumentIdOrderByPageNumberAscChunkSequenceAsc(id);
+        SortedMap<Integer, List<String>> pages;
+        try {
+            // Read from the chunk text store without querying the chunk rows
+            pages = chunkTextStore.readDocument(id);
+        } catch (IOException e) {
+            log.error("Error reading text of document {}: {}", id, e.getMessage(), e);
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Failed to read text: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
 
-        if (contents.isEmpty()) {
+        if (pages.isEmpty()) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "No content found for document with ID: " + id);
             return ResponseEntity.notFound().build();
         }
 
         StringBuilder fullText = new StringBuilder();
-        int currentPage = 0;
-
-        for (DocumentContent content : contents) {
-            if (content.getPageNumber() > currentPage) {
-                currentPage = content.getPageNumber();
-                fullText.append("\n\n--- PAGE ").append(currentPage).append(" ---\n\n");
-            }
-            fullText.append(content.getContent());
+        for (Map.Entry<Integer, List<String>> page : pages.entrySet()) {
+            fullText.append("\n\n--- PAGE ").append(page.getKey()).append(" ---\n\n");
+            page.getValue().forEach(fullText::append);
         }
 
         Map<String, String> response = new HashMap<>();
@@ -90,6 +389,57 @@ public class DocumentController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Get how many of a document's chunks are indexed for search, waiting, or failed
+     */
+    @GetMapping("/{id}/index-status")
+    public ResponseEntity<?> getIndexStatus(@PathVariable Long id) {
+        EmbeddingOutboxService outbox = outboxService.getIfAvailable();
+        if (outbox == null) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Semantic search is disabled, chunks are not indexed");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+        }
+        EmbeddingOutboxService.IndexStatus status = outbox.indexStatus(id);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("documentId", id);
+        response.put("pending", status.pending());
+        response.put("indexed", status.indexed());
+        response.put("failed", status.failed());
+        response.put("complete", status.pending() == 0);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Delete a document. Its text and images are gone when this returns; its search index entries
+     * and files are removed in the background.
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> deleteDocument(@PathVariable Long id) {
+        log.info("Deleting document with ID: {}", id);
+
+        Optional<DocumentDeletionService.Deletion> deletion;
+        try {
+            deletion = deletionService.delete(id);
+        } catch (IllegalStateException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+        }
+
+        if (deletion.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("documentId", id);
+        response.put("status", DocumentDeletionService.DELETING);
+        response.put("deletedChunks", deletion.get().chunks());
+        response.put("deletedImages", deletion.get().images());
+        return ResponseEntity.accepted().body(response);
+    }
+
     /**
      * Get all images associated with a document
      */
@@ -97,7 +447,7 @@ public class DocumentController {
     public ResponseEntity<?> getDocumentImages(@PathVariable Long id) {
         log.info("Retrieving images for document with ID: {}", id);
 
-        List<DocumentImage> images = imageRepository.findByDocumentIdOrderByPageNumberAscImageSequenceAsc(id);
+        List<DocumentImageView> images = imageRepository.findByDocumentIdOrderByPageNumberAscImageSequenceAsc(id);
 
         if (images.isEmpty()) {
             Map<String, String> error = new HashMap<>();
@@ -118,7 +468,16 @@ public class DocumentController {
 
         log.info("Retrieving images for document with ID: {} page: {}", id, pageNumber);
 
-        List<DocumentImage> images = imageRepository.findByDocumentIdAndPageNumber(id, pageNumber);
+        try {
+            pageRenderService.ensurePageRendered(id, pageNumber);
+        } catch (IOException e) {
+            log.error("Error rendering page {} of document {}: {}", pageNumber, id, e.getMessage(), e);
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Failed to render page: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+
+        List<DocumentImageView> images = imageRepository.findByDocumentIdAndPageNumber(id, pageNumber);
 
         if (images.isEmpty()) {
             Map<String, String> error = new HashMap<>();
@@ -143,13 +502,21 @@ public class DocumentController {
         }
 
         DocumentImage image = imageOptional.get();
-        File imageFile = imageStorageService.getImageFile(image.getImagePath());
+        try {
+            image = pageRenderService.ensureRendered(image);
+        } catch (IOException e) {
+            log.error("Error rendering image {}: {}", imageId, e.getMessage(), e);
+            return ResponseEntity.internalServerError().build();
+        }
 
-        if (!imageFile.exists()) {
-            log.error("Image file not found: {}", image.getImagePath());
+        if (image == null) {
+            log.error("Image file not found for image ID: {}", imageId);
             return ResponseEntity.notFound().build();
         }
 
+        File imageFile = imageStorageService.getImageFile(image.getImagePath());
+        imageEvictionService.recordAccess(image.getId());
+
         // Determine media type based on format
         String contentType = switch (image.getFormat().toLowerCase()) {
             case "jpg", "jpeg" -> "image/jpeg";
@@ -0,0 +1,82 @@
+package com.cse460.llm_assistant.controller;
+
+import co.elastic.clients.elasticsearch.indices.RolloverResponse;
+import com.cse460.llm_assistant.service.EmbeddingIndexService;
+import com.cse460.llm_assistant.service.EmbeddingReindexService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/index")
+@ConditionalOnProperty(name = "elasticsearch.enabled", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class IndexAdminController {
+
+    private final EmbeddingIndexService indexService;
+    private final EmbeddingReindexService reindexService;
+
+    /**
+     * Get the indices behind the embedding alias and the state of the last re-index
+     */
+    @GetMapping
+    public ResponseEntity<?> getIndexStatus() {
+        try {
+            Map<String, Object> response = indexService.status();
+            response.put("reindex", reindexService.status());
+            return ResponseEntity.ok(response);
+        } catch (IOException e) {
+            log.error("Error reading index status: {}", e.getMessage(), e);
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Failed to read index status: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
+    /**
+     * Roll the alias over to a new backing index now, regardless of size
+     */
+    @PostMapping("/rollover")
+    public ResponseEntity<?> rollover() {
+        try {
+            RolloverResponse rollover = indexService.rollover(true);
+            Map<String, Object> response = new HashMap<>();
+            response.put("rolledOver", rollover.rolledOver());
+            response.put("oldIndex", rollover.oldIndex());
+            response.put("newIndex", rollover.newIndex());
+            return ResponseEntity.ok(response);
+        } catch (IOException e) {
+            log.error("Error rolling over index: {}", e.getMessage(), e);
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Failed to roll over index: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
+    /**
+     * Start re-embedding every chunk into a new index generation, then swap the alias to it
+     */
+    @PostMapping("/reindex")
+    public ResponseEntity<?> startReindex() {
+        if (!reindexService.start()) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "A re-index is already running");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+        }
+        log.info("Started embedding re-index");
+        return ResponseEntity.accepted().body(reindexService.status());
+    }
+
+    @GetMapping("/reindex")
+    public ResponseEntity<?> getReindexStatus() {
+        return ResponseEntity.ok(reindexService.status());
+    }
+}
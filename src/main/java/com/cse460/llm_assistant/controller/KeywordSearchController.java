@@ -0,0 +1,48 @@
+package com.cse460.llm_assistant.controller;
+
+import com.cse460.llm_assistant.service.KeywordIndexService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/search/keyword")
+@ConditionalOnProperty(name = "search.keyword.enabled", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class KeywordSearchController {
+
+    private static final int MAX_RESULTS = 100;
+
+    private final KeywordIndexService keywordIndexService;
+
+    /**
+     * Find the chunks ranked highest by BM25 for the query's terms, from the embedded index
+     */
+    @GetMapping
+    public ResponseEntity<?> search(
+            @RequestParam("query") String query,
+            @RequestParam(value = "k", defaultValue = "10") int k) {
+
+        if (query.isBlank() || k < 1 || k > MAX_RESULTS) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "query must not be blank and k must be 1-" + MAX_RESULTS);
+            return ResponseEntity.badRequest().body(error);
+        }
+
+        try {
+            return ResponseEntity.ok(keywordIndexService.search(query, k));
+        } catch (IOException e) {
+            log.error("Error searching the keyword index for '{}': {}", query, e.getMessage(), e);
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Search failed: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+}
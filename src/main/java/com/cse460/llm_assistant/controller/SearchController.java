@@ -0,0 +1,50 @@
+package com.cse460.llm_assistant.controller;
+
+import com.cse460.llm_assistant.service.SemanticSearchService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/search")
+@ConditionalOnProperty(name = "elasticsearch.enabled", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class SearchController {
+
+    private static final int MAX_RESULTS = 100;
+
+    private final SemanticSearchService searchService;
+
+    /**
+     * Find the chunks most similar to the query. lambda sets the relevance/diversity trade-off of
+     * the re-ranking, from 0 (most diverse) to 1 (relevance only).
+     */
+    @GetMapping
+    public ResponseEntity<?> search(
+            @RequestParam("query") String query,
+            @RequestParam(value = "k", defaultValue = "10") int k,
+            @RequestParam(value = "lambda", required = false) Float lambda) {
+
+        if (query.isBlank() || k < 1 || k > MAX_RESULTS || (lambda != null && (lambda < 0 || lambda > 1))) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "query must not be blank, k must be 1-" + MAX_RESULTS + " and lambda 0-1");
+            return ResponseEntity.badRequest().body(error);
+        }
+
+        try {
+            return ResponseEntity.ok(searchService.search(query, k, lambda));
+        } catch (IOException e) {
+            log.error("Error searching for '{}': {}", query, e.getMessage(), e);
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Search failed: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+}
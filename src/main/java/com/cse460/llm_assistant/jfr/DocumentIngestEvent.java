@@ -0,0 +1,32 @@
+package com.cse460.llm_assistant.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.cse460.llm_assistant.DocumentIngest")
+@Label("Document Ingest")
+@Description("Processing of one uploaded document, from metadata insert to final status")
+@Category({"LLM Assistant", "Ingest"})
+@StackTrace(false)
+public class DocumentIngestEvent extends jdk.jfr.Event {
+
+    @Label("Document Id")
+    public long documentId;
+
+    @Label("Filename")
+    public String filename;
+
+    @Label("File Size")
+    @DataAmount
+    public long fileSize;
+
+    @Label("Page Count")
+    public int pageCount;
+
+    @Label("Status")
+    public String status;
+}
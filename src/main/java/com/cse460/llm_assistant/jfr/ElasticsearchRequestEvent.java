@@ -0,0 +1,26 @@
+package com.cse460.llm_assistant.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("com.cse460.llm_assistant.ElasticsearchRequest")
+@Label("Elasticsearch Request")
+@Description("One request from the embedding repository to Elasticsearch")
+@Category({"LLM Assistant", "Elasticsearch"})
+@StackTrace(false)
+@Threshold("1 ms")
+public class ElasticsearchRequestEvent extends jdk.jfr.Event {
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Documents")
+    public int documentCount;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+}
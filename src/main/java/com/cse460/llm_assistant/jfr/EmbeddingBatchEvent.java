@@ -0,0 +1,23 @@
+package com.cse460.llm_assistant.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("com.cse460.llm_assistant.EmbeddingBatch")
+@Label("Embedding Batch")
+@Description("One call into the embedding model")
+@Category({"LLM Assistant", "Embedding"})
+@StackTrace(false)
+@Threshold("1 ms")
+public class EmbeddingBatchEvent extends jdk.jfr.Event {
+
+    @Label("Chunks")
+    public int chunkCount;
+
+    @Label("Characters")
+    public long characters;
+}
@@ -0,0 +1,31 @@
+package com.cse460.llm_assistant.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("com.cse460.llm_assistant.ImageWrite")
+@Label("Image Write")
+@Description("Writing one page image to the image store")
+@Category({"LLM Assistant", "Ingest"})
+@StackTrace(false)
+@Threshold("1 ms")
+public class ImageWriteEvent extends jdk.jfr.Event {
+
+    @Label("Document Id")
+    public long documentId;
+
+    @Label("Page Number")
+    public int pageNumber;
+
+    @Label("Path")
+    public String path;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+}
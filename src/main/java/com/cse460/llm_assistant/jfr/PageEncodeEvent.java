@@ -0,0 +1,37 @@
+package com.cse460.llm_assistant.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("com.cse460.llm_assistant.PageEncode")
+@Label("Page Encode")
+@Description("Compressing one rendered page into its image format")
+@Category({"LLM Assistant", "Ingest"})
+@StackTrace(false)
+@Threshold("5 ms")
+public class PageEncodeEvent extends jdk.jfr.Event {
+
+    @Label("Document Id")
+    public long documentId;
+
+    @Label("Page Number")
+    public int pageNumber;
+
+    @Label("Width")
+    public int width;
+
+    @Label("Height")
+    public int height;
+
+    @Label("Format")
+    public String format;
+
+    @Label("Encoded Size")
+    @DataAmount
+    public long encodedBytes;
+}
@@ -0,0 +1,32 @@
+package com.cse460.llm_assistant.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("com.cse460.llm_assistant.PageRender")
+@Label("Page Render")
+@Description("Rasterizing one PDF page")
+@Category({"LLM Assistant", "Ingest"})
+@StackTrace(false)
+@Threshold("5 ms")
+public class PageRenderEvent extends jdk.jfr.Event {
+
+    @Label("Document Id")
+    public long documentId;
+
+    @Label("Page Number")
+    public int pageNumber;
+
+    @Label("Width")
+    public int width;
+
+    @Label("Height")
+    public int height;
+
+    @Label("DPI")
+    public float dpi;
+}
@@ -0,0 +1,10 @@
+/**
+ * JDK Flight Recorder events for the ingest pipeline.
+ * <p>
+ * The events are enabled by default and carry the document and page they belong to, so a
+ * continuous recording such as {@code -XX:StartFlightRecording=maxage=1h,dumponexit=true}
+ * shows which page and stage of a slow ingest used the time and allocations. Embedding and
+ * Elasticsearch events cover outbox batches that span documents, so they carry batch sizes instead.
+ * Per-page events have small thresholds so only work that is measurable gets recorded.
+ */
+package com.cse460.llm_assistant.jfr;
@@ -1,5 +1,6 @@
 package com.cse460.llm_assistant.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -8,7 +9,13 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "documents")
+@Table(name = "documents", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_documents_content_hash", columnNames = "content_hash")
+}, indexes = {
+        // Keyset pagination of the listing, newest first, with and without a status filter
+        @Index(name = "idx_documents_uploaded_id", columnList = "uploaded_at, id"),
+        @Index(name = "idx_documents_status_uploaded_id", columnList = "status, uploaded_at, id")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -22,7 +29,7 @@ public class Document {
     private String filename;
     private String contentType;
     private Long fileSize;
-    private String status; // UPLOADED, PROCESSING, PROCESSED, FAILED
+    private String status; // UPLOADED, PROCESSING, PROCESSED, FAILED, DELETING
 
     @Column(length = 1000)
     private String description;
@@ -33,6 +40,26 @@ public class Document {
     // Number of pages in the document
     private Integer pageCount;
 
-    // Hash of the file content to avoid duplicates
+    // Hash of the file content to avoid duplicates; unique so concurrent ingests on different nodes cannot both insert
+    @Column(name = "content_hash", length = 64)
     private String contentHash;
+
+    // Stored copy of the original PDF, for rendering pages on demand and again after eviction
+    private String sourcePath;
+
+    // MinHash signature of the document text, Base64 encoded, for near-duplicate lookup
+    @JsonIgnore
+    @Column(length = 1024)
+    private String minHashSignature;
+
+    // Stored document this one is a near-duplicate of, and the estimated similarity of their text
+    private Long nearDuplicateOfId;
+    private Double nearDuplicateSimilarity;
+
+    // Pages identical to a page of the near-duplicate, whose chunks, vectors and images were copied
+    private Integer reusedPageCount;
+
+    // Elasticsearch task removing the chunks of a document that is being deleted
+    @JsonIgnore
+    private String deleteTaskId;
 }
\ No newline at end of file
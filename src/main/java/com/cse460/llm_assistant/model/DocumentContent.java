@@ -4,10 +4,14 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 @Entity
-@Table(name = "document_contents")
+@Table(name = "document_contents", indexes = {
+        @Index(name = "idx_document_contents_doc_page_chunk", columnList = "document_id, page_number, chunk_sequence")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -17,7 +21,9 @@ public class DocumentContent {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @JoinColumn(name = "document_id", nullable = false)
     private Document document;
 
@@ -26,10 +32,14 @@ public class DocumentContent {
     // Section within the page (optional)
     private String section;
 
-    // The actual text content
-    @Column(columnDefinition = "TEXT")
+    // The actual text content, kept in the ChunkTextStore rather than in this table
+    @Transient
     private String content;
 
+    // Text of chunks stored before the ChunkTextStore, moved into it at startup
+    @Column(name = "content", columnDefinition = "TEXT")
+    private String legacyContent;
+
     // Text chunk sequence number for long texts split into chunks
     private Integer chunkSequence;
 }
\ No newline at end of file
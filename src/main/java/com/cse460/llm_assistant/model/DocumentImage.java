@@ -4,10 +4,17 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "document_images")
+@Table(name = "document_images", indexes = {
+        @Index(name = "idx_document_images_doc_page_seq", columnList = "document_id, page_number, image_sequence"),
+        @Index(name = "idx_document_images_last_accessed", columnList = "last_accessed_at")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -17,7 +24,9 @@ public class DocumentImage {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @JoinColumn(name = "document_id", nullable = false)
     private Document document;
 
@@ -31,6 +40,12 @@ public class DocumentImage {
     // Image format (PNG, JPEG, etc.)
     private String format;
 
+    // Size of the stored image file, counted against the image store budget
+    private Long sizeBytes;
+
+    // Last time the image was stored or served; the least recently used are evicted first
+    private LocalDateTime lastAccessedAt;
+
     // Optional caption or description
     @Column(length = 1000)
     private String caption;
@@ -0,0 +1,33 @@
+package com.cse460.llm_assistant.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One locality-sensitive hashing bucket of a document's MinHash signature.
+ * Documents sharing a bucket are candidate near-duplicates.
+ */
+@Entity
+@Table(name = "document_lsh_bands", indexes = {
+        @Index(name = "idx_document_lsh_bands_bucket", columnList = "bucket"),
+        @Index(name = "idx_document_lsh_bands_doc", columnList = "document_id")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentLshBand {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "document_id", nullable = false)
+    private Long documentId;
+
+    // Hash of one band of signature rows, including the band number
+    @Column(nullable = false)
+    private Long bucket;
+}
@@ -0,0 +1,38 @@
+package com.cse460.llm_assistant.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Fingerprint of one page, used to find the identical pages of a near-duplicate document
+ */
+@Entity
+@Table(name = "document_page_signatures", indexes = {
+        @Index(name = "idx_document_page_signatures_doc_page", columnList = "document_id, page_number")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentPageSignature {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "document_id", nullable = false)
+    private Long documentId;
+
+    @Column(name = "page_number", nullable = false)
+    private Integer pageNumber;
+
+    // SHA-256 of the extracted page text
+    @Column(length = 64, nullable = false)
+    private String textHash;
+
+    // SHA-256 of the content stream, images and fonts that determine the rendered page
+    @Column(length = 64, nullable = false)
+    private String renderHash;
+}
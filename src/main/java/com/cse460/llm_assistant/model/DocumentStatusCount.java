@@ -0,0 +1,26 @@
+package com.cse460.llm_assistant.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Number of documents in one status, kept up to date in the transaction of every status change
+ * so the counts can be read without scanning the documents table.
+ */
+@Entity
+@Table(name = "document_status_counts")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentStatusCount {
+    @Id
+    @Column(length = 16)
+    private String status;
+
+    @Column(name = "document_count", nullable = false)
+    private long count;
+}
@@ -8,6 +8,7 @@ import org.springframework.data.annotation.Id;
 import org.springframework.data.elasticsearch.annotations.Document;
 import org.springframework.data.elasticsearch.annotations.Field;
 import org.springframework.data.elasticsearch.annotations.FieldType;
+import org.springframework.data.elasticsearch.annotations.IndexOptions;
 import org.springframework.data.elasticsearch.annotations.Setting;
 
 import java.util.List;
@@ -16,7 +17,8 @@ import java.util.List;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Document(indexName = "documents")
+// "documents" is an alias over generations of backing indices, managed by EmbeddingIndexService
+@Document(indexName = "documents", createIndex = false)
 @Setting(settingPath = "static/es-settings.json")
 public class EmbeddingDocument {
 
@@ -29,11 +31,16 @@ public class EmbeddingDocument {
 
     private Integer chunkSequence;
 
-    @Field(type = FieldType.Text, analyzer = "english")
+    // Offsets in the postings let the highlighter find matches without re-analyzing the content
+    @Field(type = FieldType.Text, analyzer = "english", indexOptions = IndexOptions.offsets)
     private String content;
 
     @Field(type = FieldType.Dense_Vector, dims = 384)
     private List<Float> embedding;
 
+    // Id of the model that produced the embedding; searches only compare vectors of one model
+    @Field(type = FieldType.Keyword)
+    private String modelId;
+
     private String metadata;
 }
\ No newline at end of file
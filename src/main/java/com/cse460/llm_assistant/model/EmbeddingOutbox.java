@@ -0,0 +1,53 @@
+package com.cse460.llm_assistant.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A chunk waiting to be embedded and indexed. Written in the same transaction as its
+ * DocumentContent row, so every stored chunk is eventually indexed or visibly failed.
+ */
+@Entity
+@Table(name = "embedding_outbox", indexes = {
+        @Index(name = "idx_embedding_outbox_status_next", columnList = "status, next_attempt_at"),
+        @Index(name = "idx_embedding_outbox_doc_status", columnList = "document_id, status")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmbeddingOutbox {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "document_id", nullable = false)
+    private Long documentId;
+
+    @Column(name = "content_id", nullable = false, unique = true)
+    private Long contentId;
+
+    // Chunk of a near-duplicate document with the same text, whose vector can be copied
+    @Column(name = "source_content_id")
+    private Long sourceContentId;
+
+    // PENDING or FAILED; an entry is deleted once its chunk is indexed
+    @Column(nullable = false, length = 16)
+    private String status;
+
+    private int attempts;
+
+    // Earliest time the entry may be claimed; pushed forward while a drainer holds it
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,14 @@
+package com.cse460.llm_assistant.model.projection;
+
+/**
+ * Closed projection over {@link com.cse460.llm_assistant.model.DocumentContent}.
+ * Selects only the chunk columns, so reads never touch the parent document. The chunks' text is
+ * read from the {@link com.cse460.llm_assistant.service.ChunkTextStore}.
+ */
+public interface DocumentContentView {
+    Long getId();
+
+    Integer getPageNumber();
+
+    Integer getChunkSequence();
+}
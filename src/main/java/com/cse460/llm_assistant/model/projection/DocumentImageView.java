@@ -0,0 +1,17 @@
+package com.cse460.llm_assistant.model.projection;
+
+/**
+ * Closed projection over {@link com.cse460.llm_assistant.model.DocumentImage}
+ * used by the image listing endpoints.
+ */
+public interface DocumentImageView {
+    Long getId();
+
+    Integer getPageNumber();
+
+    Integer getImageSequence();
+
+    String getFormat();
+
+    String getCaption();
+}
@@ -0,0 +1,25 @@
+package com.cse460.llm_assistant.model.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Closed projection over {@link com.cse460.llm_assistant.model.Document}
+ * used by the document listing endpoint.
+ */
+public interface DocumentSummaryView {
+    Long getId();
+
+    String getTitle();
+
+    String getFilename();
+
+    String getStatus();
+
+    Long getFileSize();
+
+    Integer getPageCount();
+
+    LocalDateTime getUploadedAt();
+
+    LocalDateTime getProcessedAt();
+}
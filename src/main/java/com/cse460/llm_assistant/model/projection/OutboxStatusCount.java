@@ -0,0 +1,10 @@
+package com.cse460.llm_assistant.model.projection;
+
+/**
+ * Number of outbox entries of a document in one status
+ */
+public interface OutboxStatusCount {
+    String getStatus();
+
+    long getCount();
+}
@@ -2,13 +2,56 @@ package com.cse460.llm_assistant.repository;
 
 import com.cse460.llm_assistant.model.Document;
 import com.cse460.llm_assistant.model.DocumentContent;
+import com.cse460.llm_assistant.model.projection.DocumentContentView;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface DocumentContentRepository extends JpaRepository<DocumentContent, Long> {
-    List<DocumentContent> findByDocumentIdOrderByPageNumberAscChunkSequenceAsc(Long documentId);
+    // Filters on the document_id column directly so the composite index is used without joining documents
+    @Query("select c.id as id, c.pageNumber as pageNumber, c.chunkSequence as chunkSequence " +
+            "from DocumentContent c where c.document.id = :documentId order by c.pageNumber asc, c.chunkSequence asc")
+    List<DocumentContentView> findByDocumentIdOrderByPageNumberAscChunkSequenceAsc(@Param("documentId") Long documentId);
     List<DocumentContent> findByDocumentAndPageNumberOrderByChunkSequenceAsc(Document document, Integer pageNumber);
-}
\ No newline at end of file
+
+    @Query("select count(c) from DocumentContent c where c.document.id = :documentId")
+    long countByDocumentId(@Param("documentId") Long documentId);
+
+    // Loads the owning documents in the same query, for use outside a persistence context
+    @Query("select c from DocumentContent c join fetch c.document where c.id in :ids")
+    List<DocumentContent> findAllWithDocumentByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Keyset page of chunks in id order, with their documents
+    @Query("select c from DocumentContent c join fetch c.document where c.id > :afterId order by c.id")
+    List<DocumentContent> findWithDocumentByIdGreaterThan(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Keyset page of the chunks of documents processed at or after the given time, or not finished
+    @Query("select c from DocumentContent c join fetch c.document d " +
+            "where (d.processedAt is null or d.processedAt >= :since) and c.id > :afterId order by c.id")
+    List<DocumentContent> findWithDocumentProcessedSince(@Param("since") LocalDateTime since,
+                                                         @Param("afterId") Long afterId, Pageable pageable);
+
+    // Documents with chunk text still in the database, from before the chunk text store
+    @Query("select distinct c.document.id from DocumentContent c where c.legacyContent is not null")
+    List<Long> findDocumentIdsWithLegacyContent();
+
+    @Query("select c from DocumentContent c where c.document.id = :documentId and c.legacyContent is not null")
+    List<DocumentContent> findLegacyByDocumentId(@Param("documentId") Long documentId);
+
+    @Modifying
+    @Query("update DocumentContent c set c.legacyContent = null where c.document.id = :documentId")
+    int clearLegacyContent(@Param("documentId") Long documentId);
+
+    // One set-based statement, where a derived deleteBy would load and delete each row
+    @Modifying
+    @Query("delete from DocumentContent c where c.document.id = :documentId")
+    int bulkDeleteByDocumentId(@Param("documentId") Long documentId);
+}
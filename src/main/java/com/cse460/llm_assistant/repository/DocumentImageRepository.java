@@ -1,13 +1,71 @@
 package com.cse460.llm_assistant.repository;
 
 import com.cse460.llm_assistant.model.DocumentImage;
+import com.cse460.llm_assistant.model.projection.DocumentImageView;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface DocumentImageRepository extends JpaRepository<DocumentImage, Long> {
-    List<DocumentImage> findByDocumentIdOrderByPageNumberAscImageSequenceAsc(Long documentId);
-    List<DocumentImage> findByDocumentIdAndPageNumber(Long documentId, Integer pageNumber);
-}
\ No newline at end of file
+    @Query("select i.id as id, i.pageNumber as pageNumber, i.imageSequence as imageSequence, i.format as format, " +
+            "i.caption as caption from DocumentImage i where i.document.id = :documentId " +
+            "order by i.pageNumber asc, i.imageSequence asc")
+    List<DocumentImageView> findByDocumentIdOrderByPageNumberAscImageSequenceAsc(@Param("documentId") Long documentId);
+
+    @Query("select i.id as id, i.pageNumber as pageNumber, i.imageSequence as imageSequence, i.format as format, " +
+            "i.caption as caption from DocumentImage i where i.document.id = :documentId " +
+            "and i.pageNumber = :pageNumber order by i.imageSequence asc")
+    List<DocumentImageView> findByDocumentIdAndPageNumber(@Param("documentId") Long documentId,
+                                                          @Param("pageNumber") Integer pageNumber);
+
+    // Entries registered for on-demand rendering whose image has not been produced yet
+    @Query("select i from DocumentImage i where i.document.id = :documentId " +
+            "and i.pageNumber = :pageNumber and i.imagePath is null")
+    List<DocumentImage> findUnrenderedByDocumentIdAndPageNumber(@Param("documentId") Long documentId,
+                                                                @Param("pageNumber") Integer pageNumber);
+
+    // Entries of a page whose image has been produced
+    @Query("select i from DocumentImage i where i.document.id = :documentId " +
+            "and i.pageNumber = :pageNumber and i.imagePath is not null order by i.imageSequence asc")
+    List<DocumentImage> findRenderedByDocumentIdAndPageNumber(@Param("documentId") Long documentId,
+                                                              @Param("pageNumber") Integer pageNumber);
+
+    // Total size of the image files on disk
+    @Query("select coalesce(sum(i.sizeBytes), 0) from DocumentImage i where i.imagePath is not null")
+    long sumStoredBytes();
+
+    // Stored images whose size was never recorded, from before sizes were tracked
+    @Query("select i from DocumentImage i where i.imagePath is not null and i.sizeBytes is null")
+    List<DocumentImage> findStoredWithoutSize(Pageable pageable);
+
+    // Stored images that can be rendered again from their document's source, least recently used first
+    @Query("select i from DocumentImage i join i.document d where i.imagePath is not null " +
+            "and d.sourcePath is not null order by i.lastAccessedAt asc nulls first, i.id asc")
+    List<DocumentImage> findEvictionCandidates(Pageable pageable);
+
+    @Modifying
+    @Query("update DocumentImage i set i.lastAccessedAt = :accessedAt where i.id in :ids")
+    int updateLastAccessedAt(@Param("ids") Collection<Long> ids, @Param("accessedAt") LocalDateTime accessedAt);
+
+    // Only clears the path it was given, so an image rendered again in the meantime is kept
+    @Modifying
+    @Query("update DocumentImage i set i.imagePath = null, i.sizeBytes = null " +
+            "where i.id = :id and i.imagePath = :imagePath")
+    int clearImagePath(@Param("id") Long id, @Param("imagePath") String imagePath);
+
+    // Files to unlink when the document's rows are deleted
+    @Query("select i.imagePath from DocumentImage i where i.document.id = :documentId and i.imagePath is not null")
+    List<String> findImagePathsByDocumentId(@Param("documentId") Long documentId);
+
+    @Modifying
+    @Query("delete from DocumentImage i where i.document.id = :documentId")
+    int bulkDeleteByDocumentId(@Param("documentId") Long documentId);
+}
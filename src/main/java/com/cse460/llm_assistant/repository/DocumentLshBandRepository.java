@@ -0,0 +1,25 @@
+package com.cse460.llm_assistant.repository;
+
+import com.cse460.llm_assistant.model.DocumentLshBand;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface DocumentLshBandRepository extends JpaRepository<DocumentLshBand, Long> {
+    // Other documents sharing any of the buckets, those sharing the most first
+    @Query("select b.documentId from DocumentLshBand b where b.bucket in :buckets and b.documentId <> :documentId " +
+            "group by b.documentId order by count(b) desc")
+    List<Long> findCandidates(@Param("buckets") Collection<Long> buckets, @Param("documentId") Long documentId,
+                              Pageable pageable);
+
+    @Modifying
+    @Query("delete from DocumentLshBand b where b.documentId = :documentId")
+    int bulkDeleteByDocumentId(@Param("documentId") Long documentId);
+}
@@ -0,0 +1,19 @@
+package com.cse460.llm_assistant.repository;
+
+import com.cse460.llm_assistant.model.DocumentPageSignature;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface DocumentPageSignatureRepository extends JpaRepository<DocumentPageSignature, Long> {
+    List<DocumentPageSignature> findByDocumentIdOrderByPageNumberAsc(Long documentId);
+
+    @Modifying
+    @Query("delete from DocumentPageSignature s where s.documentId = :documentId")
+    int bulkDeleteByDocumentId(@Param("documentId") Long documentId);
+}
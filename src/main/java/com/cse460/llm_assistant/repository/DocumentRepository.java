@@ -1,9 +1,16 @@
 package com.cse460.llm_assistant.repository;
 
 import com.cse460.llm_assistant.model.Document;
+import com.cse460.llm_assistant.model.DocumentStatusCount;
+import com.cse460.llm_assistant.model.projection.DocumentSummaryView;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,4 +18,37 @@ import java.util.Optional;
 public interface DocumentRepository extends JpaRepository<Document, Long> {
     Optional<Document> findByContentHash(String contentHash);
     List<Document> findByStatus(String status);
+
+    // Keyset pages, newest first: the documents uploaded in [from, to) that sort after the cursor
+    // (uploadedAt, id). The redundant bound on uploadedAt alone lets each page start with a range
+    // scan of the (uploaded_at, id) indexes instead of evaluating the OR row by row.
+    @Query("select d.id as id, d.title as title, d.filename as filename, d.status as status, d.fileSize as fileSize, " +
+            "d.pageCount as pageCount, d.uploadedAt as uploadedAt, d.processedAt as processedAt from Document d " +
+            "where d.status <> 'DELETING' and d.uploadedAt >= :from " +
+            "and d.uploadedAt <= :afterUploadedAt and (d.uploadedAt < :afterUploadedAt or d.id < :afterId) " +
+            "order by d.uploadedAt desc, d.id desc")
+    List<DocumentSummaryView> findPageBefore(@Param("from") LocalDateTime from,
+                                             @Param("afterUploadedAt") LocalDateTime afterUploadedAt,
+                                             @Param("afterId") Long afterId,
+                                             Pageable pageable);
+
+    @Query("select d.id as id, d.title as title, d.filename as filename, d.status as status, d.fileSize as fileSize, " +
+            "d.pageCount as pageCount, d.uploadedAt as uploadedAt, d.processedAt as processedAt from Document d " +
+            "where d.status = :status and d.uploadedAt >= :from " +
+            "and d.uploadedAt <= :afterUploadedAt and (d.uploadedAt < :afterUploadedAt or d.id < :afterId) " +
+            "order by d.uploadedAt desc, d.id desc")
+    List<DocumentSummaryView> findPageByStatusBefore(@Param("status") String status,
+                                                     @Param("from") LocalDateTime from,
+                                                     @Param("afterUploadedAt") LocalDateTime afterUploadedAt,
+                                                     @Param("afterId") Long afterId,
+                                                     Pageable pageable);
+
+    // Full recount, only for seeding the status counters
+    @Query("select new com.cse460.llm_assistant.model.DocumentStatusCount(d.status, count(d)) " +
+            "from Document d where d.status is not null group by d.status")
+    List<DocumentStatusCount> countGroupedByStatus();
+
+    @Modifying
+    @Query("update Document d set d.deleteTaskId = :taskId where d.id = :id")
+    int updateDeleteTaskId(@Param("id") Long id, @Param("taskId") String taskId);
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.cse460.llm_assistant.repository;
+
+import com.cse460.llm_assistant.model.DocumentStatusCount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface DocumentStatusCountRepository extends JpaRepository<DocumentStatusCount, String> {
+    @Modifying
+    @Query("update DocumentStatusCount c set c.count = c.count + :delta where c.status = :status")
+    int add(@Param("status") String status, @Param("delta") long delta);
+}
@@ -0,0 +1,35 @@
+package com.cse460.llm_assistant.repository;
+
+import com.cse460.llm_assistant.model.EmbeddingOutbox;
+import com.cse460.llm_assistant.model.projection.OutboxStatusCount;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EmbeddingOutboxRepository extends JpaRepository<EmbeddingOutbox, Long> {
+    // Lock timeout -2 makes Hibernate add SKIP LOCKED, so concurrent drainers claim disjoint batches
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select o from EmbeddingOutbox o where o.status = 'PENDING' and o.nextAttemptAt <= :now " +
+            "order by o.nextAttemptAt asc")
+    List<EmbeddingOutbox> findDue(@Param("now") LocalDateTime now, Pageable pageable);
+
+    @Query("select o.status as status, count(o) as count from EmbeddingOutbox o " +
+            "where o.documentId = :documentId group by o.status")
+    List<OutboxStatusCount> countByStatus(@Param("documentId") Long documentId);
+
+    @Modifying
+    @Query("delete from EmbeddingOutbox o where o.documentId = :documentId")
+    int bulkDeleteByDocumentId(@Param("documentId") Long documentId);
+}
@@ -1,13 +1,18 @@
 package com.cse460.llm_assistant.repository;
 
 import com.cse460.llm_assistant.model.EmbeddingDocument;
+import org.springframework.data.elasticsearch.annotations.Query;
 import org.springframework.data.elasticsearch.repository.ElasticsearchRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface EmbeddingRepository extends ElasticsearchRepository<EmbeddingDocument, String> {
     List<EmbeddingDocument> findByDocumentId(Long documentId);
-    void deleteByDocumentId(Long documentId);
+
+    // A search rather than a multi-get, which Elasticsearch refuses on an alias spanning several indices
+    @Query("{\"ids\": {\"values\": ?0}}")
+    List<EmbeddingDocument> findByIds(Collection<String> ids);
 }
\ No newline at end of file
@@ -0,0 +1,385 @@
+package com.cse460.llm_assistant.service;
+
+import com.cse460.llm_assistant.model.Document;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Ingests many PDFs from one request: plain files, or the entries of a ZIP, TAR or gzipped TAR archive.
+ * Archives are read as a stream one entry at a time, and entries are processed on a shared pool with
+ * bounded parallelism; a result is reported for each file as soon as it finishes. Entries read ahead
+ * of the workers are spooled to temporary files, which the ingest parses from disk, and only a few
+ * batches run at once.
+ */
+@Service
+@Slf4j
+public class BatchIngestService {
+
+    public static final String PROCESSED = "PROCESSED";
+    public static final String FAILED = "FAILED";
+    public static final String REJECTED = "REJECTED";
+    public static final String SKIPPED = "SKIPPED";
+
+    public static final String ZIP = "zip";
+    public static final String TAR = "tar";
+    public static final String TAR_GZ = "tar.gz";
+
+    private static final byte[] PDF_MAGIC = "%PDF-".getBytes(StandardCharsets.US_ASCII);
+
+    private final PdfProcessingService pdfProcessingService;
+    private final ExecutorService workers;
+    private final ExecutorService coordinators;
+    private final int maxInFlight;
+    private final long maxEntryBytes;
+
+    public BatchIngestService(PdfProcessingService pdfProcessingService,
+                              @Value("${ingest.batch.parallelism:4}") int parallelism,
+                              @Value("${ingest.batch.max-in-flight:0}") int maxInFlight,
+                              @Value("${ingest.batch.max-entry-size-mb:256}") long maxEntrySizeMb,
+                              @Value("${ingest.batch.max-concurrent:2}") int maxConcurrent) {
+        this.pdfProcessingService = pdfProcessingService;
+        // Entries read ahead of the workers are spooled to disk, so the read-ahead is bounded too
+        this.maxInFlight = maxInFlight > 0 ? maxInFlight : parallelism * 2;
+        this.maxEntryBytes = maxEntrySizeMb * 1024 * 1024;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "batch-ingest-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // No queue: a batch beyond the limit is turned away rather than left waiting with its request open
+        AtomicInteger coordinatorCount = new AtomicInteger();
+        this.coordinators = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 0L, TimeUnit.MILLISECONDS,
+                new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "batch-upload-" + coordinatorCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Runs a batch request on its own thread, so the request thread is released while the batch
+     * reads its input and reports its results
+     *
+     * @throws RejectedExecutionException if the limit of batches running at once is reached
+     */
+    public void start(Runnable batch) {
+        coordinators.execute(batch);
+    }
+
+    /**
+     * Result for one file of a batch
+     *
+     * @param file       name of the file, including its path inside the archive
+     * @param status     PROCESSED, FAILED, REJECTED or SKIPPED
+     * @param documentId stored document, if any
+     * @param error      why the file was not processed, if it was not
+     */
+    public record ItemResult(String file, String status, Long documentId, String error) {
+    }
+
+    /**
+     * Returns the archive format for a file name or content type, or null if it is not an archive
+     */
+    public static String archiveType(String filename, String contentType) {
+        String name = filename == null ? "" : filename.toLowerCase(Locale.ROOT);
+        String type = contentType == null ? "" : contentType.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".zip") || type.startsWith("application/zip") || type.startsWith("application/x-zip")) {
+            return ZIP;
+        }
+        if (name.endsWith(".tar.gz") || name.endsWith(".tgz")
+                || type.startsWith("application/gzip") || type.startsWith("application/x-gzip")) {
+            return TAR_GZ;
+        }
+        if (name.endsWith(".tar") || type.startsWith("application/x-tar")) {
+            return TAR;
+        }
+        return null;
+    }
+
+    /**
+     * Ingests uploaded files, expanding any archives among them; blocks until every file has a result
+     *
+     * @param results called once per file, from the worker that finished it
+     * @return counts per status for the whole batch
+     */
+    public Map<String, Object> ingestFiles(List<MultipartFile> files, Consumer<ItemResult> results)
+            throws InterruptedException {
+        Batch batch = new Batch(results);
+        for (MultipartFile file : files) {
+            String type = archiveType(file.getOriginalFilename(), file.getContentType());
+            if (type != null) {
+                try (InputStream in = file.getInputStream()) {
+                    readArchive(batch, in, type, file.getOriginalFilename());
+                } catch (IOException e) {
+                    log.warn("Could not read archive {}: {}", file.getOriginalFilename(), e.getMessage());
+                    batch.report(new ItemResult(file.getOriginalFilename(), FAILED, null,
+                            "Unreadable archive: " + e.getMessage()));
+                }
+            } else if (file.isEmpty()) {
+                batch.report(new ItemResult(file.getOriginalFilename(), SKIPPED, null, "File is empty"));
+            } else {
+                batch.acquire();
+                batch.submit(file.getOriginalFilename(), file, null);
+            }
+        }
+        return batch.await();
+    }
+
+    /**
+     * Ingests the entries of an archive read from a stream; blocks until every entry has a result
+     *
+     * @param type    ZIP, TAR or TAR_GZ
+     * @param results called once per entry, from the worker that finished it
+     * @return counts per status for the whole batch
+     */
+    public Map<String, Object> ingestArchive(InputStream in, String type, Consumer<ItemResult> results)
+            throws InterruptedException {
+        Batch batch = new Batch(results);
+        try {
+            readArchive(batch, in, type, null);
+        } catch (IOException e) {
+            // Entries already read keep going; the caller learns the archive was cut short
+            log.warn("Batch archive ended with an error: {}", e.getMessage());
+            batch.report(new ItemResult(null, FAILED, null, "Unreadable archive: " + e.getMessage()));
+        }
+        return batch.await();
+    }
+
+    private void readArchive(Batch batch, InputStream in, String type, String archiveName)
+            throws IOException, InterruptedException {
+        ArchiveInputStream<? extends ArchiveEntry> archive = switch (type) {
+            case ZIP -> new ZipArchiveInputStream(in);
+            case TAR -> new TarArchiveInputStream(in);
+            case TAR_GZ -> new TarArchiveInputStream(new GZIPInputStream(in));
+            default -> throw new IllegalArgumentException("Unsupported archive type: " + type);
+        };
+
+        ArchiveEntry entry;
+        while ((entry = archive.getNextEntry()) != null) {
+            if (entry.isDirectory()) {
+                continue;
+            }
+            String path = archiveName == null ? entry.getName() : archiveName + "!/" + entry.getName();
+            if (!entry.getName().toLowerCase(Locale.ROOT).endsWith(".pdf") || !archive.canReadEntryData(entry)) {
+                batch.report(new ItemResult(path, SKIPPED, null, "Not a PDF"));
+                continue;
+            }
+            if (entry.getSize() > maxEntryBytes) {
+                batch.report(new ItemResult(path, SKIPPED, null, "Larger than " + maxEntryBytes + " bytes"));
+                continue;
+            }
+
+            // Wait for a slot before spooling the entry, so a fast reader cannot outrun the workers
+            long limit = entry.getSize() >= 0 ? entry.getSize() : maxEntryBytes;
+            batch.acquire();
+            byte[] head;
+            try {
+                head = archive.readNBytes(PDF_MAGIC.length);
+            } catch (IOException e) {
+                batch.release();
+                throw e;
+            }
+            if (!Arrays.equals(head, PDF_MAGIC)) {
+                batch.release();
+                batch.report(new ItemResult(path, SKIPPED, null, "Not a PDF"));
+                continue;
+            }
+            Path spooled;
+            long size;
+            try {
+                spooled = Files.createTempFile("batch-", ".pdf");
+            } catch (IOException e) {
+                batch.release();
+                throw e;
+            }
+            try {
+                size = spoolEntry(archive, head, spooled, limit);
+            } catch (IOException e) {
+                deleteSpooled(spooled);
+                batch.release();
+                throw e;
+            }
+            if (size < 0) {
+                deleteSpooled(spooled);
+                batch.release();
+                batch.report(new ItemResult(path, SKIPPED, null, limit < maxEntryBytes
+                        ? "Larger than its archive header says"
+                        : "Larger than " + maxEntryBytes + " bytes"));
+            } else {
+                String filename = entry.getName().substring(entry.getName().lastIndexOf('/') + 1);
+                batch.submit(path, new SpooledUpload(spooled, filename, "application/pdf", size), spooled);
+            }
+        }
+    }
+
+    /**
+     * Copies the current entry, after the head already read from it, to a file; returns its size, or
+     * -1 once it exceeds the limit. Sizes in archive headers can be missing or wrong, so the limit is
+     * enforced on the bytes actually read
+     */
+    private long spoolEntry(InputStream entry, byte[] head, Path file, long limit) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            out.write(head);
+            byte[] buffer = new byte[64 * 1024];
+            long total = head.length;
+            int read;
+            while ((read = entry.read(buffer)) != -1) {
+                total += read;
+                if (total > limit) {
+                    return -1;
+                }
+                out.write(buffer, 0, read);
+            }
+            return total;
+        }
+    }
+
+    private static void deleteSpooled(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete spooled archive entry {}: {}", file, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        coordinators.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    /**
+     * Tracks the files of one request: the slots they hold, the ones still running and the counts per status
+     */
+    private class Batch {
+
+        private final Consumer<ItemResult> results;
+        private final Semaphore slots = new Semaphore(maxInFlight);
+        // Starts with the reader registered, so await() only returns once reading is done
+        private final Phaser running = new Phaser(1);
+        private final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+        private final long startedAt = System.nanoTime();
+
+        Batch(Consumer<ItemResult> results) {
+            this.results = results;
+        }
+
+        void acquire() throws InterruptedException {
+            slots.acquire();
+        }
+
+        void release() {
+            slots.release();
+        }
+
+        /**
+         * Hands a file to the worker pool; the caller must hold a slot, which the worker releases
+         * however processing ends, along with the file the entry was spooled to, if any
+         */
+        void submit(String path, MultipartFile file, Path spooled) {
+            running.register();
+            try {
+                workers.execute(() -> {
+                    ItemResult result = new ItemResult(path, FAILED, null, "Processing failed");
+                    try {
+                        result = process(path, file);
+                    } catch (Error e) {
+                        log.error("Batch ingest of {} failed: {}", path, e.toString(), e);
+                        result = new ItemResult(path, FAILED, null, e.toString());
+                        throw e;
+                    } finally {
+                        slots.release();
+                        if (spooled != null) {
+                            deleteSpooled(spooled);
+                        }
+                        report(result);
+                        running.arriveAndDeregister();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                slots.release();
+                if (spooled != null) {
+                    deleteSpooled(spooled);
+                }
+                report(new ItemResult(path, FAILED, null, "Server is shutting down"));
+                running.arriveAndDeregister();
+            }
+        }
+
+        void report(ItemResult result) {
+            counts.computeIfAbsent(result.status(), status -> new LongAdder()).increment();
+            // One result at a time, so lines written by the caller never interleave
+            synchronized (this) {
+                try {
+                    results.accept(result);
+                } catch (RuntimeException e) {
+                    log.debug("Could not deliver batch result for {}: {}", result.file(), e.getMessage());
+                }
+            }
+        }
+
+        Map<String, Object> await() throws InterruptedException {
+            running.awaitAdvanceInterruptibly(running.arrive());
+
+            Map<String, Object> summary = new LinkedHashMap<>();
+            for (String status : List.of(PROCESSED, FAILED, REJECTED, SKIPPED)) {
+                summary.put(status.toLowerCase(Locale.ROOT), 0L);
+            }
+            long total = 0;
+            for (Map.Entry<String, LongAdder> count : counts.entrySet()) {
+                summary.put(count.getKey().toLowerCase(Locale.ROOT), count.getValue().sum());
+                total += count.getValue().sum();
+            }
+            summary.put("total", total);
+            summary.put("elapsedMs", (System.nanoTime() - startedAt) / 1_000_000);
+            return summary;
+        }
+    }
+
+    private ItemResult process(String path, MultipartFile file) {
+        try {
+            Document document = pdfProcessingService.processAndStorePdf(file, null, null);
+            String error = FAILED.equals(document.getStatus()) ? "Processing failed" : null;
+            return new ItemResult(path, document.getStatus(), document.getId(), error);
+        } catch (IngestRejectedException e) {
+            return new ItemResult(path, REJECTED, null, e.getMessage());
+        } catch (Exception e) {
+            log.error("Batch ingest of {} failed: {}", path, e.getMessage(), e);
+            return new ItemResult(path, FAILED, null, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,483 @@
+package com.cse460.llm_assistant.service;
+
+import com.cse460.llm_assistant.model.DocumentContent;
+import com.cse460.llm_assistant.repository.DocumentContentRepository;
+import com.cse460.llm_assistant.service.text.SegmentFile;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Text of the stored chunks, kept outside the database in append-only segment files. Each page's
+ * chunks are deflated together into one block, and an in-memory index, rebuilt by scanning the
+ * segments at startup, maps (document, page) to its block, so reading a hit's text is one read of
+ * the page cache. Deleted documents leave tombstones, and segments that are mostly dead blocks
+ * are compacted into the open one. Writers waiting for their blocks to reach the disk share one
+ * fsync, taken outside the lock that orders appends.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ChunkTextStore {
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)\\.dat");
+    private static final String LEGACY_MIGRATED_MARKER = "legacy-migrated";
+    private static final String LOCK_FILE = "write.lock";
+
+    private final DocumentContentRepository contentRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${storage.chunks.location:./uploads/chunks}")
+    private String location = "./uploads/chunks";
+
+    // The open segment is sealed and a new one started once it reaches this size
+    @Value("${storage.chunks.segment-size-mb:64}")
+    private long segmentSizeMb = 64;
+
+    // Sealed segments with at least this share of dead blocks are compacted
+    @Value("${storage.chunks.compact-dead-ratio:0.5}")
+    private double compactDeadRatio = 0.5;
+
+    // Forces each appended block to disk before its chunk rows are committed
+    @Value("${storage.chunks.fsync:true}")
+    private boolean fsync = true;
+
+    /**
+     * Location of a page's block
+     */
+    record BlockRef(int segment, long offset, int length) {
+    }
+
+    private final Map<Long, Map<Integer, BlockRef>> pages = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Integer, SegmentFile> segments = new ConcurrentSkipListMap<>();
+    private final Map<Integer, AtomicLong> liveBytes = new ConcurrentHashMap<>();
+
+    private Path directory;
+    // Held while the store is open, so no other instance appends to the same segments
+    private FileChannel lockChannel;
+    // Guarded by this
+    private SegmentFile active;
+    // Blocks appended so far, guarded by this, and how many of them are known to be on disk, guarded by syncLock
+    private long appended;
+    private long synced;
+    private final Object syncLock = new Object();
+
+    // Completes once chunk text left in the database by earlier versions has been moved here
+    private final CompletableFuture<Void> legacyMigration = new CompletableFuture<>();
+    private volatile boolean closed;
+
+    @PostConstruct
+    public void open() throws IOException {
+        directory = Paths.get(location);
+        Files.createDirectories(directory);
+        lock();
+
+        TreeMap<Integer, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "segment-*.dat")) {
+            for (Path file : stream) {
+                Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    files.put(Integer.parseInt(matcher.group(1)), file);
+                }
+            }
+        }
+        for (Map.Entry<Integer, Path> file : files.entrySet()) {
+            int id = file.getKey();
+            liveBytes.put(id, new AtomicLong());
+            SegmentFile segment = SegmentFile.open(id, file.getValue(), block -> {
+                if (block.isTombstone()) {
+                    removeDocument(block.documentId());
+                } else {
+                    index(block.documentId(), block.pageNumber(), new BlockRef(id, block.offset(), block.length()));
+                }
+            });
+            segments.put(id, segment);
+        }
+        for (SegmentFile segment : segments.values()) {
+            if (segment != segments.lastEntry().getValue()) {
+                segment.seal();
+            }
+        }
+        active = segments.isEmpty() ? newSegment(1) : segments.lastEntry().getValue();
+        log.info("Opened chunk text store at {} with {} segments and {} documents",
+                directory.toAbsolutePath(), segments.size(), pages.size());
+
+        if (Files.exists(directory.resolve(LEGACY_MIGRATED_MARKER))) {
+            legacyMigration.complete(null);
+        } else {
+            // Startup does not wait for it; until a document is moved its text is read from the database
+            Thread thread = new Thread(this::migrateLegacyContent, "chunk-text-migration");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Stores the chunks of a page, in chunk sequence order, replacing any earlier copy of the page.
+     * The page is on disk when this returns.
+     */
+    public void putPage(Long documentId, int pageNumber, List<String> chunks) throws IOException {
+        sync(appendPage(documentId, pageNumber, chunks));
+    }
+
+    /**
+     * Appends a page without waiting for it to reach the disk, returning the append's sequence
+     * number for {@link #sync}
+     */
+    private long appendPage(Long documentId, int pageNumber, List<String> chunks) throws IOException {
+        ByteBuffer block = SegmentFile.encode(documentId, pageNumber, chunks);
+        synchronized (this) {
+            BlockRef ref = append(block);
+            index(documentId, pageNumber, ref);
+            return appended;
+        }
+    }
+
+    /**
+     * Waits until every block up to the given append is on disk. One caller forces the open
+     * segment for every append made so far, so writers arriving meanwhile need no fsync of their own.
+     */
+    private void sync(long sequence) throws IOException {
+        if (!fsync) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (synced >= sequence) {
+                return;
+            }
+            long target;
+            SegmentFile segment;
+            synchronized (this) {
+                target = appended;
+                segment = active;
+            }
+            // Earlier segments were forced when they were sealed
+            segment.force();
+            synced = target;
+        }
+    }
+
+    /**
+     * The chunks of a page in chunk sequence order, or an empty list if the page is not stored
+     */
+    public List<String> readPage(Long documentId, int pageNumber) throws IOException {
+        // A compaction may move the block between the lookup and the read
+        for (int attempt = 0; attempt < 3; attempt++) {
+            BlockRef ref = pages.getOrDefault(documentId, Map.of()).get(pageNumber);
+            if (ref == null) {
+                return legacyPending() ? legacyChunks(documentId).getOrDefault(pageNumber, List.of()) : List.of();
+            }
+            SegmentFile segment = segments.get(ref.segment());
+            if (segment != null) {
+                return SegmentFile.decode(segment.read(ref.offset(), ref.length()));
+            }
+        }
+        throw new IOException("Block of page " + pageNumber + " of document " + documentId + " keeps moving");
+    }
+
+    /**
+     * The chunks of every stored page of a document, by page number
+     */
+    public SortedMap<Integer, List<String>> readDocument(Long documentId) throws IOException {
+        if (legacyPending() && !pages.containsKey(documentId)) {
+            SortedMap<Integer, List<String>> legacy = legacyChunks(documentId);
+            if (!legacy.isEmpty()) {
+                return legacy;
+            }
+        }
+        SortedMap<Integer, List<String>> document = new TreeMap<>();
+        for (Integer pageNumber : new ArrayList<>(pages.getOrDefault(documentId, Map.of()).keySet())) {
+            List<String> chunks = readPage(documentId, pageNumber);
+            if (!chunks.isEmpty()) {
+                document.put(pageNumber, chunks);
+            }
+        }
+        return document;
+    }
+
+    /**
+     * Sets the text of chunks loaded from the database, reading each of their pages once. The
+     * chunks' documents need not be loaded.
+     */
+    public void load(Collection<DocumentContent> chunks) throws IOException {
+        Map<Long, Map<Integer, List<DocumentContent>>> byPage = chunks.stream()
+                .collect(Collectors.groupingBy(chunk -> chunk.getDocument().getId(),
+                        Collectors.groupingBy(DocumentContent::getPageNumber)));
+        for (Map.Entry<Long, Map<Integer, List<DocumentContent>>> document : byPage.entrySet()) {
+            for (Map.Entry<Integer, List<DocumentContent>> page : document.getValue().entrySet()) {
+                List<String> texts = readPage(document.getKey(), page.getKey());
+                for (DocumentContent chunk : page.getValue()) {
+                    if (chunk.getChunkSequence() < texts.size()) {
+                        chunk.setContent(texts.get(chunk.getChunkSequence()));
+                    } else if (chunk.getLegacyContent() != null) {
+                        // Not moved out of the database yet
+                        chunk.setContent(chunk.getLegacyContent());
+                    } else {
+                        log.warn("No stored text for chunk {} of page {} of document {}",
+                                chunk.getChunkSequence(), page.getKey(), document.getKey());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes every page of a document; its blocks are reclaimed when their segments are compacted
+     */
+    public void deleteDocument(Long documentId) throws IOException {
+        if (!pages.containsKey(documentId)) {
+            return;
+        }
+        long sequence;
+        synchronized (this) {
+            append(SegmentFile.tombstone(documentId));
+            removeDocument(documentId);
+            sequence = appended;
+        }
+        sync(sequence);
+    }
+
+    /**
+     * Completes once chunk text left in the database by earlier versions has been moved into the store
+     */
+    CompletableFuture<Void> legacyMigration() {
+        return legacyMigration;
+    }
+
+    /**
+     * Copies the live blocks of mostly dead sealed segments into the open segment and deletes them
+     */
+    @Scheduled(fixedDelayString = "${storage.chunks.compact-interval-ms:60000}")
+    public void compact() throws IOException {
+        for (SegmentFile segment : new ArrayList<>(segments.values())) {
+            long live = liveBytes.get(segment.id()).get();
+            if (segment == currentSegment() || segment.size() == 0
+                    || live > segment.size() * (1 - compactDeadRatio)) {
+                continue;
+            }
+            compact(segment);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        closed = true;
+        for (SegmentFile segment : segments.values()) {
+            segment.close();
+        }
+        if (lockChannel != null) {
+            // Closing the channel releases its lock
+            lockChannel.close();
+            lockChannel = null;
+        }
+    }
+
+    /**
+     * Takes the store's lock file. Appends track offsets and the block index in memory, so a second
+     * instance writing to the same directory would overwrite this one's blocks.
+     */
+    private void lock() throws IOException {
+        FileChannel channel = FileChannel.open(directory.resolve(LOCK_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // Held by another store in this JVM
+            lock = null;
+        }
+        if (lock == null) {
+            channel.close();
+            throw new IOException("Chunk text store at " + directory.toAbsolutePath()
+                    + " is in use by another instance; storage.chunks.location must not be shared");
+        }
+        lockChannel = channel;
+    }
+
+    private void compact(SegmentFile segment) throws IOException {
+        long start = System.currentTimeMillis();
+        // Tombstones only matter while an older segment may still hold blocks of their documents
+        boolean olderSegments = segments.firstKey() < segment.id();
+        List<SegmentFile.Block> blocks = new ArrayList<>();
+        segment.forEachBlock(blocks::add);
+
+        int moved = 0;
+        long sequence = 0;
+        for (SegmentFile.Block block : blocks) {
+            BlockRef ref = new BlockRef(segment.id(), block.offset(), block.length());
+            if (block.isTombstone()) {
+                if (olderSegments) {
+                    synchronized (this) {
+                        append(segment.read(block.offset(), block.length()));
+                        sequence = appended;
+                    }
+                }
+                continue;
+            }
+            Map<Integer, BlockRef> document = pages.get(block.documentId());
+            if (document == null || !ref.equals(document.get(block.pageNumber()))) {
+                continue;
+            }
+            ByteBuffer bytes = segment.read(block.offset(), block.length());
+            synchronized (this) {
+                BlockRef copy = append(bytes);
+                sequence = appended;
+                if (document.replace(block.pageNumber(), ref, copy)) {
+                    liveBytes.get(ref.segment()).addAndGet(-ref.length());
+                    moved++;
+                } else {
+                    // Replaced or deleted while it was being copied
+                    liveBytes.get(copy.segment()).addAndGet(-copy.length());
+                }
+            }
+        }
+
+        // The copies must be on disk before the segment holding the originals is deleted
+        sync(sequence);
+        segments.remove(segment.id());
+        liveBytes.remove(segment.id());
+        segment.close();
+        Files.deleteIfExists(segment.path());
+        log.info("Compacted chunk text segment {}: moved {} of {} blocks in {} ms", segment.id(), moved,
+                blocks.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Appends a block to the open segment, starting a new segment when it is full. Callers hold
+     * the lock.
+     */
+    private BlockRef append(ByteBuffer block) throws IOException {
+        int length = block.remaining();
+        if (active.size() > 0 && active.size() + length > segmentSizeMb * 1024 * 1024) {
+            if (fsync) {
+                active.force();
+            }
+            active.seal();
+            active = newSegment(active.id() + 1);
+        }
+        long offset = active.append(block, false);
+        appended++;
+        return new BlockRef(active.id(), offset, length);
+    }
+
+    private synchronized SegmentFile currentSegment() {
+        return active;
+    }
+
+    private SegmentFile newSegment(int id) throws IOException {
+        SegmentFile segment = SegmentFile.create(id, directory.resolve(String.format("segment-%06d.dat", id)));
+        liveBytes.put(id, new AtomicLong());
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private void index(long documentId, int pageNumber, BlockRef ref) {
+        liveBytes.get(ref.segment()).addAndGet(ref.length());
+        BlockRef previous = pages.computeIfAbsent(documentId, id -> new ConcurrentHashMap<>()).put(pageNumber, ref);
+        if (previous != null) {
+            liveBytes.get(previous.segment()).addAndGet(-previous.length());
+        }
+    }
+
+    private void removeDocument(long documentId) {
+        Map<Integer, BlockRef> removed = pages.remove(documentId);
+        if (removed != null) {
+            removed.values().forEach(ref -> liveBytes.get(ref.segment()).addAndGet(-ref.length()));
+        }
+    }
+
+    /**
+     * Whether chunk text may still be held in the database, because moving it has not finished or failed
+     */
+    private boolean legacyPending() {
+        return !legacyMigration.isDone() || legacyMigration.isCompletedExceptionally();
+    }
+
+    /**
+     * Chunk text of a document still held in the database, by page number
+     */
+    private SortedMap<Integer, List<String>> legacyChunks(Long documentId) {
+        SortedMap<Integer, List<String>> byPage = new TreeMap<>();
+        Map<Integer, List<DocumentContent>> rows = contentRepository.findLegacyByDocumentId(documentId).stream()
+                .collect(Collectors.groupingBy(DocumentContent::getPageNumber));
+        for (Map.Entry<Integer, List<DocumentContent>> page : rows.entrySet()) {
+            int count = page.getValue().stream().mapToInt(DocumentContent::getChunkSequence).max().orElse(-1) + 1;
+            List<String> chunks = new ArrayList<>(Collections.nCopies(count, ""));
+            for (DocumentContent chunk : page.getValue()) {
+                chunks.set(chunk.getChunkSequence(), chunk.getLegacyContent());
+            }
+            byPage.put(page.getKey(), chunks);
+        }
+        return byPage;
+    }
+
+    /**
+     * Moves chunk text still held in the database, from before this store, into the store, one
+     * document at a time with one fsync per document. Runs once, in the background.
+     */
+    private void migrateLegacyContent() {
+        try {
+            List<Long> documentIds = contentRepository.findDocumentIdsWithLegacyContent();
+            if (!documentIds.isEmpty()) {
+                log.info("Moving the chunk text of {} documents out of the database", documentIds.size());
+            }
+            long start = System.currentTimeMillis();
+            for (Long documentId : documentIds) {
+                if (closed) {
+                    legacyMigration.cancel(false);
+                    return;
+                }
+                long sequence = 0;
+                for (Map.Entry<Integer, List<String>> page : legacyChunks(documentId).entrySet()) {
+                    sequence = appendPage(documentId, page.getKey(), page.getValue());
+                }
+                sync(sequence);
+                Integer cleared = transactionTemplate.execute(status -> contentRepository.clearLegacyContent(documentId));
+                if (cleared != null && cleared == 0) {
+                    // Deleted while it was being moved, so the pages just written are not needed
+                    deleteDocument(documentId);
+                }
+            }
+            Files.createFile(directory.resolve(LEGACY_MIGRATED_MARKER));
+            if (!documentIds.isEmpty()) {
+                log.info("Moved the chunk text of {} documents in {} ms", documentIds.size(),
+                        System.currentTimeMillis() - start);
+            }
+            legacyMigration.complete(null);
+        } catch (Exception e) {
+            // Retried at the next start; text not moved yet is still read from the database
+            log.error("Moving chunk text out of the database failed", e);
+            legacyMigration.completeExceptionally(e);
+        }
+    }
+}
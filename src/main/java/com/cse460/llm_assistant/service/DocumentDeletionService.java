@@ -0,0 +1,222 @@
+package com.cse460.llm_assistant.service;
+
+import com.cse460.llm_assistant.model.Document;
+import com.cse460.llm_assistant.repository.DocumentContentRepository;
+import com.cse460.llm_assistant.repository.DocumentImageRepository;
+import com.cse460.llm_assistant.repository.DocumentLshBandRepository;
+import com.cse460.llm_assistant.repository.DocumentPageSignatureRepository;
+import com.cse460.llm_assistant.repository.DocumentRepository;
+import com.cse460.llm_assistant.repository.EmbeddingOutboxRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Deletes documents from every store. The document's rows go at once, one set-based statement per
+ * table, and its image files are unlinked by the paths those rows held. The document is left
+ * behind as a DELETING tombstone; a background sweep then removes its chunks from Elasticsearch
+ * with a throttled delete-by-query, makes one pass over the image store for files no row recorded,
+ * drops its chunk text, and finally drops the tombstone.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentDeletionService {
+
+    public static final String DELETING = "DELETING";
+
+    private final DocumentRepository documentRepository;
+    private final DocumentContentRepository contentRepository;
+    private final DocumentImageRepository imageRepository;
+    private final EmbeddingOutboxRepository outboxRepository;
+    private final DocumentPageSignatureRepository pageSignatureRepository;
+    private final DocumentLshBandRepository bandRepository;
+    private final ImageStorageService imageStorageService;
+    private final SourcePdfStorageService sourcePdfStorageService;
+    private final ChunkTextStore chunkTextStore;
+    private final KeywordIndexService keywordIndexService;
+    private final ObjectProvider<EmbeddingIndexService> indexService;
+    private final DocumentStatusCountService statusCounts;
+    private final TransactionTemplate transactionTemplate;
+
+    // Tombstones whose leftover files this process has already looked for, so a sweep waiting on
+    // Elasticsearch does not list the image store again every time
+    private final Set<Long> scannedForFiles = ConcurrentHashMap.newKeySet();
+
+    // Chunks removed from Elasticsearch per second, so a large delete does not compete with indexing
+    @Value("${elasticsearch.delete.max-chunks-per-second:1000}")
+    private float maxChunksPerSecond = 1000;
+
+    /**
+     * Rows deleted for a document, none if it was already being deleted
+     */
+    public record Deletion(Long documentId, int chunks, int images, boolean alreadyDeleting) {
+    }
+
+    /**
+     * Deletes a document's rows and schedules the rest of its data for removal. Returns empty if
+     * there is no such document, and throws IllegalStateException while it is still processing.
+     */
+    public Optional<Deletion> delete(Long documentId) {
+        long start = System.currentTimeMillis();
+        List<String> imagePaths = new ArrayList<>();
+        Optional<Deletion> deletion = transactionTemplate.execute(status -> {
+            Optional<Document> found = documentRepository.findById(documentId);
+            if (found.isEmpty()) {
+                return Optional.empty();
+            }
+            Document document = found.get();
+            if ("PROCESSING".equals(document.getStatus())) {
+                throw new IllegalStateException("Document " + documentId + " is still processing");
+            }
+            if (DELETING.equals(document.getStatus())) {
+                return Optional.of(new Deletion(documentId, 0, 0, true));
+            }
+
+            statusCounts.transition(document.getStatus(), DELETING);
+            document.setStatus(DELETING);
+            // Frees the hash, so the same file can be uploaded again right away
+            document.setContentHash(null);
+            documentRepository.save(document);
+            imagePaths.addAll(imageRepository.findImagePathsByDocumentId(documentId));
+            return Optional.of(deleteRows(documentId));
+        });
+
+        if (deletion.isPresent() && !deletion.get().alreadyDeleting()) {
+            imageStorageService.deleteImageFiles(imagePaths);
+            EmbeddingIndexService index = indexService.getIfAvailable();
+            if (index != null) {
+                startIndexDeletion(documentId, index);
+            }
+            try {
+                keywordIndexService.deleteDocument(documentId);
+            } catch (UncheckedIOException e) {
+                log.warn("Failed to delete document {} from the keyword index: {}", documentId, e.getMessage());
+            }
+            log.info("Deleted {} chunks and {} images of document {} in {} ms", deletion.get().chunks(),
+                    deletion.get().images(), documentId, System.currentTimeMillis() - start);
+        }
+        return deletion;
+    }
+
+    /**
+     * Removes the indexed chunks and files of deleted documents, and drops the documents once
+     * Elasticsearch holds none of their chunks
+     */
+    @Scheduled(fixedDelayString = "${storage.deletion.sweep-interval-ms:10000}")
+    public void sweep() {
+        List<Document> deleting = documentRepository.findByStatus(DELETING);
+        if (deleting.isEmpty()) {
+            return;
+        }
+
+        // Files rendered after the rows were deleted, or left by a crash before they were unlinked
+        Set<Long> unscanned = deleting.stream()
+                .map(Document::getId)
+                .filter(id -> !scannedForFiles.contains(id))
+                .collect(Collectors.toSet());
+        int files = 0;
+        if (!unscanned.isEmpty()) {
+            try {
+                files = imageStorageService.deleteImagesOfDocuments(unscanned);
+                scannedForFiles.addAll(unscanned);
+            } catch (IOException e) {
+                log.warn("Failed to delete images of documents {}: {}", unscanned, e.getMessage());
+                return;
+            }
+        }
+
+        List<Long> finished = new ArrayList<>();
+        for (Document document : deleting) {
+            try {
+                sourcePdfStorageService.deleteSource(document);
+                chunkTextStore.deleteDocument(document.getId());
+            } catch (IOException e) {
+                log.warn("Failed to delete the source PDF or chunk text of document {}: {}",
+                        document.getId(), e.getMessage());
+                continue;
+            }
+            if (isRemovedFromIndex(document)) {
+                finished.add(document.getId());
+            }
+        }
+
+        if (!finished.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> {
+                // A drainer that claimed outbox entries before the delete may have written them back
+                finished.forEach(this::deleteRows);
+                documentRepository.deleteAllByIdInBatch(finished);
+                statusCounts.transition(DELETING, null, finished.size());
+            });
+            finished.forEach(scannedForFiles::remove);
+        }
+        log.info("Deletion sweep unlinked {} files; {} of {} deleted documents finished",
+                files, finished.size(), deleting.size());
+    }
+
+    private Deletion deleteRows(Long documentId) {
+        outboxRepository.bulkDeleteByDocumentId(documentId);
+        pageSignatureRepository.bulkDeleteByDocumentId(documentId);
+        bandRepository.bulkDeleteByDocumentId(documentId);
+        int images = imageRepository.bulkDeleteByDocumentId(documentId);
+        int chunks = contentRepository.bulkDeleteByDocumentId(documentId);
+        return new Deletion(documentId, chunks, images, false);
+    }
+
+    /**
+     * Whether Elasticsearch holds none of the document's chunks, starting a delete-by-query when
+     * it may still hold some and none is running
+     */
+    private boolean isRemovedFromIndex(Document document) {
+        EmbeddingIndexService index = indexService.getIfAvailable();
+        if (index == null) {
+            return true;
+        }
+        if (!index.isReady()) {
+            // A plain index being copied behind the alias may still bring the chunks back
+            return false;
+        }
+        try {
+            String taskId = document.getDeleteTaskId();
+            if (taskId != null) {
+                if (!index.isTaskCompleted(taskId)) {
+                    return false;
+                }
+                // Chunks indexed by a drain that was already running when the delete started survive it
+                if (index.countByDocumentId(document.getId()) == 0) {
+                    return true;
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Failed to check the chunks of document {} in Elasticsearch, will retry: {}",
+                    document.getId(), e.getMessage());
+            return false;
+        }
+        startIndexDeletion(document.getId(), index);
+        return false;
+    }
+
+    private void startIndexDeletion(Long documentId, EmbeddingIndexService index) {
+        try {
+            String taskId = index.deleteByDocumentId(documentId, maxChunksPerSecond);
+            transactionTemplate.executeWithoutResult(status -> documentRepository.updateDeleteTaskId(documentId, taskId));
+            log.debug("Started Elasticsearch task {} deleting the chunks of document {}", taskId, documentId);
+        } catch (Exception e) {
+            log.warn("Failed to start deleting the chunks of document {} from Elasticsearch, will retry: {}",
+                    documentId, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.cse460.llm_assistant.service;
+
+import com.cse460.llm_assistant.model.projection.DocumentSummaryView;
+import com.cse460.llm_assistant.repository.DocumentRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Lists documents newest first with keyset pagination. Each page ends with a cursor holding the
+ * (uploadedAt, id) of its last document, and the next page starts right after it, so a page
+ * costs the same however deep into the listing it is.
+ */
+@Service
+@RequiredArgsConstructor
+public class DocumentListingService {
+
+    // Bounds standing in for an open end of the date range
+    private static final LocalDateTime EARLIEST = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime LATEST = LocalDateTime.of(9999, 1, 1, 0, 0);
+
+    private final DocumentRepository documentRepository;
+
+    /**
+     * One page of documents, and the cursor of the next page or null if this is the last
+     */
+    public record DocumentPage(List<DocumentSummaryView> documents, String nextCursor) {
+    }
+
+    /**
+     * Lists documents uploaded in [from, to), optionally only those in one status. Throws
+     * IllegalArgumentException for a cursor this service did not produce.
+     */
+    public DocumentPage list(String status, LocalDateTime from, LocalDateTime to, String cursor, int size) {
+        LocalDateTime afterUploadedAt = to == null ? LATEST : to;
+        long afterId = Long.MIN_VALUE;
+        if (cursor != null) {
+            Cursor position = decode(cursor);
+            // A cursor past the end of the range still only moves forward
+            if (position.uploadedAt().isBefore(afterUploadedAt)) {
+                afterUploadedAt = position.uploadedAt();
+                afterId = position.id();
+            }
+        }
+        LocalDateTime earliest = from == null ? EARLIEST : from;
+
+        // One row more than the page shows whether there is a next page
+        PageRequest limit = PageRequest.of(0, size + 1);
+        List<DocumentSummaryView> rows = status == null
+                ? documentRepository.findPageBefore(earliest, afterUploadedAt, afterId, limit)
+                : documentRepository.findPageByStatusBefore(status, earliest, afterUploadedAt, afterId, limit);
+        if (rows.size() <= size) {
+            return new DocumentPage(rows, null);
+        }
+
+        List<DocumentSummaryView> page = rows.subList(0, size);
+        DocumentSummaryView last = page.get(size - 1);
+        return new DocumentPage(page, encode(new Cursor(last.getUploadedAt(), last.getId())));
+    }
+
+    record Cursor(LocalDateTime uploadedAt, long id) {
+    }
+
+    static String encode(Cursor cursor) {
+        String position = cursor.uploadedAt() + "_" + cursor.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Cursor decode(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = position.lastIndexOf('_');
+            return new Cursor(LocalDateTime.parse(position.substring(0, separator)),
+                    Long.parseLong(position.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | StringIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.cse460.llm_assistant.service;
+
+import com.cse460.llm_assistant.model.DocumentStatusCount;
+import com.cse460.llm_assistant.repository.DocumentRepository;
+import com.cse460.llm_assistant.repository.DocumentStatusCountRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Number of documents in each status, maintained incrementally: every status change adjusts the
+ * counters in the transaction that writes the document, so reading them never counts rows.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentStatusCountService {
+
+    public static final List<String> STATUSES = List.of("PROCESSING", "PROCESSED", "FAILED", DocumentDeletionService.DELETING);
+
+    private final DocumentStatusCountRepository countRepository;
+    private final DocumentRepository documentRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Moves count documents from one status to another; either may be null for a document that is
+     * being created or removed. Must run in the transaction that changes the documents.
+     */
+    public void transition(String from, String to, long count) {
+        if (from != null && from.equals(to)) {
+            return;
+        }
+        if (from != null) {
+            add(from, -count);
+        }
+        if (to != null) {
+            add(to, count);
+        }
+    }
+
+    public void transition(String from, String to) {
+        transition(from, to, 1);
+    }
+
+    /**
+     * Counts by status, in lifecycle order
+     */
+    public Map<String, Long> counts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        STATUSES.forEach(status -> counts.put(status, 0L));
+        for (DocumentStatusCount count : countRepository.findAll()) {
+            counts.put(count.getStatus(), count.getCount());
+        }
+        return counts;
+    }
+
+    /**
+     * Creates any missing counters, from one count of the existing documents, such as the first
+     * time the application starts against a database without them or after a status is added.
+     * Runs while the context starts, before the server accepts requests.
+     */
+    @PostConstruct
+    public void seed() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Set<String> existing = countRepository.findAll().stream()
+                        .map(DocumentStatusCount::getStatus)
+                        .collect(Collectors.toSet());
+                if (existing.containsAll(STATUSES)) {
+                    return;
+                }
+                Map<String, DocumentStatusCount> counters = new LinkedHashMap<>();
+                STATUSES.forEach(s -> counters.put(s, new DocumentStatusCount(s, 0)));
+                for (DocumentStatusCount count : documentRepository.countGroupedByStatus()) {
+                    counters.put(count.getStatus(), count);
+                }
+                counters.keySet().removeAll(existing);
+                countRepository.saveAll(counters.values());
+                log.info("Seeded document status counts: {}", counters.values());
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Another node seeded them first
+            log.debug("Document status counts were seeded concurrently: {}", e.getMessage());
+        }
+    }
+
+    private void add(String status, long delta) {
+        // A missing counter would silently stop counting its status
+        if (countRepository.add(status, delta) == 0) {
+            throw new IllegalStateException("No document count is kept for status " + status);
+        }
+    }
+}
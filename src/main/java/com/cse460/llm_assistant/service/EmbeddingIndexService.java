@@ -0,0 +1,382 @@
+package com.cse460.llm_assistant.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.Conflicts;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch.core.DeleteByQueryResponse;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.elasticsearch.indices.GetAliasResponse;
+import co.elastic.clients.elasticsearch.indices.RolloverResponse;
+import com.cse460.llm_assistant.model.EmbeddingDocument;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Manages the Elasticsearch indices behind the embedding alias. Chunks are written and searched
+ * through the alias only; the backing indices are named {alias}-v{generation}-{sequence}, get their
+ * shard count, replicas, analysis and mapping from an index template, and roll over to the next
+ * sequence once a primary shard grows past the configured size. A re-index builds the next
+ * generation beside the live one and then moves the alias to it in one atomic update.
+ */
+@Service
+@ConditionalOnProperty(name = "elasticsearch.enabled", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class EmbeddingIndexService {
+
+    private static final Pattern GENERATION = Pattern.compile("-v(\\d+)-\\d+$");
+
+    private final ElasticsearchClient client;
+    private final ElasticsearchOperations operations;
+
+    @Value("${elasticsearch.index.shards:1}")
+    private int shards = 1;
+
+    @Value("${elasticsearch.index.replicas:0}")
+    private int replicas = 0;
+
+    @Value("${elasticsearch.index.rollover.max-primary-shard-size:25gb}")
+    private String maxPrimaryShardSize = "25gb";
+
+    // Also roll over after this many documents; 0 rolls over on size alone
+    @Value("${elasticsearch.index.rollover.max-docs:0}")
+    private long maxDocs;
+
+    private volatile boolean ready;
+
+    // Whether the alias spans more than one backing index, so a chunk may already be held by one
+    // that is no longer the write index
+    private volatile boolean rolledOver;
+
+    // Copy of a plain index left by older versions into the first generation, running in Elasticsearch
+    private String migrationTaskId;
+    private String migrationTarget;
+
+    public String alias() {
+        return operations.getIndexCoordinatesFor(EmbeddingDocument.class).getIndexName();
+    }
+
+    /**
+     * Whether the alias and its template are known to exist, so writes through the alias cannot
+     * auto-create an unmapped index
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Creates the template and the first generation behind the alias unless the alias already exists.
+     * A plain index left under the alias name by older versions is copied into the first generation
+     * by a task running in Elasticsearch, and replaced by the alias once a later call finds the copy
+     * complete; the index stays not ready until then, and callers retry.
+     */
+    public synchronized void ensureIndex() throws IOException {
+        if (ready) {
+            return;
+        }
+        String alias = alias();
+        if (migrationTaskId != null) {
+            finishMigration(alias);
+            return;
+        }
+        putTemplate();
+        if (!client.indices().existsAlias(a -> a.name(alias)).value()) {
+            String first = indexName(alias, nextGeneration());
+            if (client.indices().exists(e -> e.index(alias)).value()) {
+                client.indices().create(c -> c.index(first));
+                try {
+                    migrationTaskId = client.reindex(r -> r
+                            .source(s -> s.index(alias))
+                            .dest(d -> d.index(first))
+                            .waitForCompletion(false))
+                            .task();
+                } catch (IOException | RuntimeException e) {
+                    // Otherwise every retry would leave another empty generation behind
+                    client.indices().delete(d -> d.index(first));
+                    throw e;
+                }
+                migrationTarget = first;
+                log.info("Moving index {} into {} behind an alias in task {}", alias, first, migrationTaskId);
+                return;
+            }
+            client.indices().create(c -> c.index(first).aliases(alias, a -> a.isWriteIndex(true)));
+            log.info("Created index {} behind alias {}", first, alias);
+        } else {
+            // Indices created before chunks recorded their model have no mapping for it yet
+            client.indices().putMapping(m -> m.index(alias).properties("modelId", p -> p.keyword(k -> k)));
+        }
+        updateRolledOver();
+        ready = true;
+    }
+
+    /**
+     * Replaces the plain index by the alias once its copy is complete. A copy that lost documents,
+     * as when Elasticsearch restarted and forgot the task, is dropped and started again.
+     */
+    private void finishMigration(String alias) throws IOException {
+        if (!isTaskCompleted(migrationTaskId)) {
+            return;
+        }
+        String target = migrationTarget;
+        migrationTaskId = null;
+        migrationTarget = null;
+        client.indices().refresh(r -> r.index(alias, target));
+        long expected = client.count(c -> c.index(alias)).count();
+        long copied = client.count(c -> c.index(target)).count();
+        if (copied != expected) {
+            log.warn("Copy of {} into {} holds {} of {} documents, starting it again", alias, target, copied, expected);
+            client.indices().delete(d -> d.index(target));
+            return;
+        }
+        client.indices().updateAliases(u -> u
+                .actions(a -> a.removeIndex(r -> r.index(alias)))
+                .actions(a -> a.add(add -> add.index(target).alias(alias).isWriteIndex(true))));
+        log.info("Moved {} documents of index {} into {} behind an alias", copied, alias, target);
+        rolledOver = false;
+        ready = true;
+    }
+
+    @Scheduled(fixedDelayString = "${elasticsearch.index.rollover.check-interval-ms:600000}")
+    public void checkRollover() {
+        try {
+            ensureIndex();
+            if (!ready) {
+                return;
+            }
+            rollover(false);
+        } catch (Exception e) {
+            log.warn("Rollover check for {} failed: {}", alias(), e.getMessage());
+        }
+    }
+
+    /**
+     * Rolls the alias over to a new backing index, when it has outgrown the size limit or
+     * unconditionally if forced
+     */
+    public RolloverResponse rollover(boolean force) throws IOException {
+        RolloverResponse response = client.indices().rollover(r -> {
+            r.alias(alias());
+            if (!force) {
+                r.conditions(c -> {
+                    c.maxPrimaryShardSize(maxPrimaryShardSize);
+                    if (maxDocs > 0) {
+                        c.maxDocs(maxDocs);
+                    }
+                    return c;
+                });
+            }
+            return r;
+        });
+        if (response.rolledOver()) {
+            rolledOver = true;
+            log.info("Rolled {} over from {} to {}", alias(), response.oldIndex(), response.newIndex());
+        }
+        return response;
+    }
+
+    /**
+     * Creates the next generation's first index, outside the alias and tuned for bulk loading
+     */
+    public String createNextGeneration() throws IOException {
+        String index = indexName(alias(), nextGeneration());
+        client.indices().create(c -> c
+                .index(index)
+                .settings(s -> s.refreshInterval(t -> t.time("-1")).numberOfReplicas("0")));
+        return index;
+    }
+
+    /**
+     * Restores the refresh interval and replicas of a bulk-loaded generation and makes its documents searchable
+     */
+    public void finishGeneration(String index) throws IOException {
+        client.indices().putSettings(p -> p
+                .index(index)
+                .settings(s -> s.refreshInterval(t -> t.time("1s")).numberOfReplicas(String.valueOf(replicas))));
+        client.indices().refresh(r -> r.index(index));
+    }
+
+    /**
+     * Moves the alias to the index in one atomic update, making it the write index, and returns the
+     * indices the alias pointed to before
+     */
+    public Set<String> swapAlias(String index) throws IOException {
+        String alias = alias();
+        Set<String> previous = client.indices().getAlias(a -> a.name(alias)).result().keySet();
+        client.indices().updateAliases(u -> {
+            for (String old : previous) {
+                u.actions(a -> a.remove(r -> r.index(old).alias(alias)));
+            }
+            return u.actions(a -> a.add(add -> add.index(index).alias(alias).isWriteIndex(true)));
+        });
+        rolledOver = false;
+        log.info("Moved alias {} from {} to {}", alias, previous, index);
+        return previous;
+    }
+
+    public void deleteIndices(Collection<String> indices) throws IOException {
+        if (!indices.isEmpty()) {
+            client.indices().delete(d -> d.index(new ArrayList<>(indices)));
+            log.info("Deleted indices {}", indices);
+        }
+    }
+
+    /**
+     * The backing index holding each of the given chunk ids, for those found. Through the alias a
+     * chunk is always written to the write index, so after a rollover a chunk written again, as
+     * when an outbox lease runs out or a re-index catches up, would leave its earlier copy behind
+     * in an older index and show up twice in searches; such writes go to the index found here
+     * instead. Empty while the alias has a single backing index.
+     */
+    public Map<String, String> locate(Collection<String> ids) throws IOException {
+        if (!rolledOver || ids.isEmpty()) {
+            return Map.of();
+        }
+        SearchResponse<Void> response = client.search(s -> s
+                .index(alias())
+                .query(q -> q.ids(i -> i.values(new ArrayList<>(ids))))
+                .source(src -> src.fetch(false))
+                .size(ids.size()), Void.class);
+        Map<String, String> indices = new HashMap<>();
+        for (Hit<Void> hit : response.hits().hits()) {
+            indices.put(hit.id(), hit.index());
+        }
+        return indices;
+    }
+
+    /**
+     * Starts removing a document's chunks from every index generation, at most maxPerSecond chunks
+     * a second, and returns the id of the task doing it. A generation still being built by a
+     * re-index is not behind the alias yet, so deleting through the alias alone would let the
+     * chunks come back when the alias moves to it.
+     */
+    public String deleteByDocumentId(Long documentId, float maxPerSecond) throws IOException {
+        refreshAllGenerations();
+        DeleteByQueryResponse response = client.deleteByQuery(d -> d
+                .index(allGenerations())
+                .query(q -> q.term(t -> t.field("documentId").value(documentId)))
+                .conflicts(Conflicts.Proceed)
+                .requestsPerSecond(maxPerSecond)
+                .allowNoIndices(true)
+                .ignoreUnavailable(true)
+                .waitForCompletion(false));
+        return response.task();
+    }
+
+    /**
+     * Whether a task has finished; a task Elasticsearch no longer knows of has finished long ago
+     */
+    public boolean isTaskCompleted(String taskId) throws IOException {
+        try {
+            return client.tasks().get(g -> g.taskId(taskId)).completed();
+        } catch (ElasticsearchException e) {
+            if (e.status() == 404) {
+                return true;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Chunks of a document in any index generation, searchable or not
+     */
+    public long countByDocumentId(Long documentId) throws IOException {
+        refreshAllGenerations();
+        return client.count(c -> c
+                .index(allGenerations())
+                .query(q -> q.term(t -> t.field("documentId").value(documentId)))
+                .allowNoIndices(true)
+                .ignoreUnavailable(true))
+                .count();
+    }
+
+    public Map<String, Object> status() throws IOException {
+        String alias = alias();
+        GetAliasResponse aliases = client.indices().getAlias(a -> a.name(alias));
+        String writeIndex = aliases.result().entrySet().stream()
+                .filter(entry -> Boolean.TRUE.equals(entry.getValue().aliases().get(alias).isWriteIndex()))
+                .map(Map.Entry::getKey)
+                .findFirst()
+                .orElse(null);
+
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("alias", alias);
+        status.put("writeIndex", writeIndex);
+        status.put("generation", writeIndex == null ? null : generationOf(writeIndex));
+        status.put("aliasIndices", new TreeSet<>(aliases.result().keySet()));
+        status.put("allIndices", allIndices());
+        return status;
+    }
+
+    private void updateRolledOver() throws IOException {
+        rolledOver = client.indices().getAlias(a -> a.name(alias())).result().size() > 1;
+    }
+
+    void putTemplate() throws IOException {
+        String alias = alias();
+        IndexOperations indexOps = operations.indexOps(EmbeddingDocument.class);
+        String settings = indexOps.createSettings().toJson();
+        String mapping = indexOps.createMapping().toJson();
+        client.indices().putIndexTemplate(t -> t
+                .name(alias + "-template")
+                .indexPatterns(alias + "-v*")
+                .template(template -> template
+                        .settings(s -> s
+                                .withJson(new StringReader(settings))
+                                .numberOfShards(String.valueOf(shards))
+                                .numberOfReplicas(String.valueOf(replicas)))
+                        .mappings(m -> m.withJson(new StringReader(mapping)))));
+    }
+
+    /**
+     * The alias and every generation index, including one a re-index is building and ones kept
+     * after a swap
+     */
+    private List<String> allGenerations() {
+        String alias = alias();
+        return List.of(alias, alias + "-v*");
+    }
+
+    /**
+     * Makes chunks bulk-loaded into a generation with refreshes turned off visible to queries
+     */
+    private void refreshAllGenerations() throws IOException {
+        client.indices().refresh(r -> r.index(allGenerations()).allowNoIndices(true).ignoreUnavailable(true));
+    }
+
+    private int nextGeneration() throws IOException {
+        return allIndices().stream().mapToInt(EmbeddingIndexService::generationOf).max().orElse(0) + 1;
+    }
+
+    private List<String> allIndices() throws IOException {
+        return new ArrayList<>(new TreeSet<>(client.indices().get(g -> g.index(alias() + "-v*")).result().keySet()));
+    }
+
+    static String indexName(String alias, int generation) {
+        return alias + "-v" + generation + "-000001";
+    }
+
+    static int generationOf(String index) {
+        Matcher matcher = GENERATION.matcher(index);
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : 0;
+    }
+}
@@ -0,0 +1,243 @@
+package com.cse460.llm_assistant.service;
+
+import com.cse460.llm_assistant.model.DocumentContent;
+import com.cse460.llm_assistant.model.EmbeddingOutbox;
+import com.cse460.llm_assistant.model.projection.OutboxStatusCount;
+import com.cse460.llm_assistant.repository.DocumentContentRepository;
+import com.cse460.llm_assistant.repository.EmbeddingOutboxRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Embeds and indexes stored chunks in the background. Ingest records one outbox entry per chunk
+ * in the transaction that stores the chunk; the drainer claims due entries in batches, embeds
+ * them in one model call, bulk-indexes them and retries failures with exponential backoff.
+ * Entries are deleted once their chunk is indexed, so the outbox only holds outstanding work.
+ */
+@Service
+@ConditionalOnExpression("${embedding.enabled:${elasticsearch.enabled:true}}")
+@RequiredArgsConstructor
+@Slf4j
+public class EmbeddingOutboxService {
+
+    public static final String PENDING = "PENDING";
+    public static final String FAILED = "FAILED";
+
+    private final EmbeddingOutboxRepository outboxRepository;
+    private final DocumentContentRepository contentRepository;
+    private final ChunkTextStore chunkTextStore;
+    private final EmbeddingService embeddingService;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectProvider<EmbeddingIndexService> indexService;
+
+    @Value("${embedding.outbox.batch-size:32}")
+    private int batchSize = 32;
+
+    // Attempts before an entry is marked FAILED
+    @Value("${embedding.outbox.max-attempts:8}")
+    private int maxAttempts = 8;
+
+    @Value("${embedding.outbox.backoff-ms:1000}")
+    private long backoffMillis = 1000;
+
+    @Value("${embedding.outbox.max-backoff-ms:300000}")
+    private long maxBackoffMillis = 300000;
+
+    // How long a claimed batch is hidden from other drainers; a crashed drainer's batch is retried after it
+    @Value("${embedding.outbox.lease-ms:120000}")
+    private long leaseMillis = 120000;
+
+    /**
+     * Chunk counts of a document by indexing status
+     */
+    public record IndexStatus(long pending, long indexed, long failed) {
+    }
+
+    /**
+     * Records pending entries for newly stored chunks. Call inside the transaction that stores them.
+     */
+    public void enqueue(List<DocumentContent> contents) {
+        enqueue(contents, null);
+    }
+
+    /**
+     * Records pending entries for newly stored chunks, each with the chunk of identical text whose
+     * vector it may copy, or null. Call inside the transaction that stores them.
+     */
+    public void enqueue(List<DocumentContent> contents, List<Long> sourceContentIds) {
+        LocalDateTime now = LocalDateTime.now();
+        List<EmbeddingOutbox> entries = new ArrayList<>(contents.size());
+        for (int i = 0; i < contents.size(); i++) {
+            DocumentContent content = contents.get(i);
+            entries.add(EmbeddingOutbox.builder()
+                    .documentId(content.getDocument().getId())
+                    .contentId(content.getId())
+                    .sourceContentId(sourceContentIds == null ? null : sourceContentIds.get(i))
+                    .status(PENDING)
+                    .nextAttemptAt(now)
+                    .createdAt(now)
+                    .build());
+        }
+        outboxRepository.saveAll(entries);
+    }
+
+    @Scheduled(fixedDelayString = "${embedding.outbox.poll-interval-ms:1000}")
+    public void drain() {
+        // Writing through the alias before it exists would auto-create an unmapped index under its name
+        EmbeddingIndexService index = indexService.getIfAvailable();
+        if (index != null && !index.isReady()) {
+            try {
+                index.ensureIndex();
+            } catch (Exception e) {
+                log.debug("Embedding index is not available yet: {}", e.getMessage());
+                return;
+            }
+            // A plain index from an older version is still being copied behind the alias
+            if (!index.isReady()) {
+                return;
+            }
+        }
+
+        int claimed;
+        do {
+            claimed = drainBatch();
+        } while (claimed == batchSize);
+    }
+
+    /**
+     * Claims, embeds and indexes one batch of due entries, returning how many were claimed
+     */
+    int drainBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<EmbeddingOutbox> batch = transactionTemplate.execute(status -> {
+            List<EmbeddingOutbox> due = outboxRepository.findDue(now, PageRequest.of(0, batchSize));
+            for (EmbeddingOutbox entry : due) {
+                entry.setAttempts(entry.getAttempts() + 1);
+                entry.setNextAttemptAt(now.plus(Duration.ofMillis(leaseMillis)));
+            }
+            return outboxRepository.saveAll(due);
+        });
+        if (batch == null || batch.isEmpty()) {
+            return 0;
+        }
+        int claimed = batch.size();
+
+        Map<Long, DocumentContent> chunks = contentRepository
+                .findAllWithDocumentByIdIn(batch.stream().map(EmbeddingOutbox::getContentId).toList())
+                .stream()
+                .collect(Collectors.toMap(DocumentContent::getId, Function.identity()));
+
+        try {
+            chunkTextStore.load(chunks.values());
+            Set<Long> rejected = embeddingService.indexChunks(new ArrayList<>(chunks.values()), sourceEmbeddingIds(batch));
+            complete(batch, chunks, rejected);
+        } catch (Exception e) {
+            log.warn("Indexing a batch of {} chunks failed, will retry: {}", batch.size(), e.getMessage());
+            transactionTemplate.executeWithoutResult(status -> {
+                for (EmbeddingOutbox entry : batch) {
+                    retryLater(entry, e.getMessage());
+                }
+                outboxRepository.saveAll(batch);
+            });
+        }
+        return claimed;
+    }
+
+    /**
+     * Elasticsearch ids of the source chunks whose vectors the batch may copy, keyed by chunk id
+     */
+    private Map<Long, String> sourceEmbeddingIds(List<EmbeddingOutbox> batch) {
+        Map<Long, Long> sourceIds = new HashMap<>();
+        for (EmbeddingOutbox entry : batch) {
+            if (entry.getSourceContentId() != null) {
+                sourceIds.put(entry.getContentId(), entry.getSourceContentId());
+            }
+        }
+        if (sourceIds.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<Long, String> embeddingIds = new HashMap<>();
+        for (DocumentContent source : contentRepository.findAllWithDocumentByIdIn(sourceIds.values())) {
+            embeddingIds.put(source.getId(), EmbeddingService.embeddingId(
+                    source.getDocument().getId(), source.getPageNumber(), source.getChunkSequence()));
+        }
+        Map<Long, String> byChunk = new HashMap<>();
+        sourceIds.forEach((contentId, sourceId) -> {
+            if (embeddingIds.containsKey(sourceId)) {
+                byChunk.put(contentId, embeddingIds.get(sourceId));
+            }
+        });
+        return byChunk;
+    }
+
+    /**
+     * Counts of a document's chunks by indexing status. Indexed chunks have no outbox entry,
+     * so they are the chunks with neither a pending nor a failed one.
+     */
+    public IndexStatus indexStatus(Long documentId) {
+        long pending = 0;
+        long failed = 0;
+        for (OutboxStatusCount count : outboxRepository.countByStatus(documentId)) {
+            if (PENDING.equals(count.getStatus())) {
+                pending = count.getCount();
+            } else if (FAILED.equals(count.getStatus())) {
+                failed = count.getCount();
+            }
+        }
+        long indexed = Math.max(0, contentRepository.countByDocumentId(documentId) - pending - failed);
+        return new IndexStatus(pending, indexed, failed);
+    }
+
+    private void complete(List<EmbeddingOutbox> batch, Map<Long, DocumentContent> chunks, Set<Long> rejected) {
+        List<EmbeddingOutbox> done = new ArrayList<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            for (EmbeddingOutbox entry : batch) {
+                if (rejected.contains(entry.getContentId()) && chunks.containsKey(entry.getContentId())) {
+                    retryLater(entry, "Rejected by Elasticsearch");
+                } else {
+                    // Indexed, or the chunk was deleted after it was queued and there is nothing left to index
+                    done.add(entry);
+                }
+            }
+            outboxRepository.deleteAll(done);
+            batch.removeAll(done);
+            outboxRepository.saveAll(batch);
+        });
+        log.debug("Indexed {} chunks, {} rejected", done.size(), batch.size());
+    }
+
+    private void retryLater(EmbeddingOutbox entry, String error) {
+        entry.setLastError(error == null ? null : error.substring(0, Math.min(error.length(), 1000)));
+        if (entry.getAttempts() >= maxAttempts) {
+            entry.setStatus(FAILED);
+            log.error("Giving up on indexing chunk {} of document {} after {} attempts: {}",
+                    entry.getContentId(), entry.getDocumentId(), entry.getAttempts(), error);
+            return;
+        }
+        entry.setNextAttemptAt(LocalDateTime.now().plus(Duration.ofMillis(backoffMillis(entry.getAttempts()))));
+    }
+
+    // Exponential backoff from the first retry, capped
+    long backoffMillis(int attempts) {
+        int doublings = Math.min(Math.max(attempts - 1, 0), 30);
+        return Math.min(maxBackoffMillis, backoffMillis << doublings);
+    }
+}
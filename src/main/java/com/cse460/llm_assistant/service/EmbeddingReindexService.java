@@ -0,0 +1,174 @@
+package com.cse460.llm_assistant.service;
+
+import com.cse460.llm_assistant.model.DocumentContent;
+import com.cse460.llm_assistant.repository.DocumentContentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Blue/green rebuild of the embedding index. Every stored chunk is re-embedded with the current
+ * model into a new index generation at a throttled rate, while the live generation keeps serving
+ * searches and ingest through the alias. The alias then moves to the new generation atomically,
+ * and the chunks of documents finished during the copy, which were indexed into the previous
+ * generation, are copied again through the alias.
+ */
+@Service
+@ConditionalOnProperty(name = "elasticsearch.enabled", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class EmbeddingReindexService {
+
+    private final EmbeddingIndexService indexService;
+    private final EmbeddingService embeddingService;
+    private final DocumentContentRepository contentRepository;
+    private final ChunkTextStore chunkTextStore;
+    private final ElasticsearchOperations operations;
+
+    @Value("${elasticsearch.reindex.batch-size:128}")
+    private int batchSize = 128;
+
+    // Caps embedding and bulk load so the re-index does not starve ingest or search; 0 is unthrottled
+    @Value("${elasticsearch.reindex.max-chunks-per-second:200}")
+    private double maxChunksPerSecond = 200;
+
+    // The previous generation is kept by default, so the alias can be moved back to it
+    @Value("${elasticsearch.reindex.delete-previous:false}")
+    private boolean deletePrevious;
+
+    // IDLE, RUNNING, COMPLETE or FAILED
+    private volatile String status = "IDLE";
+    private volatile String targetIndex;
+    private volatile long processed;
+    private volatile long total;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile String error;
+
+    /**
+     * Starts a re-index in the background, unless one is already running
+     */
+    public synchronized boolean start() {
+        if ("RUNNING".equals(status)) {
+            return false;
+        }
+        status = "RUNNING";
+        targetIndex = null;
+        processed = 0;
+        total = 0;
+        startedAt = LocalDateTime.now();
+        finishedAt = null;
+        error = null;
+
+        Thread thread = new Thread(this::reindex, "reindex");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    void reindex() {
+        try {
+            indexService.ensureIndex();
+            if (!indexService.isReady()) {
+                throw new IllegalStateException("Index " + indexService.alias() + " is still being moved behind its alias");
+            }
+            String index = indexService.createNextGeneration();
+            targetIndex = index;
+            total = contentRepository.count();
+            log.info("Re-indexing {} chunks into {}", total, index);
+
+            // The chunks of documents finished before this are visible to every batch of the copy,
+            // whatever order their ids were committed in
+            LocalDateTime since = LocalDateTime.now();
+            IndexCoordinates target = IndexCoordinates.of(index);
+            copy(afterId -> contentRepository.findWithDocumentByIdGreaterThan(afterId, PageRequest.of(0, batchSize)),
+                    batch -> operations.save(embeddingService.toEmbeddingDocuments(batch), target));
+            indexService.finishGeneration(index);
+            Set<String> previous = indexService.swapAlias(index);
+
+            // Chunks of documents finished since were indexed into the previous generation; they
+            // go through the alias, which routes each to the index holding it if the copy did
+            long caughtUp = copy(afterId -> contentRepository.findWithDocumentProcessedSince(since, afterId,
+                    PageRequest.of(0, batchSize)), this::catchUp);
+            log.info("Caught up {} chunks of documents processed during the re-index", caughtUp);
+            if (deletePrevious) {
+                indexService.deleteIndices(previous);
+            }
+            status = "COMPLETE";
+            log.info("Re-indexed {} chunks into {}", processed, index);
+        } catch (Exception e) {
+            log.error("Re-index into {} failed: {}", targetIndex, e.getMessage(), e);
+            error = e.getMessage();
+            status = "FAILED";
+        } finally {
+            finishedAt = LocalDateTime.now();
+        }
+    }
+
+    /**
+     * Writes the chunks of a keyset-paginated query in id order at the throttled rate, returning how
+     * many were written
+     */
+    private long copy(Function<Long, List<DocumentContent>> pages, BatchWriter writer)
+            throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        long copied = 0;
+        long afterId = 0;
+        while (true) {
+            List<DocumentContent> batch = pages.apply(afterId);
+            if (batch.isEmpty()) {
+                return copied;
+            }
+            chunkTextStore.load(batch);
+            writer.write(batch);
+            afterId = batch.get(batch.size() - 1).getId();
+            copied += batch.size();
+            processed += batch.size();
+
+            if (maxChunksPerSecond > 0) {
+                long waitNanos = start + (long) (copied / maxChunksPerSecond * 1e9) - System.nanoTime();
+                if (waitNanos > 0) {
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
+                }
+            }
+        }
+    }
+
+    private void catchUp(List<DocumentContent> batch) throws IOException {
+        Set<Long> rejected = embeddingService.indexChunks(batch);
+        if (!rejected.isEmpty()) {
+            throw new IOException("Elasticsearch rejected " + rejected.size() + " chunks caught up after the swap");
+        }
+    }
+
+    @FunctionalInterface
+    private interface BatchWriter {
+        void write(List<DocumentContent> batch) throws IOException;
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("status", status);
+        response.put("targetIndex", targetIndex);
+        response.put("processed", processed);
+        response.put("total", total);
+        response.put("startedAt", startedAt);
+        response.put("finishedAt", finishedAt);
+        response.put("error", error);
+        return response;
+    }
+}
@@ -1,95 +1,292 @@
 package com.cse460.llm_assistant.service;
 
+import com.cse460.llm_assistant.jfr.ElasticsearchRequestEvent;
+import com.cse460.llm_assistant.jfr.EmbeddingBatchEvent;
 import com.cse460.llm_assistant.model.Document;
 import com.cse460.llm_assistant.model.DocumentContent;
 import com.cse460.llm_assistant.model.EmbeddingDocument;
-import com.cse460.llm_assistant.repository.DocumentContentRepository;
 import com.cse460.llm_assistant.repository.EmbeddingRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import dev.langchain4j.data.embedding.Embedding;
-import dev.langchain4j.model.embedding.AllMiniLmL6V2EmbeddingModel;
+import dev.langchain4j.data.segment.TextSegment;
+import com.cse460.llm_assistant.service.embedding.EmbeddingModelType;
 import dev.langchain4j.model.embedding.EmbeddingModel;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.data.elasticsearch.BulkFailureException;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 @Service
+@ConditionalOnExpression("${embedding.enabled:${elasticsearch.enabled:true}}")
 @RequiredArgsConstructor
 @Slf4j
 public class EmbeddingService {
 
-    private final DocumentContentRepository contentRepository;
     private final EmbeddingRepository embeddingRepository;
+    private final IngestMetrics metrics;
+    // Only needed to write into a backing index other than the alias, which takes the cluster
+    private final ObjectProvider<ElasticsearchOperations> operations;
+    private final ObjectProvider<EmbeddingIndexService> indexService;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    // Create embedding model
-    private final EmbeddingModel embeddingModel = new AllMiniLmL6V2EmbeddingModel();
-
-    public void processDocumentEmbeddings(Document document) {
-        log.info("Processing embeddings for document: {}", document.getId());
-
-        // First, delete any existing embeddings for this document
-        embeddingRepository.deleteByDocumentId(document.getId());
-
-        // Get all content chunks for the document
-        List<DocumentContent> contents = contentRepository.findByDocumentIdOrderByPageNumberAscChunkSequenceAsc(document.getId());
-
-        // Process each content chunk
-        for (DocumentContent content : contents) {
-            try {
-                // Generate embedding for the content
-                Embedding embedding = embeddingModel.embed(content.getContent()).content();
-
-                // Create metadata
-                Map<String, Object> metadata = new HashMap<>();
-                metadata.put("filename", document.getFilename());
-                metadata.put("title", document.getTitle());
-                metadata.put("page", content.getPageNumber());
-                metadata.put("chunk", content.getChunkSequence());
-
-                // Create embedding document
-                EmbeddingDocument embeddingDoc = EmbeddingDocument.builder()
-                        .documentId(document.getId())
-                        .pageNumber(content.getPageNumber())
-                        .chunkSequence(content.getChunkSequence())
-                        .content(content.getContent())
-                        .embedding(embedding.vectorAsList())
-                        .metadata(objectMapper.writeValueAsString(metadata))
-                        .build();
-
-                // Save to Elasticsearch
-                embeddingRepository.save(embeddingDoc);
-
-                log.debug("Saved embedding for document: {}, page: {}, chunk: {}",
-                        document.getId(), content.getPageNumber(), content.getChunkSequence());
-
-            } catch (Exception e) {
-                log.error("Error processing embedding for document: {}, page: {}, chunk: {}",
-                        document.getId(), content.getPageNumber(), content.getChunkSequence(), e);
+    // all-minilm-l6-v2, or all-minilm-l6-v2-q for the int8-quantized variant
+    @Value("${embedding.model:all-minilm-l6-v2}")
+    private String modelName = EmbeddingModelType.ALL_MINILM_L6_V2.id();
+
+    // Loaded on first use or by the warm-up, so context startup does not wait for the ONNX model
+    private volatile EmbeddingModel embeddingModel;
+
+    /**
+     * Embeds the chunks in one model call and bulk-indexes them. Each chunk is indexed under an id
+     * derived from its position, and a chunk indexed before is written to the backing index that
+     * already holds it, so indexing it again overwrites rather than duplicates it even after the
+     * alias rolled over. Returns the ids of the chunks Elasticsearch rejected; any other failure
+     * is thrown.
+     */
+    public Set<Long> indexChunks(List<DocumentContent> chunks) throws IOException {
+        return indexChunks(chunks, Map.of());
+    }
+
+    /**
+     * Like {@link #indexChunks(List)}, copying the vector of an already indexed chunk with the same
+     * text where one is given, keyed by chunk id, instead of embedding the chunk again
+     */
+    public Set<Long> indexChunks(List<DocumentContent> chunks, Map<Long, String> sourceEmbeddingIds)
+            throws IOException {
+        if (chunks.isEmpty()) {
+            return Set.of();
+        }
+
+        List<EmbeddingDocument> embeddingDocs = toEmbeddingDocuments(chunks, findVectors(chunks, sourceEmbeddingIds));
+        Map<String, Long> contentIds = new HashMap<>();
+        for (DocumentContent chunk : chunks) {
+            contentIds.put(embeddingId(chunk.getDocument().getId(), chunk.getPageNumber(), chunk.getChunkSequence()),
+                    chunk.getId());
+        }
+
+        // Chunks already held by an index other than the write index are written to it
+        EmbeddingIndexService index = indexService.getIfAvailable();
+        Map<String, String> located = index == null
+                ? Map.of()
+                : index.locate(embeddingDocs.stream().map(EmbeddingDocument::getId).toList());
+        List<EmbeddingDocument> throughAlias = new ArrayList<>();
+        Map<String, List<EmbeddingDocument>> byIndex = new HashMap<>();
+        for (EmbeddingDocument embeddingDoc : embeddingDocs) {
+            String backingIndex = located.get(embeddingDoc.getId());
+            if (backingIndex == null) {
+                throughAlias.add(embeddingDoc);
+            } else {
+                byIndex.computeIfAbsent(backingIndex, i -> new ArrayList<>()).add(embeddingDoc);
+            }
+        }
+
+        Set<Long> rejected = new HashSet<>();
+        if (!throughAlias.isEmpty()) {
+            rejected.addAll(save(throughAlias, null, contentIds));
+        }
+        byIndex.forEach((backingIndex, docs) -> rejected.addAll(save(docs, backingIndex, contentIds)));
+        return rejected;
+    }
+
+    /**
+     * Saves the documents in one bulk request, through the alias unless an index is given, and
+     * returns the chunk ids Elasticsearch rejected
+     */
+    private Set<Long> save(List<EmbeddingDocument> embeddingDocs, String index, Map<String, Long> contentIds) {
+        Timer.Sample indexTimer = metrics.startTimer();
+        ElasticsearchRequestEvent indexEvent = new ElasticsearchRequestEvent();
+        indexEvent.operation = "bulk_index";
+        indexEvent.documentCount = embeddingDocs.size();
+        indexEvent.begin();
+        try {
+            if (index == null) {
+                embeddingRepository.saveAll(embeddingDocs);
+            } else {
+                operations.getObject().save(embeddingDocs, IndexCoordinates.of(index));
             }
+            indexEvent.succeeded = true;
+            return Set.of();
+        } catch (BulkFailureException e) {
+            Set<Long> rejected = new HashSet<>();
+            e.getFailedDocuments().forEach((id, failure) -> {
+                log.warn("Elasticsearch rejected chunk {}: {}", id, failure.errorMessage());
+                rejected.add(contentIds.get(id));
+            });
+            return rejected;
+        } finally {
+            indexEvent.commit();
+            metrics.recordStage(IngestMetrics.INDEX, indexTimer);
         }
+    }
 
-        log.info("Completed processing embeddings for document: {}", document.getId());
+    /**
+     * Embeds the chunks in one model call and builds their search documents, in the same order.
+     * The chunks' documents must be loaded.
+     */
+    public List<EmbeddingDocument> toEmbeddingDocuments(List<DocumentContent> chunks) throws JsonProcessingException {
+        return toEmbeddingDocuments(chunks, Map.of());
+    }
+
+    private List<EmbeddingDocument> toEmbeddingDocuments(List<DocumentContent> chunks, Map<Long, List<Float>> knownVectors)
+            throws JsonProcessingException {
+        List<List<Float>> vectors = new ArrayList<>(chunks.size());
+        List<Integer> toEmbed = new ArrayList<>();
+        for (int i = 0; i < chunks.size(); i++) {
+            Long id = chunks.get(i).getId();
+            vectors.add(id == null ? null : knownVectors.get(id));
+            if (vectors.get(i) == null) {
+                toEmbed.add(i);
+            }
+        }
+        if (!toEmbed.isEmpty()) {
+            Timer.Sample embedTimer = metrics.startTimer();
+            List<List<Float>> embedded = generateEmbeddings(toEmbed.stream().map(i -> chunks.get(i).getContent()).toList());
+            metrics.recordStage(IngestMetrics.EMBED, embedTimer);
+            for (int i = 0; i < toEmbed.size(); i++) {
+                vectors.set(toEmbed.get(i), embedded.get(i));
+            }
+        }
+
+        List<EmbeddingDocument> embeddingDocs = new ArrayList<>(chunks.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            DocumentContent chunk = chunks.get(i);
+            Document document = chunk.getDocument();
+
+            // Create metadata
+            Map<String, Object> metadata = new HashMap<>();
+            metadata.put("filename", document.getFilename());
+            metadata.put("title", document.getTitle());
+            metadata.put("page", chunk.getPageNumber());
+            metadata.put("chunk", chunk.getChunkSequence());
+
+            embeddingDocs.add(EmbeddingDocument.builder()
+                    .id(embeddingId(document.getId(), chunk.getPageNumber(), chunk.getChunkSequence()))
+                    .documentId(document.getId())
+                    .pageNumber(chunk.getPageNumber())
+                    .chunkSequence(chunk.getChunkSequence())
+                    .content(chunk.getContent())
+                    .embedding(vectors.get(i))
+                    .modelId(modelId())
+                    .metadata(objectMapper.writeValueAsString(metadata))
+                    .build());
+        }
+        return embeddingDocs;
+    }
+
+    /**
+     * Looks up the indexed vectors of the given source chunks, keeping those whose text still
+     * matches the chunk that copies them and that the configured model produced. Chunks without a
+     * usable vector are embedded as usual.
+     */
+    private Map<Long, List<Float>> findVectors(List<DocumentContent> chunks, Map<Long, String> sourceEmbeddingIds) {
+        if (sourceEmbeddingIds.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<String, EmbeddingDocument> sources = new HashMap<>();
+        try {
+            for (EmbeddingDocument source : embeddingRepository.findByIds(new HashSet<>(sourceEmbeddingIds.values()))) {
+                sources.put(source.getId(), source);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not look up vectors to reuse, embedding the chunks instead: {}", e.getMessage());
+            return Map.of();
+        }
+
+        Map<Long, List<Float>> vectors = new HashMap<>();
+        for (DocumentContent chunk : chunks) {
+            EmbeddingDocument source = sources.get(sourceEmbeddingIds.get(chunk.getId()));
+            if (source != null && source.getEmbedding() != null && chunk.getContent().equals(source.getContent())
+                    && modelId().equals(EmbeddingModelType.recordedId(source.getModelId()))) {
+                vectors.put(chunk.getId(), source.getEmbedding());
+            }
+        }
+        metrics.countReusedVectors(vectors.size());
+        return vectors;
+    }
+
+    /**
+     * Elasticsearch id of a chunk: document, page and chunk sequence
+     */
+    static String embeddingId(Long documentId, int pageNumber, int chunkSequence) {
+        return documentId + "-" + pageNumber + "-" + chunkSequence;
+    }
+
+    /**
+     * The configured model, whose id is stored with every vector it produces
+     */
+    public EmbeddingModelType modelType() {
+        return EmbeddingModelType.fromId(modelName);
+    }
+
+    public String modelId() {
+        return modelType().id();
     }
 
     public List<Float> generateEmbedding(String text) {
-        Embedding embedding = embeddingModel.embed(text).content();
+        Embedding embedding = embeddingModel().embed(text).content();
         return embedding.vectorAsList();
     }
 
-    public List<EmbeddingDocument> findSimilarDocuments(String query, int limit) {
-        List<Float> queryEmbedding = generateEmbedding(query);
+    /**
+     * Generates embeddings for several texts in one model call
+     */
+    public List<List<Float>> generateEmbeddings(List<String> texts) {
+        List<TextSegment> segments = texts.stream().map(TextSegment::from).toList();
+        EmbeddingBatchEvent embedEvent = new EmbeddingBatchEvent();
+        embedEvent.begin();
+        List<Embedding> embeddings = embeddingModel().embedAll(segments).content();
+        embedEvent.end();
+        if (embedEvent.shouldCommit()) {
+            embedEvent.chunkCount = texts.size();
+            embedEvent.characters = texts.stream().mapToLong(String::length).sum();
+            embedEvent.commit();
+        }
+        return embeddings.stream()
+                .map(Embedding::vectorAsList)
+                .toList();
+    }
 
-        // This is where we would normally perform vector search, but since we're
-        // using the repository pattern, we'll need to implement custom query methods
-        // This is simplified for now - in a real implementation you'd use the Elasticsearch client directly
+    /**
+     * Loads the embedding model if it has not been loaded yet
+     */
+    public void loadModel() {
+        embeddingModel();
+    }
+
+    public boolean isModelLoaded() {
+        return embeddingModel != null;
+    }
 
-        // For now, returning an empty list
-        return List.of();
+    private EmbeddingModel embeddingModel() {
+        EmbeddingModel model = embeddingModel;
+        if (model == null) {
+            synchronized (this) {
+                model = embeddingModel;
+                if (model == null) {
+                    long start = System.currentTimeMillis();
+                    EmbeddingModelType type = modelType();
+                    model = type.create();
+                    embeddingModel = model;
+                    log.info("Loaded embedding model {} in {} ms", type.id(), System.currentTimeMillis() - start);
+                }
+            }
+        }
+        return model;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,150 @@
+package com.cse460.llm_assistant.service;
+
+import com.cse460.llm_assistant.model.DocumentImage;
+import com.cse460.llm_assistant.repository.DocumentImageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the page image store within a disk budget. Images that can be rendered again from their
+ * document's stored source are evicted least recently served first once the budget is exceeded,
+ * and rendered again on their next request.
+ */
+@Service
+@Slf4j
+public class ImageEvictionService {
+
+    private static final int BATCH_SIZE = 200;
+
+    private final DocumentImageRepository imageRepository;
+    private final ImageStorageService imageStorageService;
+    private final TransactionTemplate transactionTemplate;
+    private final long budgetBytes;
+    private final double lowWatermark;
+    private final Counter evictions;
+
+    // Last serve time per image, written to the database by the next sweep rather than on every request
+    private final Map<Long, LocalDateTime> accesses = new ConcurrentHashMap<>();
+
+    private volatile long storedBytes;
+
+    public ImageEvictionService(DocumentImageRepository imageRepository,
+                                ImageStorageService imageStorageService,
+                                TransactionTemplate transactionTemplate,
+                                MeterRegistry registry,
+                                @Value("${storage.images.budget-mb:0}") long budgetMb,
+                                @Value("${storage.images.low-watermark:0.9}") double lowWatermark) {
+        this.imageRepository = imageRepository;
+        this.imageStorageService = imageStorageService;
+        this.transactionTemplate = transactionTemplate;
+        this.budgetBytes = budgetMb * 1024 * 1024;
+        this.lowWatermark = lowWatermark;
+
+        this.evictions = Counter.builder("storage.images.evictions")
+                .description("Page images evicted from the image store")
+                .register(registry);
+        Gauge.builder("storage.images.stored", this, service -> service.storedBytes)
+                .description("Size of the stored page images as of the last sweep")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    /**
+     * Marks an image as served now
+     */
+    public void recordAccess(Long imageId) {
+        // Second precision, so one sweep updates many images with a single statement
+        accesses.put(imageId, LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS));
+    }
+
+    @Scheduled(fixedDelayString = "${storage.images.eviction-interval-ms:60000}")
+    public void sweep() {
+        flushAccesses();
+        recordMissingSizes();
+        storedBytes = imageRepository.sumStoredBytes();
+        if (budgetBytes > 0 && storedBytes > budgetBytes) {
+            evict();
+        }
+    }
+
+    /**
+     * Evicts least recently used images until the store is below the low watermark of its budget,
+     * returning how many were evicted
+     */
+    int evict() {
+        long target = (long) (budgetBytes * lowWatermark);
+        long remaining = storedBytes;
+        int evicted = 0;
+
+        while (remaining > target) {
+            List<DocumentImage> candidates = imageRepository.findEvictionCandidates(PageRequest.of(0, BATCH_SIZE));
+            if (candidates.isEmpty()) {
+                log.warn("Image store holds {} MB against a budget of {} MB, but no more images can be rendered again",
+                        remaining / (1024 * 1024), budgetBytes / (1024 * 1024));
+                break;
+            }
+            for (DocumentImage image : candidates) {
+                if (remaining <= target) {
+                    break;
+                }
+                // The entry is cleared first, so a request arriving now renders the image instead of missing the file
+                Integer cleared = transactionTemplate.execute(status ->
+                        imageRepository.clearImagePath(image.getId(), image.getImagePath()));
+                if (cleared == null || cleared == 0) {
+                    continue;
+                }
+                imageStorageService.deleteImageFile(image.getImagePath());
+                remaining -= image.getSizeBytes() == null ? 0 : image.getSizeBytes();
+                evicted++;
+            }
+        }
+
+        evictions.increment(evicted);
+        storedBytes = remaining;
+        log.info("Evicted {} page images, image store now at {} MB of {} MB",
+                evicted, remaining / (1024 * 1024), budgetBytes / (1024 * 1024));
+        return evicted;
+    }
+
+    private void flushAccesses() {
+        if (accesses.isEmpty()) {
+            return;
+        }
+        Map<LocalDateTime, List<Long>> byTime = new HashMap<>();
+        for (Map.Entry<Long, LocalDateTime> access : accesses.entrySet()) {
+            byTime.computeIfAbsent(access.getValue(), time -> new ArrayList<>()).add(access.getKey());
+        }
+        transactionTemplate.executeWithoutResult(status ->
+                byTime.forEach((time, ids) -> imageRepository.updateLastAccessedAt(ids, time)));
+        // An image served again while flushing keeps its newer time for the next sweep
+        byTime.forEach((time, ids) -> ids.forEach(id -> accesses.remove(id, time)));
+    }
+
+    private void recordMissingSizes() {
+        List<DocumentImage> images;
+        do {
+            images = imageRepository.findStoredWithoutSize(PageRequest.of(0, BATCH_SIZE));
+            for (DocumentImage image : images) {
+                Long size = imageStorageService.fileSize(image.getImagePath());
+                // A file that is already gone counts as empty rather than being looked up again
+                image.setSizeBytes(size == null ? 0L : size);
+            }
+            imageRepository.saveAll(images);
+        } while (images.size() == BATCH_SIZE);
+    }
+}
@@ -1,22 +1,28 @@
 package com.cse460.llm_assistant.service;
 
+import com.cse460.llm_assistant.jfr.ImageWriteEvent;
 import com.cse460.llm_assistant.model.Document;
 import com.cse460.llm_assistant.model.DocumentImage;
 import com.cse460.llm_assistant.repository.DocumentImageRepository;
+import com.cse460.llm_assistant.service.codec.ImageCodec;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Formatter;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
@@ -26,101 +32,260 @@ public class ImageStorageService {
 
     private final DocumentImageRepository imageRepository;
     private final Path imageStorageLocation;
+    private final ImageCodec pageImageCodec;
+
+    // Leading bytes of the encoded formats accepted by storeImage
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+    private static final byte[] JPEG_SIGNATURE = {(byte) 0xff, (byte) 0xd8, (byte) 0xff};
+    private static final byte[] GIF_SIGNATURE = {'G', 'I', 'F', '8'};
 
     /**
-     * Stores an image from a byte array and creates a database entry
+     * Stores already encoded image data as is and creates a database entry
      */
     public DocumentImage storeImage(Document document, byte[] imageData, int pageNumber, int imageSequence) {
+        Optional<String> format = detectImageFormat(imageData);
+        if (format.isEmpty()) {
+            log.error("Unrecognized image data for document: {}, page: {}, size: {}",
+                    document.getId(), pageNumber, (imageData != null) ? imageData.length : 0);
+            return null;
+        }
+
+        String filename = writeImageFile(document.getId(), imageData, pageNumber, imageSequence, format.get());
+        if (filename == null) {
+            return null;
+        }
+        return saveImage(document, filename, format.get(), pageNumber, imageSequence);
+    }
+
+    /**
+     * Encodes a rendered page straight into the image store with the configured codec,
+     * returning the stored filename. Create its entry with {@link #saveImage}.
+     */
+    public String writeImage(Long documentId, BufferedImage image, int pageNumber, int imageSequence) throws IOException {
+        String filename = newFilename(documentId, pageNumber, imageSequence, pageImageCodec.format());
+        Path targetPath = imageStorageLocation.resolve(filename);
+        // The codec streams into the file, so the write includes encoding
+        ImageWriteEvent writeEvent = new ImageWriteEvent();
+        writeEvent.begin();
         try {
-            if (imageData == null || imageData.length < 100) {
-                log.error("Invalid image data for document: {}, page: {}, size: {}",
-                        document.getId(), pageNumber, (imageData != null) ? imageData.length : 0);
-                return null;
-            }
+            pageImageCodec.encode(image, targetPath);
+        } catch (IOException e) {
+            Files.deleteIfExists(targetPath);
+            throw e;
+        }
+        writeEvent.end();
+        long size = Files.size(targetPath);
+        commitWrite(writeEvent, documentId, pageNumber, filename, size);
+        log.debug("Encoded page {} of document {} to {} ({} bytes)", pageNumber, documentId, targetPath, size);
+        return filename;
+    }
 
-            // Generate content hash for deduplication
-            String contentHash = generateHash(imageData);
-            log.debug("Generated content hash: {}", contentHash);
+    /**
+     * Creates the database entry for an image written by {@link #writeImage}
+     */
+    public DocumentImage saveImage(Document document, String filename, int pageNumber, int imageSequence) {
+        return saveImage(document, filename, pageImageCodec.format(), pageNumber, imageSequence);
+    }
+
+    /**
+     * Encodes and stores the image for an existing entry that has not been rendered yet
+     */
+    public DocumentImage storeRenderedImage(DocumentImage image, BufferedImage renderedPage) throws IOException {
+        String filename = writeImage(image.getDocument().getId(), renderedPage,
+                image.getPageNumber(), image.getImageSequence());
 
-            // Determine image format - verify if the image data is valid
-            BufferedImage bufferedImage = ImageIO.read(new ByteArrayInputStream(imageData));
-            if (bufferedImage == null) {
-                log.error("Failed to read image data for document: {}, page: {}, data size: {}",
-                        document.getId(), pageNumber, imageData.length);
+        image.setImagePath(filename);
+        image.setFormat(pageImageCodec.format());
+        image.setSizeBytes(fileSize(filename));
+        image.setLastAccessedAt(LocalDateTime.now());
+        return imageRepository.save(image);
+    }
 
-                // Try to diagnose the image data
-                log.debug("First 20 bytes of image data: {}",
-                        Arrays.toString(Arrays.copyOf(imageData, Math.min(20, imageData.length))));
-                return null;
+    /**
+     * Copies the stored image of another document's page to the given page of this document
+     * and creates its entry, returning null if the source file cannot be copied
+     */
+    public DocumentImage copyImage(DocumentImage source, Document document, int pageNumber) {
+        String filename = newFilename(document.getId(), pageNumber, source.getImageSequence(), source.getFormat());
+        try {
+            ImageWriteEvent writeEvent = new ImageWriteEvent();
+            writeEvent.begin();
+            Path target = imageStorageLocation.resolve(filename);
+            Files.copy(imageStorageLocation.resolve(source.getImagePath()), target);
+            writeEvent.end();
+            if (writeEvent.shouldCommit()) {
+                commitWrite(writeEvent, document.getId(), pageNumber, filename, Files.size(target));
             }
+        } catch (IOException e) {
+            log.warn("Could not copy image {} for page {} of document {}: {}",
+                    source.getImagePath(), pageNumber, document.getId(), e.getMessage());
+            return null;
+        }
+        return saveImage(document, filename, source.getFormat(), pageNumber, source.getImageSequence());
+    }
 
-            // Log image details
-            log.info("Successfully read image: dimensions {}x{}, type: {}",
-                    bufferedImage.getWidth(), bufferedImage.getHeight(),
-                    bufferedImage.getType());
+    /**
+     * Format of images produced by the configured codec
+     */
+    public String getImageFormat() {
+        return pageImageCodec.format();
+    }
 
-            // Default to PNG format
-            String format = "png";
+    /**
+     * Whether the image of an entry is present on disk
+     */
+    public boolean isStored(DocumentImage image) {
+        return image.getImagePath() != null && getImageFile(image.getImagePath()).exists();
+    }
 
-            // Generate unique filename
-            String filename = String.format("%s_p%d_%d_%s.%s",
-                    document.getId(),
-                    pageNumber,
-                    imageSequence,
-                    UUID.randomUUID().toString().substring(0, 8),
-                    format);
-
-            // Save to filesystem
-            Path targetPath = imageStorageLocation.resolve(filename);
+    /**
+     * Gets the file for a stored image
+     */
+    public File getImageFile(String imagePath) {
+        return imageStorageLocation.resolve(imagePath).toFile();
+    }
 
-            // Save image file with high quality settings
-            log.info("Saving image to: {}", targetPath);
-            boolean success = ImageIO.write(bufferedImage, format, targetPath.toFile());
+    private DocumentImage saveImage(Document document, String filename, String format, int pageNumber, int imageSequence) {
+        DocumentImage documentImage = DocumentImage.builder()
+                .document(document)
+                .pageNumber(pageNumber)
+                .imageSequence(imageSequence)
+                .imagePath(filename)
+                .format(format)
+                .sizeBytes(fileSize(filename))
+                .lastAccessedAt(LocalDateTime.now())
+                .build();
 
-            if (!success) {
-                log.error("Failed to write image to file: no appropriate writer found for format: {}", format);
-                return null;
-            }
+        return imageRepository.save(documentImage);
+    }
 
-            // Verify file was created and has content
-            File savedFile = targetPath.toFile();
-            if (!savedFile.exists() || savedFile.length() < 100) {
-                log.error("File was not created properly: exists={}, size={}",
-                        savedFile.exists(), savedFile.exists() ? savedFile.length() : 0);
+    /**
+     * Validates and writes encoded image data to the storage location, returning the stored filename
+     */
+    private String writeImageFile(Long documentId, byte[] imageData, int pageNumber, int imageSequence, String format) {
+        try {
+            if (imageData.length < 100) {
+                log.error("Invalid image data for document: {}, page: {}, size: {}",
+                        documentId, pageNumber, imageData.length);
                 return null;
             }
 
-            log.info("Successfully saved image to {} ({} bytes)", targetPath, savedFile.length());
+            // Generate content hash for deduplication
+            String contentHash = generateHash(imageData);
+            log.debug("Generated content hash: {}", contentHash);
 
-            // Create and save database entry
-            DocumentImage documentImage = DocumentImage.builder()
-                    .document(document)
-                    .pageNumber(pageNumber)
-                    .imageSequence(imageSequence)
-                    .imagePath(filename)
-                    .format(format)
-                    .build();
+            // Generate unique filename
+            String filename = newFilename(documentId, pageNumber, imageSequence, format);
+
+            // Save to filesystem; the data is already encoded, so it is written without decoding it
+            Path targetPath = imageStorageLocation.resolve(filename);
+            log.debug("Saving image to: {}", targetPath);
+            ImageWriteEvent writeEvent = new ImageWriteEvent();
+            writeEvent.begin();
+            Files.write(targetPath, imageData);
+            writeEvent.end();
+            commitWrite(writeEvent, documentId, pageNumber, filename, imageData.length);
 
-            return imageRepository.save(documentImage);
+            log.debug("Successfully saved image to {} ({} bytes)", targetPath, imageData.length);
+            return filename;
 
         } catch (IOException | NoSuchAlgorithmException e) {
             log.error("Failed to store image for document: {}, page: {}",
-                    document.getId(), pageNumber, e);
+                    documentId, pageNumber, e);
             return null;
         }
     }
 
+    private static void commitWrite(ImageWriteEvent writeEvent, Long documentId, int pageNumber, String filename, long bytes) {
+        if (writeEvent.shouldCommit()) {
+            writeEvent.documentId = documentId;
+            writeEvent.pageNumber = pageNumber;
+            writeEvent.path = filename;
+            writeEvent.bytes = bytes;
+            writeEvent.commit();
+        }
+    }
+
     /**
-     * Gets the file for a stored image
+     * Size of a stored image file, or null if it cannot be read
      */
-    public File getImageFile(String imagePath) {
-        return imageStorageLocation.resolve(imagePath).toFile();
+    public Long fileSize(String imagePath) {
+        try {
+            return Files.size(imageStorageLocation.resolve(imagePath));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Deletes a stored image file, returning false if it could not be deleted
+     */
+    public boolean deleteImageFile(String imagePath) {
+        try {
+            Files.deleteIfExists(imageStorageLocation.resolve(imagePath));
+            return true;
+        } catch (IOException e) {
+            log.warn("Could not delete image {}: {}", imagePath, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Deletes the given stored image files, returning how many were deleted
+     */
+    public int deleteImageFiles(Collection<String> imagePaths) {
+        int deleted = 0;
+        for (String imagePath : imagePaths) {
+            if (deleteImageFile(imagePath)) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Deletes every stored image of the given documents in one pass over the storage location,
+     * returning how many files were deleted. Image files are named after their document's id.
+     */
+    public int deleteImagesOfDocuments(Set<Long> documentIds) throws IOException {
+        int deleted = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(imageStorageLocation)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                Long documentId = documentIdOf(name);
+                if (documentId != null && documentIds.contains(documentId) && deleteImageFile(name)) {
+                    deleted++;
+                }
+            }
+        }
+        return deleted;
+    }
+
+    private static Long documentIdOf(String filename) {
+        int separator = filename.indexOf('_');
+        if (separator <= 0) {
+            return null;
+        }
+        try {
+            return Long.valueOf(filename.substring(0, separator));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String newFilename(Long documentId, int pageNumber, int imageSequence, String format) {
+        return String.format("%s_p%d_%d_%s.%s",
+                documentId,
+                pageNumber,
+                imageSequence,
+                UUID.randomUUID().toString().substring(0, 8),
+                format);
     }
 
     /**
      * Generate SHA-256 hash of image data for deduplication
      */
-    private String generateHash(byte[] data) throws NoSuchAlgorithmException {
+    static String generateHash(byte[] data) throws NoSuchAlgorithmException {
         MessageDigest digest = MessageDigest.getInstance("SHA-256");
         byte[] hash = digest.digest(data);
 
@@ -134,20 +299,27 @@ public class ImageStorageService {
     }
 
     /**
-     * Detect image format from byte array
+     * Detect image format from the signature at the start of the data
      */
-    private java.util.Optional<String> detectImageFormat(byte[] imageData) {
-        try {
-            BufferedImage bufferedImage = ImageIO.read(new ByteArrayInputStream(imageData));
-            if (bufferedImage != null) {
-                // We can read it, but need to determine format
-                // For simplicity, default to PNG
-                return java.util.Optional.of("png");
-            }
-            return java.util.Optional.empty();
-        } catch (IOException e) {
-            log.error("Failed to detect image format", e);
-            return java.util.Optional.empty();
+    static Optional<String> detectImageFormat(byte[] imageData) {
+        if (imageData == null || imageData.length < 8) {
+            return Optional.empty();
+        }
+        if (startsWith(imageData, PNG_SIGNATURE)) {
+            return Optional.of("png");
+        }
+        if (startsWith(imageData, JPEG_SIGNATURE)) {
+            return Optional.of("jpg");
         }
+        if (startsWith(imageData, GIF_SIGNATURE)) {
+            return Optional.of("gif");
+        }
+        log.debug("First 20 bytes of unrecognized image data: {}",
+                Arrays.toString(Arrays.copyOf(imageData, Math.min(20, imageData.length))));
+        return Optional.empty();
+    }
+
+    private static boolean startsWith(byte[] data, byte[] prefix) {
+        return Arrays.equals(data, 0, prefix.length, prefix, 0, prefix.length);
     }
-}
\ No newline at end of file
+}
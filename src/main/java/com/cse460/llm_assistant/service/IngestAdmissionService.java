@@ -0,0 +1,140 @@
+package com.cse460.llm_assistant.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits concurrent ingests by their estimated memory cost.
+ * Each upload reserves its estimate against a global budget before processing; uploads that
+ * do not fit wait in arrival order for up to the configured time and are then rejected.
+ */
+@Service
+@Slf4j
+public class IngestAdmissionService {
+
+    // Bytes per pixel of a rendered TYPE_INT_RGB page
+    private static final int BYTES_PER_PIXEL = 4;
+
+    // Copies of an upload held in memory at once when it is not parsed from disk
+    private static final int FILE_COPIES = 3;
+
+    // Rough PNG compression ratio of a rendered page, used for the encoded pages kept until they are stored
+    private static final int ENCODED_PAGE_RATIO = 8;
+
+    private final long budgetKb;
+    private final long maxWaitMillis;
+    private final long retryAfterSeconds;
+
+    // One permit per KiB so budgets beyond 2 GB still fit in an int
+    private final Semaphore permits;
+
+    public IngestAdmissionService(@Value("${ingest.admission.memory-budget-mb:0}") long memoryBudgetMb,
+                                  @Value("${ingest.admission.max-wait-ms:30000}") long maxWaitMillis,
+                                  @Value("${ingest.admission.retry-after-seconds:10}") long retryAfterSeconds) {
+        long budgetBytes = memoryBudgetMb > 0
+                ? memoryBudgetMb * 1024 * 1024
+                : (long) (Runtime.getRuntime().maxMemory() * 0.6);
+        this.budgetKb = Math.min(Integer.MAX_VALUE, Math.max(1, budgetBytes / 1024));
+        this.maxWaitMillis = maxWaitMillis;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.permits = new Semaphore((int) budgetKb, true);
+        log.info("Ingest admission budget: {} MB", budgetKb / 1024);
+    }
+
+    /**
+     * Estimates the peak heap an upload needs while it is processed
+     *
+     * @param fileSize       size of the uploaded file in bytes
+     * @param pageCount      number of pages to process
+     * @param maxPagePixels  pixel area of the largest page at the render DPI, 0 if pages are not rendered
+     * @param keepsAllPages  whether every encoded page is held until the whole document is rendered
+     */
+    public long estimateCost(long fileSize, int pageCount, long maxPagePixels, boolean keepsAllPages) {
+        return estimateCost(fileSize, FILE_COPIES, pageCount, maxPagePixels, keepsAllPages);
+    }
+
+    /**
+     * Like {@link #estimateCost(long, int, long, boolean)}, for an upload of which the given number
+     * of copies is held in memory. An upload parsed from a file on disk is never read in whole;
+     * one copy covers the objects PDFBox parses from it.
+     */
+    public long estimateCost(long fileSize, int fileCopies, int pageCount, long maxPagePixels, boolean keepsAllPages) {
+        long cost = fileSize * fileCopies;
+
+        // One raster plus its encoding buffer is live at a time
+        long rasterBytes = maxPagePixels * BYTES_PER_PIXEL;
+        cost += rasterBytes + rasterBytes / ENCODED_PAGE_RATIO;
+
+        if (keepsAllPages) {
+            cost += (long) pageCount * (rasterBytes / ENCODED_PAGE_RATIO);
+        }
+        return cost;
+    }
+
+    /**
+     * Reserves the estimated bytes, waiting up to the configured time for earlier uploads to finish
+     *
+     * @throws IngestRejectedException if the reservation could not be made in time
+     */
+    public Reservation admit(long estimatedBytes) {
+        // A single upload larger than the whole budget runs alone instead of never being admitted
+        int requested = (int) Math.min(budgetKb, Math.max(1, estimatedBytes / 1024));
+
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(requested, maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+
+        if (!acquired) {
+            log.warn("Rejecting upload needing {} KB: ingest memory budget exhausted ({} KB free of {} KB)",
+                    requested, permits.availablePermits(), budgetKb);
+            throw new IngestRejectedException("Server is busy processing other documents, please retry later",
+                    retryAfterSeconds);
+        }
+
+        log.debug("Admitted upload reserving {} KB ({} KB free)", requested, permits.availablePermits());
+        return new Reservation(requested);
+    }
+
+    /**
+     * Number of uploads waiting for budget
+     */
+    public int getQueueLength() {
+        return permits.getQueueLength();
+    }
+
+    /**
+     * Bytes currently reserved by running uploads
+     */
+    public long getReservedBytes() {
+        return (budgetKb - permits.availablePermits()) * 1024;
+    }
+
+    /**
+     * A held share of the budget, released when closed
+     */
+    public class Reservation implements AutoCloseable {
+
+        private final int kilobytes;
+        private boolean released;
+
+        private Reservation(int kilobytes) {
+            this.kilobytes = kilobytes;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                permits.release(kilobytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.cse460.llm_assistant.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.LongTaskTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Timers, counters and gauges for the ingest pipeline.
+ * Stage durations are published as histograms under ingest.stage.duration with a stage tag.
+ */
+@Component
+public class IngestMetrics {
+
+    public static final String HASH = "hash";
+    public static final String PARSE = "parse";
+    public static final String TEXT = "text";
+    public static final String RENDER = "render";
+    public static final String ENCODE = "encode";
+    public static final String STORE = "store";
+    public static final String PERSIST = "persist";
+    public static final String EMBED = "embed";
+    public static final String INDEX = "index";
+    public static final String SIMILARITY = "similarity";
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> stageTimers = new ConcurrentHashMap<>();
+    private final LongTaskTimer activeIngests;
+    private final Counter pages;
+    private final Counter chunks;
+    private final Counter bytes;
+    private final Counter nearDuplicates;
+    private final Counter reusedPages;
+    private final Counter reusedVectors;
+
+    public IngestMetrics(MeterRegistry registry, IngestAdmissionService admissionService) {
+        this.registry = registry;
+
+        this.activeIngests = LongTaskTimer.builder("ingest.documents.active")
+                .description("Documents currently being ingested")
+                .register(registry);
+        this.pages = Counter.builder("ingest.pages")
+                .description("Pages ingested")
+                .register(registry);
+        this.chunks = Counter.builder("ingest.chunks")
+                .description("Text chunks stored")
+                .register(registry);
+        this.bytes = Counter.builder("ingest.bytes")
+                .description("Uploaded bytes ingested")
+                .baseUnit("bytes")
+                .register(registry);
+        this.nearDuplicates = Counter.builder("ingest.near.duplicates")
+                .description("Uploads found to be near-duplicates of a stored document")
+                .register(registry);
+        this.reusedPages = Counter.builder("ingest.pages.reused")
+                .description("Pages copied from a near-duplicate instead of processed")
+                .register(registry);
+        this.reusedVectors = Counter.builder("ingest.vectors.reused")
+                .description("Chunk vectors copied from a near-duplicate instead of embedded")
+                .register(registry);
+
+        Gauge.builder("ingest.admission.queue.depth", admissionService, IngestAdmissionService::getQueueLength)
+                .description("Uploads waiting for ingest memory budget")
+                .register(registry);
+        Gauge.builder("ingest.admission.reserved", admissionService, IngestAdmissionService::getReservedBytes)
+                .description("Memory reserved by running ingests")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    public Timer.Sample startTimer() {
+        return Timer.start(registry);
+    }
+
+    public void recordStage(String stage, Timer.Sample sample) {
+        sample.stop(stageTimers.computeIfAbsent(stage, name -> Timer.builder("ingest.stage.duration")
+                .description("Time spent in one ingest stage")
+                .tag("stage", name)
+                .publishPercentileHistogram()
+                .register(registry)));
+    }
+
+    /**
+     * Marks a document ingest as running until the returned sample is stopped
+     */
+    public LongTaskTimer.Sample startIngest() {
+        return activeIngests.start();
+    }
+
+    public void countPages(int count) {
+        pages.increment(count);
+    }
+
+    public void countChunks(int count) {
+        chunks.increment(count);
+    }
+
+    public void countBytes(long count) {
+        bytes.increment(count);
+    }
+
+    public void countNearDuplicate() {
+        nearDuplicates.increment();
+    }
+
+    public void countReusedPages(int count) {
+        reusedPages.increment(count);
+    }
+
+    public void countReusedVectors(int count) {
+        reusedVectors.increment(count);
+    }
+}
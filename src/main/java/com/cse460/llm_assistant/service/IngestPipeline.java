@@ -0,0 +1,175 @@
+package com.cse460.llm_assistant.service;
+
+import com.cse460.llm_assistant.service.pipeline.PipelineStage;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The stages a PDF's pages pass through after the ingest thread has extracted and rendered them.
+ * Each stage has its own workers and a bounded queue: the chunks stage stores text and queues it
+ * for embedding, the files stage encodes and writes page images and the source PDF. While one
+ * page's chunks and image are being written the ingest thread renders the next page, and a full
+ * queue makes it wait, so the slowest stage sets the pace. Queue depths are published as
+ * ingest.pipeline.queue.depth with a stage tag.
+ */
+@Component
+public class IngestPipeline {
+
+    public static final String CHUNKS = "chunks";
+    public static final String FILES = "files";
+
+    private final PipelineStage chunks;
+    private final PipelineStage files;
+    private final int rastersPerDocument;
+
+    public IngestPipeline(MeterRegistry registry,
+                          @Value("${ingest.pipeline.chunk-threads:2}") int chunkThreads,
+                          @Value("${ingest.pipeline.file-threads:2}") int fileThreads,
+                          @Value("${ingest.pipeline.queue-capacity:8}") int queueCapacity,
+                          @Value("${ingest.pipeline.rasters-per-document:2}") int rastersPerDocument) {
+        this.chunks = new PipelineStage(CHUNKS, chunkThreads, queueCapacity);
+        this.files = new PipelineStage(FILES, fileThreads, queueCapacity);
+        this.rastersPerDocument = Math.max(1, rastersPerDocument);
+
+        for (PipelineStage stage : List.of(chunks, files)) {
+            Gauge.builder("ingest.pipeline.queue.depth", stage, PipelineStage::getQueueDepth)
+                    .description("Tasks waiting for a worker of an ingest pipeline stage")
+                    .tag("stage", stage.getName())
+                    .register(registry);
+            Gauge.builder("ingest.pipeline.active", stage, PipelineStage::getActiveCount)
+                    .description("Workers of an ingest pipeline stage running a task")
+                    .tag("stage", stage.getName())
+                    .register(registry);
+        }
+    }
+
+    /**
+     * Rendered pages of one document that can be held at once, waiting for or being written
+     */
+    public int getRastersPerDocument() {
+        return rastersPerDocument;
+    }
+
+    /**
+     * Starts tracking the work of one document
+     */
+    public Run start() {
+        return new Run();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        chunks.shutdown();
+        files.shutdown();
+    }
+
+    /**
+     * The tasks one document has handed to the stages. A failed task fails the document: nothing
+     * more is accepted and await() rethrows the failure once every task handed over has finished.
+     */
+    public class Run {
+
+        private final List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final Semaphore rasters = new Semaphore(rastersPerDocument);
+
+        /**
+         * Hands a page's chunks to the chunks stage
+         */
+        public void storeChunks(PipelineStage.Task task) throws IOException {
+            submit(chunks, task);
+        }
+
+        /**
+         * Hands a file write to the files stage
+         */
+        public void writeFile(PipelineStage.Task task) throws IOException {
+            submit(files, task);
+        }
+
+        /**
+         * Waits until another rendered page may be held; call before rendering
+         */
+        public void acquireRaster() throws IOException {
+            try {
+                rasters.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to render a page");
+            }
+        }
+
+        /**
+         * Gives back a raster acquired for a page that will not be written
+         */
+        public void releaseRaster() {
+            rasters.release();
+        }
+
+        /**
+         * Hands a rendered page to the files stage, releasing its raster once written
+         */
+        public void writeRaster(PipelineStage.Task task) throws IOException {
+            try {
+                submit(files, () -> {
+                    try {
+                        task.run();
+                    } finally {
+                        rasters.release();
+                    }
+                });
+            } catch (IOException | RuntimeException e) {
+                rasters.release();
+                throw e;
+            }
+        }
+
+        /**
+         * Waits for every task handed over, rethrowing the first failure
+         */
+        public void await() throws IOException {
+            for (CompletableFuture<Void> task : tasks) {
+                try {
+                    task.join();
+                } catch (CompletionException e) {
+                    // Recorded as the failure when the task completed
+                }
+            }
+            rethrowFailure();
+        }
+
+        private void submit(PipelineStage stage, PipelineStage.Task task) throws IOException {
+            rethrowFailure();
+            tasks.add(stage.submit(task).whenComplete((result, error) -> {
+                if (error != null) {
+                    failure.compareAndSet(null, error);
+                }
+            }));
+        }
+
+        private void rethrowFailure() throws IOException {
+            Throwable error = failure.get();
+            if (error instanceof IOException e) {
+                throw e;
+            }
+            if (error instanceof RuntimeException e) {
+                throw e;
+            }
+            if (error != null) {
+                throw new IOException(error);
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.cse460.llm_assistant.service;
+
+/**
+ * Thrown when an upload cannot be admitted because the ingest memory budget is exhausted
+ */
+public class IngestRejectedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public IngestRejectedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,281 @@
+package com.cse460.llm_assistant.service;
+
+import com.cse460.llm_assistant.model.DocumentContent;
+import com.cse460.llm_assistant.repository.DocumentContentRepository;
+import com.cse460.llm_assistant.service.keyword.EnglishTextAnalyzer;
+import com.cse460.llm_assistant.service.keyword.SnippetHighlighter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.FieldInfos;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.QueryBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Embedded Lucene index of the stored chunks, searched by BM25 without Elasticsearch. Chunks are
+ * added as they are stored and become searchable at the next refresh, like an Elasticsearch
+ * index; commits run on their own schedule, and an index that lost uncommitted chunks in a crash
+ * is rebuilt from the database at startup.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class KeywordIndexService {
+
+    static final String ID = "id";
+    static final String DOCUMENT_ID = "documentId";
+    static final String PAGE_NUMBER = "pageNumber";
+    static final String CHUNK_SEQUENCE = "chunkSequence";
+    static final String CONTENT = "content";
+
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    // The highlighter reads the content itself; hits only need their location
+    private static final Set<String> STORED_ON_HIT = Set.of(DOCUMENT_ID, PAGE_NUMBER, CHUNK_SEQUENCE);
+
+    // Stored, with the offsets of its terms in the postings so snippets are cut without re-analyzing it
+    private static final FieldType CONTENT_TYPE = new FieldType(TextField.TYPE_STORED);
+
+    static {
+        CONTENT_TYPE.setIndexOptions(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS);
+        CONTENT_TYPE.freeze();
+    }
+
+    private final DocumentContentRepository contentRepository;
+    private final ChunkTextStore chunkTextStore;
+
+    @Value("${search.keyword.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${search.keyword.location:./uploads/keyword-index}")
+    private String location = "./uploads/keyword-index";
+
+    // Target length in characters of the snippets returned per hit
+    @Value("${search.snippets.fragment-size:150}")
+    private int fragmentSize = 150;
+
+    @Value("${search.snippets.max-per-hit:2}")
+    private int maxSnippets = 2;
+
+    private final Analyzer analyzer = new EnglishTextAnalyzer();
+
+    private MMapDirectory directory;
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Path path = Paths.get(location);
+        Files.createDirectories(path);
+        directory = new MMapDirectory(path);
+        IndexWriterConfig.OpenMode openMode = IndexWriterConfig.OpenMode.CREATE_OR_APPEND;
+        if (!hasContentOffsets()) {
+            // A field's index options cannot change, so an index written without offsets starts over
+            // and is rebuilt from the database once the application is ready
+            log.info("Keyword index at {} has no term offsets, recreating it", path.toAbsolutePath());
+            openMode = IndexWriterConfig.OpenMode.CREATE;
+        }
+        writer = new IndexWriter(directory, new IndexWriterConfig(analyzer).setOpenMode(openMode));
+        // Readers opened from the writer see added chunks without waiting for a commit
+        searcherManager = new SearcherManager(writer, null);
+        log.info("Opened keyword index at {} with {} chunks", path.toAbsolutePath(), writer.getDocStats().numDocs);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Adds stored chunks to the index, replacing any earlier copy of the same chunk
+     */
+    public void addChunks(List<DocumentContent> chunks) {
+        if (!enabled || chunks.isEmpty()) {
+            return;
+        }
+        try {
+            for (DocumentContent chunk : chunks) {
+                writer.updateDocument(new Term(ID, chunk.getId().toString()), toLuceneDocument(chunk));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to add chunks to the keyword index", e);
+        }
+    }
+
+    /**
+     * Removes every chunk of a document from the index
+     */
+    public void deleteDocument(Long documentId) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            writer.deleteDocuments(new Term(DOCUMENT_ID, documentId.toString()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete document " + documentId + " from the keyword index", e);
+        }
+    }
+
+    /**
+     * Returns the k chunks ranked highest by BM25 for the query's terms, each with snippets of its
+     * text around the matches instead of the whole chunk
+     */
+    public List<SearchResult> search(String query, int k) throws IOException {
+        if (!enabled) {
+            throw new IllegalStateException("Keyword index is disabled");
+        }
+        // Any query term may match, as with an Elasticsearch match query
+        Query luceneQuery = new QueryBuilder(analyzer).createBooleanQuery(CONTENT, query);
+        if (luceneQuery == null) {
+            // Only stop words or punctuation
+            return List.of();
+        }
+
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            TopDocs top = searcher.search(luceneQuery, k);
+            List<List<Snippet>> snippets = new SnippetHighlighter(searcher, analyzer, fragmentSize)
+                    .snippets(CONTENT, luceneQuery, top, maxSnippets);
+            StoredFields storedFields = searcher.storedFields();
+            List<SearchResult> results = new ArrayList<>(top.scoreDocs.length);
+            for (int i = 0; i < top.scoreDocs.length; i++) {
+                ScoreDoc hit = top.scoreDocs[i];
+                org.apache.lucene.document.Document stored = storedFields.document(hit.doc, STORED_ON_HIT);
+                int chunkSequence = stored.getField(CHUNK_SEQUENCE).numericValue().intValue();
+                int chunkOffset = PdfProcessingService.pageOffsetOf(chunkSequence);
+                results.add(new SearchResult(
+                        Long.valueOf(stored.get(DOCUMENT_ID)),
+                        stored.getField(PAGE_NUMBER).numericValue().intValue(),
+                        chunkSequence,
+                        snippets.get(i).stream().map(snippet -> snippet.shift(chunkOffset)).toList(),
+                        hit.score));
+            }
+            return results;
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    /**
+     * Makes chunks added since the last refresh searchable
+     */
+    @Scheduled(fixedDelayString = "${search.keyword.refresh-interval-ms:1000}")
+    public void refresh() throws IOException {
+        if (enabled) {
+            searcherManager.maybeRefresh();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${search.keyword.commit-interval-ms:30000}")
+    public void commit() throws IOException {
+        if (enabled && writer.hasUncommittedChanges()) {
+            writer.commit();
+        }
+    }
+
+    /**
+     * Rebuilds the index from the database when it does not hold every stored chunk, as after a
+     * crash before the last commit or on the first start with existing documents
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfIncomplete() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        long stored = contentRepository.count();
+        int indexed = writer.getDocStats().numDocs;
+        if (indexed == stored) {
+            return;
+        }
+
+        log.info("Keyword index holds {} of {} stored chunks, rebuilding it", indexed, stored);
+        long start = System.currentTimeMillis();
+        // Chunks stored during the rebuild are added by their ingest as well; adds replace by id
+        writer.deleteAll();
+        Long afterId = 0L;
+        List<DocumentContent> batch;
+        do {
+            batch = contentRepository.findWithDocumentByIdGreaterThan(afterId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+            chunkTextStore.load(batch);
+            addChunks(batch);
+            if (!batch.isEmpty()) {
+                afterId = batch.get(batch.size() - 1).getId();
+            }
+        } while (batch.size() == REBUILD_BATCH_SIZE);
+        writer.commit();
+        searcherManager.maybeRefresh();
+        log.info("Rebuilt keyword index with {} chunks in {} ms", writer.getDocStats().numDocs,
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Whether the index is empty or stores the offsets of the content's terms
+     */
+    private boolean hasContentOffsets() throws IOException {
+        if (!DirectoryReader.indexExists(directory)) {
+            return true;
+        }
+        try (DirectoryReader reader = DirectoryReader.open(directory)) {
+            FieldInfo content = FieldInfos.getMergedFieldInfos(reader).fieldInfo(CONTENT);
+            return content == null
+                    || content.getIndexOptions() == IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS;
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        searcherManager.close();
+        // Commits pending chunks on close
+        writer.close();
+        directory.close();
+    }
+
+    private static org.apache.lucene.document.Document toLuceneDocument(DocumentContent chunk) {
+        org.apache.lucene.document.Document document = new org.apache.lucene.document.Document();
+        document.add(new StringField(ID, chunk.getId().toString(), Field.Store.NO));
+        document.add(new StringField(DOCUMENT_ID, chunk.getDocument().getId().toString(), Field.Store.YES));
+        document.add(new StoredField(PAGE_NUMBER, chunk.getPageNumber()));
+        document.add(new StoredField(CHUNK_SEQUENCE, chunk.getChunkSequence()));
+        document.add(new Field(CONTENT, chunk.getContent(), CONTENT_TYPE));
+        return document;
+    }
+}
@@ -1,17 +1,22 @@
 package com.cse460.llm_assistant.service;
 
+import com.cse460.llm_assistant.service.codec.ImageCodec;
+import com.cse460.llm_assistant.service.codec.PngCodec;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.pdfbox.Loader;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.rendering.ImageType;
 import org.apache.pdfbox.rendering.PDFRenderer;
 import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -23,6 +28,20 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class MultimodalPdfExtractor {
 
+    // Render at 300 DPI for good quality unless configured otherwise
+    @Getter
+    @Value("${pdf.render.dpi:300}")
+    private float renderDpi = 300;
+
+    // Writers are cached per thread, so one codec instance serves all callers
+    private static final ImageCodec PNG = new PngCodec(4);
+
+    /**
+     * Page count and the pixel area of the largest page at the render DPI
+     */
+    public record RenderFootprint(int pageCount, long maxPagePixels) {
+    }
+
     /**
      * Extracts text content from a PDF file with page numbers
      */
@@ -52,12 +71,9 @@ public class MultimodalPdfExtractor {
         Map<Integer, List<byte[]>> pageImagesMap = new HashMap<>();
 
         try (PDDocument document = Loader.loadPDF(pdfData)) {
-            PDFRenderer renderer = new PDFRenderer(document);
-
-            // Disable subsampling for better rendering quality
-            renderer.setSubsamplingAllowed(false);
+            PDFRenderer renderer = createRenderer(document);
 
-            log.info("Processing PDF with {} pages", document.getNumberOfPages());
+            log.debug("Processing PDF with {} pages", document.getNumberOfPages());
 
             // Process each page in the document
             for (int i = 0; i < document.getNumberOfPages(); i++) {
@@ -65,8 +81,7 @@ public class MultimodalPdfExtractor {
                 List<byte[]> pageImages = new ArrayList<>();
 
                 try {
-                    // Render the page at 300 DPI for good quality
-                    BufferedImage renderedPage = renderer.renderImageWithDPI(i, 300, ImageType.RGB);
+                    BufferedImage renderedPage = renderPage(renderer, i);
 
                     // Verify that the rendered image has content
                     if (renderedPage.getWidth() <= 1 || renderedPage.getHeight() <= 1) {
@@ -76,46 +91,13 @@ public class MultimodalPdfExtractor {
                     }
 
                     // Log image dimensions for debugging
-                    log.info("Rendered page {} with dimensions: {}x{}",
+                    log.debug("Rendered page {} with dimensions: {}x{}",
                             pageNum, renderedPage.getWidth(), renderedPage.getHeight());
 
-                    // Convert the rendered image to PNG format with high quality settings
-                    ByteArrayOutputStream baos = new ByteArrayOutputStream(32768); // Start with larger buffer
-
-                    // Use ImageWriter with optimal compression settings
-                    javax.imageio.ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
-                    javax.imageio.ImageWriteParam param = writer.getDefaultWriteParam();
-
-                    // Set up the output
-                    javax.imageio.stream.ImageOutputStream ios = ImageIO.createImageOutputStream(baos);
-                    writer.setOutput(ios);
-
-                    // Write the image
-                    writer.write(null, new javax.imageio.IIOImage(renderedPage, null, null), param);
-
-                    // Cleanup
-                    ios.flush();
-                    writer.dispose();
-                    ios.close();
-
-                    // Get the bytes and verify size
-                    byte[] imageData = baos.toByteArray();
-
-                    // Validate image data
-                    if (imageData.length < 100) {
-                        log.warn("Page {} rendered with suspiciously small size: {} bytes",
-                                pageNum, imageData.length);
-
-                        // Try a simpler approach as fallback
-                        baos = new ByteArrayOutputStream(32768);
-                        ImageIO.write(renderedPage, "PNG", baos);
-                        imageData = baos.toByteArray();
-
-                        log.info("Fallback rendering resulted in {} bytes", imageData.length);
-                    }
+                    byte[] imageData = encodePng(renderedPage);
 
                     // Log the size of the image data
-                    log.info("Page {} image size: {} bytes", pageNum, imageData.length);
+                    log.debug("Page {} image size: {} bytes", pageNum, imageData.length);
 
                     // Add the image to the list for this page
                     pageImages.add(imageData);
@@ -123,7 +105,7 @@ public class MultimodalPdfExtractor {
                     // Add the list to the map for this page number
                     pageImagesMap.put(pageNum, pageImages);
 
-                    log.info("Successfully rendered page {} as image", pageNum);
+                    log.debug("Successfully rendered page {} as image", pageNum);
                 } catch (Exception e) {
                     log.error("Error rendering page {}: {}", pageNum, e.getMessage(), e);
                 }
@@ -132,4 +114,78 @@ public class MultimodalPdfExtractor {
 
         return pageImagesMap;
     }
-}
\ No newline at end of file
+
+    /**
+     * Renders a single page (1-based) of a stored PDF as a PNG image
+     */
+    public byte[] renderPage(File pdfFile, int pageNumber) throws IOException {
+        try (PDDocument document = Loader.loadPDF(pdfFile)) {
+            if (pageNumber < 1 || pageNumber > document.getNumberOfPages()) {
+                throw new IllegalArgumentException("Page " + pageNumber + " is out of range for a document with "
+                        + document.getNumberOfPages() + " pages");
+            }
+
+            PDFRenderer renderer = createRenderer(document);
+            BufferedImage renderedPage = renderPage(renderer, pageNumber - 1);
+            log.debug("Rendered page {} of {} with dimensions: {}x{}",
+                    pageNumber, pdfFile.getName(), renderedPage.getWidth(), renderedPage.getHeight());
+            return encodePng(renderedPage);
+        }
+    }
+
+    /**
+     * Measures what rendering a PDF will cost from the page boxes alone, without parsing page content
+     */
+    public RenderFootprint measure(byte[] pdfData) throws IOException {
+        try (PDDocument document = Loader.loadPDF(pdfData)) {
+            return measure(document);
+        }
+    }
+
+    /**
+     * Like {@link #measure(byte[])}, reading the PDF from a file
+     */
+    public RenderFootprint measure(File pdfFile) throws IOException {
+        try (PDDocument document = Loader.loadPDF(pdfFile)) {
+            return measure(document);
+        }
+    }
+
+    private RenderFootprint measure(PDDocument document) {
+        float scale = renderDpi / 72f;
+        long maxPagePixels = 0;
+        for (PDPage page : document.getPages()) {
+            PDRectangle box = page.getCropBox();
+            long width = (long) Math.ceil(box.getWidth() * scale);
+            long height = (long) Math.ceil(box.getHeight() * scale);
+            // Rotated pages swap width and height, which does not change the area
+            maxPagePixels = Math.max(maxPagePixels, width * height);
+        }
+        return new RenderFootprint(document.getNumberOfPages(), maxPagePixels);
+    }
+
+    /**
+     * Creates a renderer configured for page images
+     */
+    public PDFRenderer createRenderer(PDDocument document) {
+        PDFRenderer renderer = new PDFRenderer(document);
+
+        // Disable subsampling for better rendering quality
+        renderer.setSubsamplingAllowed(false);
+        return renderer;
+    }
+
+    /**
+     * Renders a single page (0-based index) with a renderer from {@link #createRenderer}
+     */
+    public BufferedImage renderPage(PDFRenderer renderer, int pageIndex) throws IOException {
+        return renderer.renderImageWithDPI(pageIndex, renderDpi, ImageType.RGB);
+    }
+
+    /**
+     * Converts a rendered page to PNG bytes
+     */
+    public byte[] encodePng(BufferedImage renderedPage) throws IOException {
+        return PNG.encode(renderedPage);
+    }
+}
@@ -0,0 +1,113 @@
+package com.cse460.llm_assistant.service;
+
+import com.cse460.llm_assistant.model.Document;
+import com.cse460.llm_assistant.model.DocumentLshBand;
+import com.cse460.llm_assistant.model.DocumentPageSignature;
+import com.cse460.llm_assistant.repository.DocumentLshBandRepository;
+import com.cse460.llm_assistant.repository.DocumentPageSignatureRepository;
+import com.cse460.llm_assistant.repository.DocumentRepository;
+import com.cse460.llm_assistant.service.similarity.MinHash;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Finds stored documents whose text is nearly the same as a new upload's, using the MinHash
+ * signatures and LSH buckets recorded for every processed document, and matches their pages
+ * so identical pages can be copied instead of processed again.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class NearDuplicateService {
+
+    private final DocumentRepository documentRepository;
+    private final DocumentLshBandRepository bandRepository;
+    private final DocumentPageSignatureRepository pageSignatureRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${ingest.near-duplicate.enabled:true}")
+    private boolean enabled = true;
+
+    // Minimum estimated Jaccard similarity of the documents' word shingles
+    @Value("${ingest.near-duplicate.threshold:0.5}")
+    private double threshold = 0.5;
+
+    // LSH candidates whose full signatures are compared, those sharing the most buckets first
+    @Value("${ingest.near-duplicate.max-candidates:20}")
+    private int maxCandidates = 20;
+
+    /**
+     * A stored document and its estimated similarity to the upload
+     */
+    public record Match(Document source, double similarity) {
+    }
+
+    /**
+     * Returns the most similar processed document above the threshold, if any
+     */
+    public Optional<Match> findNearDuplicate(Long documentId, int[] signature) {
+        if (!enabled || signature == null) {
+            return Optional.empty();
+        }
+
+        List<Long> candidates = bandRepository.findCandidates(MinHash.buckets(signature), documentId,
+                PageRequest.of(0, maxCandidates));
+        Match best = null;
+        for (Document candidate : documentRepository.findAllById(candidates)) {
+            // Documents still processing, or failed, have no complete pages to copy
+            if (!"PROCESSED".equals(candidate.getStatus()) || candidate.getMinHashSignature() == null) {
+                continue;
+            }
+            double similarity = MinHash.similarity(signature, MinHash.decode(candidate.getMinHashSignature()));
+            if (similarity >= threshold && (best == null || similarity > best.similarity())) {
+                best = new Match(candidate, similarity);
+            }
+        }
+        return Optional.ofNullable(best);
+    }
+
+    /**
+     * Maps each page of the upload to the page of the source document with the same text and appearance
+     */
+    public Map<Integer, Integer> matchPages(Long sourceDocumentId, List<DocumentPageSignature> pages) {
+        Map<String, Integer> sourcePages = new HashMap<>();
+        for (DocumentPageSignature page : pageSignatureRepository.findByDocumentIdOrderByPageNumberAsc(sourceDocumentId)) {
+            sourcePages.putIfAbsent(page.getTextHash() + ":" + page.getRenderHash(), page.getPageNumber());
+        }
+
+        Map<Integer, Integer> matches = new HashMap<>();
+        for (DocumentPageSignature page : pages) {
+            Integer sourcePage = sourcePages.get(page.getTextHash() + ":" + page.getRenderHash());
+            if (sourcePage != null) {
+                matches.put(page.getPageNumber(), sourcePage);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Stores a document's page fingerprints and LSH buckets so later uploads can find it
+     */
+    public void record(Long documentId, int[] signature, List<DocumentPageSignature> pages) {
+        if (!enabled) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            pageSignatureRepository.saveAll(pages);
+            if (signature != null) {
+                bandRepository.saveAll(MinHash.buckets(signature).stream()
+                        .map(bucket -> DocumentLshBand.builder().documentId(documentId).bucket(bucket).build())
+                        .toList());
+            }
+        });
+    }
+}
@@ -0,0 +1,144 @@
+package com.cse460.llm_assistant.service;
+
+import com.cse460.llm_assistant.jfr.PageEncodeEvent;
+import com.cse460.llm_assistant.jfr.PageRenderEvent;
+import com.cse460.llm_assistant.model.Document;
+import com.cse460.llm_assistant.model.DocumentImage;
+import com.cse460.llm_assistant.repository.DocumentImageRepository;
+import com.cse460.llm_assistant.repository.DocumentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.springframework.stereotype.Service;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Renders page images on first access, for documents ingested without eager rendering and for
+ * images evicted from the image store. Concurrent requests for the same page share one render,
+ * and the result is stored so later requests are served from disk.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PageRenderService {
+
+    private final DocumentRepository documentRepository;
+    private final DocumentImageRepository imageRepository;
+    private final ImageStorageService imageStorageService;
+    private final SourcePdfStorageService sourcePdfStorageService;
+    private final MultimodalPdfExtractor pdfExtractor;
+
+    private final SingleFlight<Long, DocumentImage> renders = new SingleFlight<>();
+
+    /**
+     * Registers one unrendered image entry per page so the pages can be listed and requested
+     */
+    public void registerPages(Document document, int pageCount) {
+        List<DocumentImage> pages = new ArrayList<>(pageCount);
+        for (int pageNum = 1; pageNum <= pageCount; pageNum++) {
+            pages.add(DocumentImage.builder()
+                    .document(document)
+                    .pageNumber(pageNum)
+                    .imageSequence(0)
+                    .format(imageStorageService.getImageFormat())
+                    .build());
+        }
+        imageRepository.saveAll(pages);
+        log.info("Registered {} pages for on-demand rendering for document ID: {}", pageCount, document.getId());
+    }
+
+    /**
+     * Renders any images of a page that have not been produced yet
+     */
+    public void ensurePageRendered(Long documentId, int pageNumber) throws IOException {
+        for (DocumentImage image : imageRepository.findUnrenderedByDocumentIdAndPageNumber(documentId, pageNumber)) {
+            ensureRendered(image);
+        }
+    }
+
+    /**
+     * Returns the entry with its image present on disk, rendering it from the source PDF if needed.
+     * Returns null when the image is missing and the document has no stored source to render from.
+     */
+    public DocumentImage ensureRendered(DocumentImage image) throws IOException {
+        if (imageStorageService.isStored(image)) {
+            return image;
+        }
+        return renders.execute(image.getId(), () -> render(image.getId()));
+    }
+
+    private DocumentImage render(Long imageId) throws IOException {
+        // Re-read inside the flight: a render that finished just before we joined may already have stored it
+        Optional<DocumentImage> current = imageRepository.findById(imageId);
+        if (current.isEmpty()) {
+            return null;
+        }
+        DocumentImage image = current.get();
+        if (imageStorageService.isStored(image)) {
+            return image;
+        }
+
+        Long documentId = image.getDocument().getId();
+        File source = documentRepository.findById(documentId)
+                .map(sourcePdfStorageService::getSourceFile)
+                .orElse(null);
+        if (source == null) {
+            log.warn("No source PDF available to render page {} of document ID: {}", image.getPageNumber(), documentId);
+            return null;
+        }
+
+        long start = System.currentTimeMillis();
+        DocumentImage stored = renderAndStore(image, source);
+
+        log.info("Rendered page {} of document ID: {} on demand in {} ms",
+                image.getPageNumber(), documentId, System.currentTimeMillis() - start);
+        return stored;
+    }
+
+    private DocumentImage renderAndStore(DocumentImage image, File source) throws IOException {
+        Long documentId = image.getDocument().getId();
+        int pageNumber = image.getPageNumber();
+        try (PDDocument pdDocument = Loader.loadPDF(source)) {
+            if (pageNumber < 1 || pageNumber > pdDocument.getNumberOfPages()) {
+                throw new IOException("Page " + pageNumber + " is out of range for document " + documentId);
+            }
+            PDFRenderer renderer = pdfExtractor.createRenderer(pdDocument);
+
+            PageRenderEvent renderEvent = new PageRenderEvent();
+            renderEvent.begin();
+            BufferedImage renderedPage = pdfExtractor.renderPage(renderer, pageNumber - 1);
+            renderEvent.end();
+            if (renderEvent.shouldCommit()) {
+                renderEvent.documentId = documentId;
+                renderEvent.pageNumber = pageNumber;
+                renderEvent.width = renderedPage.getWidth();
+                renderEvent.height = renderedPage.getHeight();
+                renderEvent.dpi = pdfExtractor.getRenderDpi();
+                renderEvent.commit();
+            }
+
+            PageEncodeEvent encodeEvent = new PageEncodeEvent();
+            encodeEvent.begin();
+            DocumentImage stored = imageStorageService.storeRenderedImage(image, renderedPage);
+            encodeEvent.end();
+            if (encodeEvent.shouldCommit()) {
+                encodeEvent.documentId = documentId;
+                encodeEvent.pageNumber = pageNumber;
+                encodeEvent.width = renderedPage.getWidth();
+                encodeEvent.height = renderedPage.getHeight();
+                encodeEvent.format = stored.getFormat();
+                encodeEvent.encodedBytes = imageStorageService.getImageFile(stored.getImagePath()).length();
+                encodeEvent.commit();
+            }
+            return stored;
+        }
+    }
+}
@@ -1,22 +1,42 @@
 package com.cse460.llm_assistant.service;
 
+import com.cse460.llm_assistant.jfr.DocumentIngestEvent;
+import com.cse460.llm_assistant.jfr.PageEncodeEvent;
+import com.cse460.llm_assistant.jfr.PageRenderEvent;
 import com.cse460.llm_assistant.model.Document;
 import com.cse460.llm_assistant.model.DocumentContent;
 import com.cse460.llm_assistant.model.DocumentImage;
+import com.cse460.llm_assistant.model.DocumentPageSignature;
+import com.cse460.llm_assistant.model.projection.DocumentContentView;
 import com.cse460.llm_assistant.repository.DocumentContentRepository;
+import com.cse460.llm_assistant.repository.DocumentImageRepository;
 import com.cse460.llm_assistant.repository.DocumentRepository;
+import com.cse460.llm_assistant.service.similarity.MinHash;
+import com.cse460.llm_assistant.service.similarity.PageFingerprint;
+import io.micrometer.core.instrument.LongTaskTimer;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.pdfbox.Loader;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.PDFRenderer;
 import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.awt.image.BufferedImage;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
@@ -24,6 +44,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 @Service
@@ -33,21 +54,48 @@ public class PdfProcessingService {
 
     private final DocumentRepository documentRepository;
     private final DocumentContentRepository contentRepository;
-    private final EmbeddingService embeddingService;
+    // Absent when Elasticsearch is disabled; chunks are then only searchable by keyword
+    private final ObjectProvider<EmbeddingOutboxService> outboxService;
+    private final TransactionTemplate transactionTemplate;
     private final MultimodalPdfExtractor pdfExtractor;
     private final ImageStorageService imageStorageService;
+    private final SourcePdfStorageService sourcePdfStorageService;
+    private final PageRenderService pageRenderService;
+    private final IngestAdmissionService admissionService;
+    private final IngestMetrics metrics;
+    private final NearDuplicateService nearDuplicateService;
+    private final DocumentImageRepository imageRepository;
+    private final KeywordIndexService keywordIndexService;
+    private final DocumentStatusCountService statusCounts;
+    private final ChunkTextStore chunkTextStore;
+    private final IngestPipeline ingestPipeline;
 
     // Maximum content length per chunk
     private static final int MAX_CHUNK_SIZE = 1000;
 
+    // "eager" renders every page at ingest, "lazy" keeps the source PDF and renders pages on first access
+    @Value("${storage.images.render-mode:eager}")
+    private String renderMode;
+
+    // Ingests currently running, keyed by content hash
+    private final SingleFlight<String, Document> ingests = new SingleFlight<>();
+
     public Document processAndStorePdf(MultipartFile file, String title, String description) throws IOException {
+        return processAndStorePdf(file, title, description, null);
+    }
+
+    /**
+     * Like {@link #processAndStorePdf(MultipartFile, String, String)}, for an upload whose SHA-256
+     * content hash is already known, such as one computed while a resumable upload was received
+     */
+    public Document processAndStorePdf(MultipartFile file, String title, String description, String knownHash)
+            throws IOException {
         // Log the start of processing
         log.info("Starting to process file: {}, size: {}, content type: {}",
                 file.getOriginalFilename(), file.getSize(), file.getContentType());
 
         // Compute hash to check for duplicates
-        String contentHash = computeHash(file);
-        log.info("Computed hash: {}", contentHash);
+        String contentHash = knownHash != null ? knownHash : timedHash(file);
 
         // Check if the file already exists
         Optional<Document> existingDoc = documentRepository.findByContentHash(contentHash);
@@ -56,6 +104,79 @@ public class PdfProcessingService {
             return existingDoc.get();
         }
 
+        // Concurrent uploads of the same file attach to the ingest already running for it
+        // and receive its result; the title and description of the first upload are kept
+        return ingests.execute(contentHash, () -> {
+            // An ingest that finished just before this one started has already stored the document
+            Optional<Document> storedDoc = documentRepository.findByContentHash(contentHash);
+            if (storedDoc.isPresent()) {
+                log.info("Document was stored concurrently with ID: {}", storedDoc.get().getId());
+                return storedDoc.get();
+            }
+
+            // A PDF is parsed from a file on disk, so its bytes are never held in memory as a whole
+            MultipartFile upload = isPdf(file) ? spool(file) : file;
+            try {
+                // Reserve memory for this upload before doing any heavy work
+                try (IngestAdmissionService.Reservation reservation = admissionService.admit(estimateIngestCost(upload))) {
+                    LongTaskTimer.Sample active = metrics.startIngest();
+                    DocumentIngestEvent ingestEvent = new DocumentIngestEvent();
+                    ingestEvent.begin();
+                    Document ingested = null;
+                    try {
+                        ingested = ingest(upload, title, description, contentHash);
+                        return ingested;
+                    } finally {
+                        active.stop();
+                        ingestEvent.end();
+                        if (ingestEvent.shouldCommit()) {
+                            ingestEvent.filename = upload.getOriginalFilename();
+                            ingestEvent.fileSize = upload.getSize();
+                            if (ingested != null) {
+                                ingestEvent.documentId = ingested.getId();
+                                ingestEvent.pageCount = ingested.getPageCount() == null ? 0 : ingested.getPageCount();
+                                ingestEvent.status = ingested.getStatus();
+                            } else {
+                                ingestEvent.status = "FAILED";
+                            }
+                            ingestEvent.commit();
+                        }
+                    }
+                }
+            } finally {
+                if (upload != file) {
+                    Files.deleteIfExists(((SpooledUpload) upload).getPath());
+                }
+            }
+        });
+    }
+
+    /**
+     * Copies an upload that is not already on disk to a temporary file, streaming it
+     */
+    private MultipartFile spool(MultipartFile file) throws IOException {
+        if (file instanceof SpooledUpload) {
+            return file;
+        }
+        Path path = Files.createTempFile("ingest-", ".pdf");
+        try (InputStream in = file.getInputStream()) {
+            Files.copy(in, path, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(path);
+            throw e;
+        }
+        return new SpooledUpload(path, file.getOriginalFilename(), file.getContentType(), file.getSize());
+    }
+
+    private String timedHash(MultipartFile file) throws IOException {
+        Timer.Sample hashTimer = metrics.startTimer();
+        String contentHash = computeHash(file);
+        metrics.recordStage(IngestMetrics.HASH, hashTimer);
+        log.debug("Computed hash: {}", contentHash);
+        return contentHash;
+    }
+
+    private Document ingest(MultipartFile file, String title, String description, String contentHash) throws IOException {
         // Create new document
         Document document = Document.builder()
                 .title(title == null ? file.getOriginalFilename() : title)
@@ -68,13 +189,29 @@ public class PdfProcessingService {
                 .contentHash(contentHash)
                 .build();
 
-        log.info("Saving document metadata");
-        document = documentRepository.save(document);
+        log.debug("Saving document metadata");
+        try {
+            Document created = document;
+            // The status counters change in the same transaction as the document, so they never drift
+            document = transactionTemplate.execute(status -> {
+                Document saved = documentRepository.save(created);
+                statusCounts.transition(null, saved.getStatus());
+                return saved;
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Another node stored the same file between our duplicate check and this insert
+            Optional<Document> winner = documentRepository.findByContentHash(contentHash);
+            if (winner.isPresent()) {
+                log.info("Document was stored by another node with ID: {}", winner.get().getId());
+                return winner.get();
+            }
+            throw e;
+        }
         log.info("Document saved with ID: {}", document.getId());
 
         try {
             // Process based on content type
-            if (file.getContentType() != null && file.getContentType().toLowerCase().contains("pdf")) {
+            if (isPdf(file)) {
                 log.info("Processing PDF file");
                 processPdfFile(document, file);
             }
@@ -86,51 +223,101 @@ public class PdfProcessingService {
 
             document.setStatus("PROCESSED");
             document.setProcessedAt(LocalDateTime.now());
-            log.info("Document processed successfully");
-
-            // Save document before generating embeddings
-            document = documentRepository.save(document);
-
-            // Generate embeddings
-            embeddingService.processDocumentEmbeddings(document);
-
+            metrics.countBytes(file.getSize());
+            // Chunks are embedded and indexed in the background from the outbox
+            log.info("Document {} processed successfully with {} pages", document.getId(), document.getPageCount());
         } catch (Exception e) {
             log.error("Error processing file", e);
             document.setStatus("FAILED");
         }
 
         log.info("Updating document status to {}", document.getStatus());
-        return documentRepository.save(document);
+        Document finished = document;
+        return transactionTemplate.execute(status -> {
+            Document saved = documentRepository.save(finished);
+            statusCounts.transition("PROCESSING", saved.getStatus());
+            return saved;
+        });
     }
 
     private void processPdfFile(Document document, MultipartFile file) throws IOException {
         log.debug("Starting PDF processing using PDFBox 3.0.4");
 
-        byte[] pdfData = file.getBytes();
-
-        try (PDDocument pdDocument = Loader.loadPDF(pdfData)) {
+        Timer.Sample parseTimer = metrics.startTimer();
+        try (PDDocument pdDocument = loadPdf(file)) {
+            metrics.recordStage(IngestMetrics.PARSE, parseTimer);
             int pageCount = pdDocument.getNumberOfPages();
             document.setPageCount(pageCount);
             log.info("PDF loaded successfully with {} pages", pageCount);
 
-            // Extract text from the entire document at once
+            // Extract text page by page
+            List<String> pageTexts = new ArrayList<>(pageCount);
             PDFTextStripper stripper = new PDFTextStripper();
-            String allText = stripper.getText(pdDocument);
-            log.info("Extracted {} characters of text from the entire document", allText.length());
-
-            // Also extract text page by page for better organization
             for (int pageNum = 1; pageNum <= pageCount; pageNum++) {
+                Timer.Sample textTimer = metrics.startTimer();
                 stripper.setStartPage(pageNum);
                 stripper.setEndPage(pageNum);
                 String pageText = stripper.getText(pdDocument);
+                metrics.recordStage(IngestMetrics.TEXT, textTimer);
                 log.debug("Page {}: extracted {} characters", pageNum, pageText.length());
+                pageTexts.add(pageText);
+            }
 
-                // Store text in chunks
-                storeTextChunks(document, pageNum, pageText);
+            // Pages identical to a page of a near-duplicate document copy its vectors and images
+            Timer.Sample similarityTimer = metrics.startTimer();
+            int[] signature = MinHash.signature(String.join("\n", pageTexts));
+            List<DocumentPageSignature> pageSignatures = pageSignatures(document, pdDocument, pageTexts);
+            Map<Integer, Integer> reusedPages = findReusablePages(document, signature, pageSignatures);
+            metrics.recordStage(IngestMetrics.SIMILARITY, similarityTimer);
+
+            Map<Integer, List<DocumentContentView>> sourceChunks = reusedPages.isEmpty() ? Map.of()
+                    : contentRepository.findByDocumentIdOrderByPageNumberAscChunkSequenceAsc(document.getNearDuplicateOfId())
+                            .stream()
+                            .collect(Collectors.groupingBy(DocumentContentView::getPageNumber));
+            Map<Integer, List<String>> sourceTexts = reusedPages.isEmpty() ? Map.of()
+                    : chunkTextStore.readDocument(document.getNearDuplicateOfId());
+
+            // Pages are rendered here, since a PDDocument is not thread-safe, and handed to the
+            // pipeline stages, which store each page's chunks and image while the next one renders
+            PDFRenderer renderer = isLazyRendering() ? null : pdfExtractor.createRenderer(pdDocument);
+            AtomicInteger storedImages = new AtomicInteger();
+            IngestPipeline.Run run = ingestPipeline.start();
+            try {
+                // Keep the source so pages can be rendered when they are first requested or after eviction
+                run.writeFile(() -> document.setSourcePath(sourcePdfStorageService.storeSource(document, file.getInputStream())));
+                for (int pageNum = 1; pageNum <= pageCount; pageNum++) {
+                    int page = pageNum;
+                    String pageText = pageTexts.get(pageNum - 1);
+                    Integer sourcePage = reusedPages.get(pageNum);
+                    List<DocumentContentView> pageSourceChunks = sourcePage == null ? null
+                            : sourceChunks.getOrDefault(sourcePage, List.of());
+                    List<String> pageSourceTexts = sourcePage == null ? null
+                            : sourceTexts.getOrDefault(sourcePage, List.of());
+                    // Store text in chunks
+                    run.storeChunks(() -> storeTextChunks(document, page, pageText, pageSourceChunks, pageSourceTexts));
+
+                    if (renderer != null) {
+                        if (sourcePage != null && copyPageImages(document, pageNum, sourcePage)) {
+                            storedImages.incrementAndGet();
+                        } else {
+                            processImage(run, document, renderer, pageNum, storedImages);
+                        }
+                    }
+                }
+            } finally {
+                run.await();
+            }
+
+            if (renderer == null) {
+                pageRenderService.registerPages(document, pageCount);
+            } else {
+                log.info("Completed page rendering for document ID: {}, stored {} of {} pages",
+                        document.getId(), storedImages.get(), pageCount);
             }
+            metrics.countPages(pageCount);
 
-            // Extract and store images
-            processImages(document, pdfData);
+            // Recorded last, so a later upload only copies from a document whose pages are all stored
+            nearDuplicateService.record(document.getId(), signature, pageSignatures);
         } catch (Exception e) {
             log.error("Error processing PDF: {}", e.getMessage(), e);
             throw e;
@@ -138,66 +325,185 @@ public class PdfProcessingService {
     }
 
     /**
-     * Extract and store images from the PDF
+     * Parses the upload; a spooled upload is read from its file rather than loaded into memory
      */
-    private void processImages(Document document, byte[] pdfData) {
-        try {
-            // Extract images using the MultimodalPdfExtractor
-            // This will now render each page as an image rather than extracting embedded images
-            Map<Integer, List<byte[]>> pageImagesMap = pdfExtractor.extractImages(pdfData);
+    private PDDocument loadPdf(MultipartFile file) throws IOException {
+        if (file instanceof SpooledUpload spooled) {
+            return Loader.loadPDF(spooled.getPath().toFile());
+        }
+        return Loader.loadPDF(file.getBytes());
+    }
 
-            if (pageImagesMap.isEmpty()) {
-                log.info("No images were rendered from document ID: {}", document.getId());
-                return;
+    /**
+     * Fingerprints of each page's text and appearance; a page that cannot be fingerprinted gets none and is never reused
+     */
+    private List<DocumentPageSignature> pageSignatures(Document document, PDDocument pdDocument, List<String> pageTexts) {
+        List<DocumentPageSignature> signatures = new ArrayList<>(pageTexts.size());
+        for (int i = 0; i < pageTexts.size(); i++) {
+            try {
+                signatures.add(DocumentPageSignature.builder()
+                        .documentId(document.getId())
+                        .pageNumber(i + 1)
+                        .textHash(PageFingerprint.textHash(pageTexts.get(i)))
+                        .renderHash(PageFingerprint.renderHash(pdDocument.getPage(i)))
+                        .build());
+            } catch (IOException e) {
+                log.debug("Could not fingerprint page {} of document {}: {}", i + 1, document.getId(), e.getMessage());
             }
+        }
+        return signatures;
+    }
 
-            log.info("Successfully rendered {} pages as images for document ID: {}",
-                    pageImagesMap.size(), document.getId());
+    /**
+     * Looks for a near-duplicate of the document and maps its pages to the identical pages of it
+     */
+    private Map<Integer, Integer> findReusablePages(Document document, int[] signature,
+                                                    List<DocumentPageSignature> pageSignatures) {
+        if (signature == null) {
+            return Map.of();
+        }
+        document.setMinHashSignature(MinHash.encode(signature));
 
-            // Process each page's rendered image
-            for (Map.Entry<Integer, List<byte[]>> entry : pageImagesMap.entrySet()) {
-                int pageNum = entry.getKey();
-                List<byte[]> images = entry.getValue();
+        Optional<NearDuplicateService.Match> match = nearDuplicateService.findNearDuplicate(document.getId(), signature);
+        if (match.isEmpty()) {
+            return Map.of();
+        }
+        Document source = match.get().source();
+        Map<Integer, Integer> reusedPages = nearDuplicateService.matchPages(source.getId(), pageSignatures);
+
+        document.setNearDuplicateOfId(source.getId());
+        document.setNearDuplicateSimilarity(match.get().similarity());
+        document.setReusedPageCount(reusedPages.size());
+        metrics.countNearDuplicate();
+        metrics.countReusedPages(reusedPages.size());
+        log.info("Document {} is a near-duplicate of document {} (similarity {}), reusing {} of {} pages",
+                document.getId(), source.getId(), String.format("%.2f", match.get().similarity()),
+                reusedPages.size(), pageSignatures.size());
+        return reusedPages;
+    }
 
-                log.info("Processing rendered image for page {} of document {}, found {} images",
-                        pageNum, document.getId(), images.size());
+    /**
+     * Renders a page and hands it to the files stage to be encoded and stored. A page that cannot
+     * be rendered or stored is logged and skipped rather than failing the document.
+     */
+    private void processImage(IngestPipeline.Run run, Document document, PDFRenderer renderer, int pageNum,
+                              AtomicInteger storedImages) throws IOException {
+        run.acquireRaster();
+        BufferedImage renderedPage;
+        try {
+            Timer.Sample renderTimer = metrics.startTimer();
+            PageRenderEvent renderEvent = new PageRenderEvent();
+            renderEvent.begin();
+            renderedPage = pdfExtractor.renderPage(renderer, pageNum - 1);
+            renderEvent.end();
+            metrics.recordStage(IngestMetrics.RENDER, renderTimer);
+            if (renderEvent.shouldCommit()) {
+                renderEvent.documentId = document.getId();
+                renderEvent.pageNumber = pageNum;
+                renderEvent.width = renderedPage.getWidth();
+                renderEvent.height = renderedPage.getHeight();
+                renderEvent.dpi = pdfExtractor.getRenderDpi();
+                renderEvent.commit();
+            }
+        } catch (Exception e) {
+            run.releaseRaster();
+            // Don't fail the whole process if a page cannot be rendered
+            log.error("Error rendering page {} of document ID: {}: {}",
+                    pageNum, document.getId(), e.getMessage(), e);
+            return;
+        }
 
-                // Store the rendered page image
-                for (int i = 0; i < images.size(); i++) {
-                    byte[] imageData = images.get(i);
+        // Verify that the rendered image has content
+        if (renderedPage.getWidth() <= 1 || renderedPage.getHeight() <= 1) {
+            run.releaseRaster();
+            log.warn("Page {} rendered with invalid dimensions: {}x{}",
+                    pageNum, renderedPage.getWidth(), renderedPage.getHeight());
+            return;
+        }
 
-                    // Validate image data before storing
-                    if (imageData == null || imageData.length < 100) {
-                        log.warn("Skipping invalid image data for page {}, sequence {}: {} bytes",
-                                pageNum, i, (imageData != null) ? imageData.length : 0);
-                        continue;
-                    }
+        run.writeRaster(() -> {
+            try {
+                // The codec encodes straight into the image file, so this stage includes the write
+                Timer.Sample encodeTimer = metrics.startTimer();
+                PageEncodeEvent encodeEvent = new PageEncodeEvent();
+                encodeEvent.begin();
+                String imagePath = imageStorageService.writeImage(document.getId(), renderedPage, pageNum, 0);
+                encodeEvent.end();
+                metrics.recordStage(IngestMetrics.ENCODE, encodeTimer);
+                if (encodeEvent.shouldCommit()) {
+                    encodeEvent.documentId = document.getId();
+                    encodeEvent.pageNumber = pageNum;
+                    encodeEvent.width = renderedPage.getWidth();
+                    encodeEvent.height = renderedPage.getHeight();
+                    encodeEvent.format = imageStorageService.getImageFormat();
+                    encodeEvent.encodedBytes = imageStorageService.getImageFile(imagePath).length();
+                    encodeEvent.commit();
+                }
 
-                    log.info("Storing image for page {}, sequence {}, size: {} bytes",
-                            pageNum, i, imageData.length);
+                Timer.Sample storeTimer = metrics.startTimer();
+                DocumentImage storedImage = imageStorageService.saveImage(document, imagePath, pageNum, 0);
+                metrics.recordStage(IngestMetrics.STORE, storeTimer);
 
-                    try {
-                        // Store the image using the existing service
-                        DocumentImage storedImage = imageStorageService.storeImage(document, imageData, pageNum, i);
+                storedImages.incrementAndGet();
+                log.debug("Stored image with ID {} for page {}", storedImage.getId(), pageNum);
+            } catch (Exception e) {
+                log.error("Error storing page {} of document ID: {}: {}",
+                        pageNum, document.getId(), e.getMessage(), e);
+            }
+        });
+    }
 
-                        if (storedImage != null) {
-                            log.info("Successfully stored image with ID {} for page {} with sequence {}",
-                                    storedImage.getId(), pageNum, i);
-                        } else {
-                            log.warn("Failed to store image for page {} with sequence {}", pageNum, i);
-                        }
-                    } catch (Exception e) {
-                        log.error("Error storing image for page {} with sequence {}: {}",
-                                pageNum, i, e.getMessage(), e);
-                    }
-                }
+    /**
+     * Copies the stored images of the near-duplicate's page, returning false if there are none to copy
+     */
+    private boolean copyPageImages(Document document, int pageNum, int sourcePage) {
+        List<DocumentImage> sourceImages = imageRepository.findRenderedByDocumentIdAndPageNumber(
+                document.getNearDuplicateOfId(), sourcePage);
+        if (sourceImages.isEmpty()) {
+            return false;
+        }
+        for (DocumentImage sourceImage : sourceImages) {
+            if (imageStorageService.copyImage(sourceImage, document, pageNum) == null) {
+                return false;
             }
+        }
+        log.debug("Copied {} images for page {} from page {} of document {}",
+                sourceImages.size(), pageNum, sourcePage, document.getNearDuplicateOfId());
+        return true;
+    }
 
-            log.info("Completed page rendering for document ID: {}", document.getId());
-        } catch (Exception e) {
-            // Don't fail the whole process if image extraction fails
-            log.error("Error rendering pages from document ID: {}", document.getId(), e);
+    /**
+     * Estimates the memory an upload needs from its size, page count and rendered page area.
+     * Measuring parses the PDF's page tree, so it runs under a reservation of its own.
+     */
+    private long estimateIngestCost(MultipartFile file) {
+        if (file instanceof SpooledUpload spooled) {
+            try (IngestAdmissionService.Reservation probe =
+                         admissionService.admit(admissionService.estimateCost(file.getSize(), 1, 0, 0, false))) {
+                // The upload is parsed from disk, so only one copy of it counts
+                MultimodalPdfExtractor.RenderFootprint footprint = pdfExtractor.measure(spooled.getPath().toFile());
+                return admissionService.estimateCost(file.getSize(), 1, footprint.pageCount(),
+                        renderedPixels(footprint), false);
+            } catch (IOException e) {
+                log.warn("Could not measure {} for admission, estimating from file size: {}",
+                        file.getOriginalFilename(), e.getMessage());
+                return admissionService.estimateCost(file.getSize(), 1, 0, 0, false);
+            }
         }
+        return admissionService.estimateCost(file.getSize(), 0, 0, false);
+    }
+
+    private long renderedPixels(MultimodalPdfExtractor.RenderFootprint footprint) {
+        // Rendering waits while the pipeline holds as many of the document's pages as it may
+        return isLazyRendering() ? 0 : footprint.maxPagePixels() * ingestPipeline.getRastersPerDocument();
+    }
+
+    private boolean isPdf(MultipartFile file) {
+        return file.getContentType() != null && file.getContentType().toLowerCase().contains("pdf");
+    }
+
+    private boolean isLazyRendering() {
+        return "lazy".equalsIgnoreCase(renderMode);
     }
 
     private void processTextFile(Document document, MultipartFile file) throws IOException {
@@ -207,7 +513,7 @@ public class PdfProcessingService {
 
         // Store as a single page
         document.setPageCount(1);
-        storeTextChunks(document, 1, text);
+        storeTextChunks(document, 1, text, null, null);
     }
 
     private String readFromInputStream(InputStream inputStream) throws IOException {
@@ -216,25 +522,73 @@ public class PdfProcessingService {
         }
     }
 
-    private void storeTextChunks(Document document, int pageNum, String pageText) {
+    /**
+     * Stores a page's chunks and queues them for indexing. Chunks with the same text as the chunk in
+     * the same position of sourceChunks, the matching page of a near-duplicate with the given
+     * texts, copy its vector.
+     */
+    private void storeTextChunks(Document document, int pageNum, String pageText,
+                                 List<DocumentContentView> sourceChunks, List<String> sourceTexts) throws IOException {
         // Simple chunking by size
         List<String> chunks = splitTextIntoChunks(pageText);
-        log.info("Split text into {} chunks for page {}", chunks.size(), pageNum);
+        log.debug("Split text into {} chunks for page {}", chunks.size(), pageNum);
 
+        Timer.Sample persistTimer = metrics.startTimer();
+        List<DocumentContent> contents = new ArrayList<>(chunks.size());
         for (int i = 0; i < chunks.size(); i++) {
-            DocumentContent content = DocumentContent.builder()
+            contents.add(DocumentContent.builder()
                     .document(document)
                     .pageNumber(pageNum)
                     .chunkSequence(i)
                     .content(chunks.get(i))
-                    .build();
+                    .build());
+        }
+        List<Long> sourceContentIds = null;
+        if (sourceChunks != null) {
+            sourceContentIds = new ArrayList<>(chunks.size());
+            for (int i = 0; i < chunks.size(); i++) {
+                boolean same = i < sourceChunks.size() && i < sourceTexts.size() && chunks.get(i).equals(sourceTexts.get(i));
+                sourceContentIds.add(same ? sourceChunks.get(i).getId() : null);
+            }
+        }
+
+        // The text is stored first, so a committed chunk always has its text
+        chunkTextStore.putPage(document.getId(), pageNum, chunks);
+
+        // The outbox entries commit with their chunks, so no stored chunk can miss being indexed
+        List<Long> sources = sourceContentIds;
+        EmbeddingOutboxService outbox = outboxService.getIfAvailable();
+        List<DocumentContent> saved = transactionTemplate.execute(status -> {
+            List<DocumentContent> stored = contentRepository.saveAll(contents);
+            if (outbox != null) {
+                if (sources == null) {
+                    outbox.enqueue(stored);
+                } else {
+                    outbox.enqueue(stored, sources);
+                }
+            }
+            return stored;
+        });
+        metrics.recordStage(IngestMetrics.PERSIST, persistTimer);
 
-            contentRepository.save(content);
-            log.debug("Saved chunk {} for page {}", i, pageNum);
+        try {
+            keywordIndexService.addChunks(saved);
+        } catch (UncheckedIOException e) {
+            // The chunks are stored; the keyword index picks them up when it is rebuilt at startup
+            log.warn("Failed to add chunks of page {} of document {} to the keyword index: {}",
+                    pageNum, document.getId(), e.getMessage());
         }
+        metrics.countChunks(chunks.size());
     }
 
-    private List<String> splitTextIntoChunks(String text) {
+    /**
+     * Where a chunk starts in the text of its page
+     */
+    static int pageOffsetOf(int chunkSequence) {
+        return chunkSequence * MAX_CHUNK_SIZE;
+    }
+
+    static List<String> splitTextIntoChunks(String text) {
         List<String> chunks = new ArrayList<>();
 
         // Simple split by character count
@@ -245,10 +599,19 @@ public class PdfProcessingService {
         return chunks;
     }
 
-    private String computeHash(MultipartFile file) {
+    // Content hashes are unique, so a failed hash must not fall back to a shared placeholder value
+    static String computeHash(MultipartFile file) throws IOException {
         try {
             MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hashBytes = digest.digest(file.getBytes());
+            // Streamed, so hashing never holds the whole upload in memory
+            try (InputStream in = file.getInputStream()) {
+                byte[] buffer = new byte[64 * 1024];
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, n);
+                }
+            }
+            byte[] hashBytes = digest.digest();
             StringBuilder hexString = new StringBuilder();
             for (byte hashByte : hashBytes) {
                 String hex = Integer.toHexString(0xff & hashByte);
@@ -256,9 +619,8 @@ public class PdfProcessingService {
                 hexString.append(hex);
             }
             return hexString.toString();
-        } catch (NoSuchAlgorithmException | IOException e) {
-            log.error("Error computing hash", e);
-            return "";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
         }
     }
 }
\ No newline at end of file
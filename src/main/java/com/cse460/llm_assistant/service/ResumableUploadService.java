@@ -0,0 +1,369 @@
+package com.cse460.llm_assistant.service;
+
+import com.cse460.llm_assistant.model.Document;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Resumable uploads for large PDFs: a session is created with the file's size, its bytes arrive in
+ * any number of ranges, and finalizing it ingests the file. Ranges are appended to a spool file
+ * and fed to a SHA-256 digest as they arrive, so bytes received before a connection dropped are
+ * kept, and the content hash is ready at finalize without reading the file again. Sessions live
+ * in memory; spool files left by a restart are removed at startup.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ResumableUploadService {
+
+    private static final String SPOOL_SUFFIX = ".part";
+
+    private final PdfProcessingService pdfProcessingService;
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+
+    @Value("${storage.uploads.location:./uploads/sessions}")
+    private String location = "./uploads/sessions";
+
+    @Value("${storage.uploads.max-size-mb:4096}")
+    private long maxSizeMb = 4096;
+
+    // Sessions that receive no bytes for this long are dropped with their spool file
+    @Value("${storage.uploads.session-ttl-ms:86400000}")
+    private long sessionTtlMillis = 86_400_000;
+
+    private Path directory;
+
+    /**
+     * Progress of an upload: the next byte expected is at offset
+     */
+    public record UploadStatus(String uploadId, String filename, long offset, long size) {
+        public boolean isComplete() {
+            return offset == size;
+        }
+    }
+
+    private static final class Session {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final String id;
+        private final String filename;
+        private final String contentType;
+        private final String title;
+        private final String description;
+        private final long size;
+        private final Path spool;
+        private final FileChannel channel;
+        private final MessageDigest digest;
+        private long offset;
+        private String contentHash;
+        private boolean finalizing;
+        private boolean removed;
+        private volatile long lastActivity = System.currentTimeMillis();
+
+        private Session(String id, String filename, String contentType, String title, String description,
+                        long size, Path spool, FileChannel channel, MessageDigest digest) {
+            this.id = id;
+            this.filename = filename;
+            this.contentType = contentType;
+            this.title = title;
+            this.description = description;
+            this.size = size;
+            this.spool = spool;
+            this.channel = channel;
+            this.digest = digest;
+        }
+
+        private UploadStatus status() {
+            return new UploadStatus(id, filename, offset, size);
+        }
+    }
+
+    @PostConstruct
+    void open() throws IOException {
+        directory = Paths.get(location);
+        Files.createDirectories(directory);
+        // Sessions do not survive a restart, so neither do their partial files
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(f -> f.getFileName().toString().endsWith(SPOOL_SUFFIX)).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Starts an upload of a file of the given size
+     *
+     * @throws IllegalArgumentException if the size is not positive or above the limit
+     */
+    public UploadStatus create(String filename, String contentType, long size, String title, String description)
+            throws IOException {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Upload size must be positive");
+        }
+        if (size > maxSizeMb * 1024 * 1024) {
+            throw new IllegalArgumentException("Upload of " + size + " bytes exceeds the limit of " + maxSizeMb + " MB");
+        }
+
+        String id = UUID.randomUUID().toString();
+        Path spool = directory.resolve(id + SPOOL_SUFFIX);
+        FileChannel channel = FileChannel.open(spool, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        Session session = new Session(id, filename, contentType, title, description, size, spool, channel, sha256());
+        sessions.put(id, session);
+        log.info("Started upload {} of {} ({} bytes)", id, filename, size);
+        return session.status();
+    }
+
+    public Optional<UploadStatus> status(String uploadId) {
+        return Optional.ofNullable(sessions.get(uploadId)).map(session -> {
+            session.lock.lock();
+            try {
+                return session.status();
+            } finally {
+                session.lock.unlock();
+            }
+        });
+    }
+
+    /**
+     * Appends the bytes of a range starting at the given offset. The body is read without holding
+     * the session, so a stalled connection does not block status requests or a client resuming on
+     * a new connection; each block read is written under the session's lock at the position it
+     * belongs to. Bytes before the session's offset were already received, as when a client
+     * resends a range whose response it lost, and are skipped. Bytes read before the body fails
+     * are kept, so the client resumes from the offset the status reports. Returns empty if there
+     * is no such upload.
+     *
+     * @param end   the last byte of the range, inclusive, as in Content-Range; -1 if the range runs to the end of the body
+     * @param total the size the client gives for the whole upload; -1 if not given
+     * @throws IllegalStateException    if the range starts after the session's offset, or the upload is complete or gone
+     * @throws IllegalArgumentException if the range does not fit the upload, or the body does not match the range
+     */
+    public Optional<UploadStatus> append(String uploadId, long start, long end, long total, InputStream body)
+            throws IOException {
+        Session session = sessions.get(uploadId);
+        if (session == null) {
+            return Optional.empty();
+        }
+        if (total >= 0 && total != session.size) {
+            throw new IllegalArgumentException("Range is of a " + total + " byte upload, but the upload is "
+                    + session.size + " bytes");
+        }
+        if (end >= session.size || (end >= 0 && end < start)) {
+            throw new IllegalArgumentException("Range " + start + "-" + end + " does not fit the upload size of "
+                    + session.size + " bytes");
+        }
+        long limit = end >= 0 ? end + 1 : session.size;
+
+        long received;
+        session.lock.lock();
+        try {
+            checkReceiving(session);
+            if (start > session.offset) {
+                throw new IllegalStateException("Upload " + uploadId + " expects bytes from offset " + session.offset);
+            }
+            received = session.offset;
+        } finally {
+            session.lock.unlock();
+        }
+
+        byte[] buffer = new byte[64 * 1024];
+        long position = start;
+        int n;
+        while ((n = body.read(buffer)) >= 0) {
+            if (position + n > limit) {
+                throw new IllegalArgumentException(end >= 0
+                        ? "Body is longer than the range " + start + "-" + end
+                        : "Range runs past the upload size of " + session.size + " bytes");
+            }
+            write(session, position, buffer, n);
+            position += n;
+        }
+        if (end >= 0 && position != limit) {
+            throw new IllegalArgumentException("Body ended at byte " + position + " of the range " + start + "-" + end);
+        }
+
+        session.lock.lock();
+        try {
+            log.debug("Upload {} received {} bytes, now at {} of {}",
+                    uploadId, session.offset - received, session.offset, session.size);
+            return Optional.of(session.status());
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    /**
+     * Writes a block that was read at the given position. Only its part past the session's offset
+     * is new; another connection sending the same range may already have written the rest.
+     */
+    private void write(Session session, long position, byte[] buffer, int n) throws IOException {
+        session.lock.lock();
+        try {
+            checkReceiving(session);
+            if (position > session.offset) {
+                throw new IllegalStateException("Upload " + session.id + " expects bytes from offset " + session.offset);
+            }
+            int skip = (int) Math.min(n, session.offset - position);
+            if (skip == n) {
+                return;
+            }
+            ByteBuffer bytes = ByteBuffer.wrap(buffer, skip, n - skip);
+            while (bytes.hasRemaining()) {
+                session.channel.write(bytes, position + bytes.position());
+            }
+            session.digest.update(buffer, skip, n - skip);
+            session.offset += n - skip;
+            session.lastActivity = System.currentTimeMillis();
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    private static void checkReceiving(Session session) {
+        if (session.removed) {
+            throw new IllegalStateException("Upload " + session.id + " was aborted or expired");
+        }
+        if (session.finalizing || session.contentHash != null) {
+            throw new IllegalStateException("Upload " + session.id + " is already complete");
+        }
+    }
+
+    /**
+     * Ingests a complete upload from its spool file and ends the session. Returns empty if there
+     * is no such upload. An upload turned away by admission control can be finalized again.
+     *
+     * @throws IllegalStateException if bytes are still missing, or the upload is already being finalized
+     */
+    public Optional<Document> complete(String uploadId) throws IOException {
+        Session session = sessions.get(uploadId);
+        if (session == null) {
+            return Optional.empty();
+        }
+        session.lock.lock();
+        try {
+            if (session.finalizing) {
+                throw new IllegalStateException("Upload " + uploadId + " is already being finalized");
+            }
+            if (session.offset != session.size) {
+                throw new IllegalStateException("Upload " + uploadId + " is incomplete: received "
+                        + session.offset + " of " + session.size + " bytes");
+            }
+            if (session.contentHash == null) {
+                session.channel.close();
+                session.contentHash = HexFormat.of().formatHex(session.digest.digest());
+            }
+            session.finalizing = true;
+        } finally {
+            session.lock.unlock();
+        }
+
+        boolean retry = false;
+        try {
+            SpooledUpload upload = new SpooledUpload(session.spool, session.filename, session.contentType, session.size);
+            return Optional.of(pdfProcessingService.processAndStorePdf(upload, session.title, session.description,
+                    session.contentHash));
+        } catch (IngestRejectedException e) {
+            retry = true;
+            throw e;
+        } finally {
+            session.lock.lock();
+            try {
+                session.finalizing = false;
+                session.lastActivity = System.currentTimeMillis();
+                if (!retry) {
+                    remove(session);
+                }
+            } finally {
+                session.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Abandons an upload, returning false if there is no such upload
+     */
+    public boolean abort(String uploadId) {
+        Session session = sessions.get(uploadId);
+        if (session == null) {
+            return false;
+        }
+        session.lock.lock();
+        try {
+            if (session.finalizing) {
+                throw new IllegalStateException("Upload " + uploadId + " is already being finalized");
+            }
+            remove(session);
+        } finally {
+            session.lock.unlock();
+        }
+        return true;
+    }
+
+    /**
+     * Drops sessions that stopped receiving bytes. A session that is busy is skipped rather than
+     * waited for, so the scheduler thread is never held up by an upload.
+     */
+    @Scheduled(fixedDelayString = "${storage.uploads.cleanup-interval-ms:600000}")
+    public void expireSessions() {
+        long cutoff = System.currentTimeMillis() - sessionTtlMillis;
+        for (Session session : sessions.values()) {
+            if (session.lastActivity >= cutoff || !session.lock.tryLock()) {
+                continue;
+            }
+            try {
+                if (!session.finalizing && session.lastActivity < cutoff) {
+                    log.info("Upload {} of {} expired at {} of {} bytes",
+                            session.id, session.filename, session.offset, session.size);
+                    remove(session);
+                }
+            } finally {
+                session.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Ends a session; called holding its lock, so a connection still sending to it stops at its
+     * next block
+     */
+    private void remove(Session session) {
+        session.removed = true;
+        sessions.remove(session.id);
+        try {
+            session.channel.close();
+            Files.deleteIfExists(session.spool);
+        } catch (IOException e) {
+            log.warn("Failed to delete spool file of upload {}: {}", session.id, e.getMessage());
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.cse460.llm_assistant.service;
+
+import java.util.List;
+
+/**
+ * One chunk returned by search, with its score and snippets of its text around the query's matches
+ */
+public record SearchResult(Long documentId, Integer pageNumber, Integer chunkSequence, List<Snippet> snippets, float score) {
+}
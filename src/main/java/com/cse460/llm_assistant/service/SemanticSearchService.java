@@ -0,0 +1,139 @@
+package com.cse460.llm_assistant.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.HighlighterType;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import com.cse460.llm_assistant.jfr.ElasticsearchRequestEvent;
+import com.cse460.llm_assistant.model.EmbeddingDocument;
+import com.cse460.llm_assistant.service.embedding.EmbeddingModelType;
+import com.cse460.llm_assistant.service.vector.MaximalMarginalRelevance;
+import com.cse460.llm_assistant.service.vector.VectorMath;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Semantic search over the indexed chunks. Elasticsearch returns the nearest chunks by vector
+ * similarity, several candidates per requested result, and Maximal Marginal Relevance picks the
+ * results from them so overlapping chunks of the same passage do not fill the top k. Hits carry
+ * highlighted snippets of their content rather than the content itself.
+ */
+@Service
+@ConditionalOnProperty(name = "elasticsearch.enabled", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class SemanticSearchService {
+
+    // Control characters, unlike HTML tags, are not expected in text extracted from PDFs
+    private static final String PRE_TAG = "\u0002";
+    private static final String POST_TAG = "\u0003";
+
+    private final ElasticsearchClient client;
+    private final EmbeddingService embeddingService;
+    private final EmbeddingIndexService indexService;
+
+    // Nearest neighbours fetched per requested result, for re-ranking to choose between
+    @Value("${search.mmr.candidates-per-result:5}")
+    private int candidatesPerResult = 5;
+
+    @Value("${search.mmr.max-candidates:500}")
+    private int maxCandidates = 500;
+
+    // 1 ranks by relevance alone; lower values trade relevance for diversity
+    @Value("${search.mmr.lambda:0.7}")
+    private float defaultLambda = 0.7f;
+
+    // Target length in characters of the snippets returned per hit
+    @Value("${search.snippets.fragment-size:150}")
+    private int fragmentSize = 150;
+
+    @Value("${search.snippets.max-per-hit:2}")
+    private int maxSnippets = 2;
+
+    public List<SearchResult> search(String query, int k, Float lambda) throws IOException {
+        List<Float> queryVector = embeddingService.generateEmbedding(query);
+        int candidates = Math.min(maxCandidates, Math.max(k, k * candidatesPerResult));
+
+        ElasticsearchRequestEvent searchEvent = new ElasticsearchRequestEvent();
+        searchEvent.operation = "knn_search";
+        searchEvent.begin();
+        SearchResponse<EmbeddingDocument> response = client.search(s -> s
+                .index(indexService.alias())
+                .knn(knn -> knn
+                        .field("embedding")
+                        .queryVector(queryVector)
+                        .k(candidates)
+                        .numCandidates(Math.min(10000, candidates * 2))
+                        // Vectors of another model are not comparable with the query's
+                        .filter(sameModel(embeddingService.modelId())))
+                // The content is indexed with offsets, so the unified highlighter reads matches from
+                // the postings instead of re-analyzing every hit; a hit without any of the query's
+                // terms gets the start of its content
+                .highlight(h -> h
+                        .type(HighlighterType.Unified)
+                        .preTags(PRE_TAG)
+                        .postTags(POST_TAG)
+                        .fields("content", f -> f
+                                .fragmentSize(fragmentSize)
+                                .numberOfFragments(maxSnippets)
+                                .noMatchSize(fragmentSize)
+                                .highlightQuery(q -> q.match(m -> m.field("content").query(query)))))
+                .source(src -> src.filter(f -> f.excludes("content")))
+                .size(candidates), EmbeddingDocument.class);
+        List<Hit<EmbeddingDocument>> hits = response.hits().hits().stream()
+                .filter(hit -> hit.source() != null)
+                .toList();
+        searchEvent.documentCount = hits.size();
+        searchEvent.succeeded = true;
+        searchEvent.commit();
+
+        if (hits.isEmpty()) {
+            return List.of();
+        }
+
+        long start = System.nanoTime();
+        int dims = queryVector.size();
+        float[] queryArray = VectorMath.normalize(VectorMath.toArray(queryVector));
+        float[] rows = VectorMath.normalizeRows(
+                VectorMath.pack(hits.stream().map(hit -> hit.source().getEmbedding()).toList(), dims), dims);
+        int[] order = MaximalMarginalRelevance.rerank(queryArray, rows, dims, k, lambda == null ? defaultLambda : lambda);
+        float[] scores = new float[hits.size()];
+        VectorMath.dotAll(queryArray, rows, dims, scores);
+        log.debug("Re-ranked {} candidates to {} in {} us", hits.size(), order.length, (System.nanoTime() - start) / 1000);
+
+        List<SearchResult> results = new ArrayList<>(order.length);
+        for (int index : order) {
+            Hit<EmbeddingDocument> hit = hits.get(index);
+            EmbeddingDocument chunk = hit.source();
+            List<Snippet> snippets = hit.highlight().getOrDefault("content", List.of()).stream()
+                    .map(fragment -> Snippet.fromTagged(fragment, PRE_TAG, POST_TAG))
+                    .toList();
+            results.add(new SearchResult(chunk.getDocumentId(), chunk.getPageNumber(), chunk.getChunkSequence(),
+                    snippets, scores[index]));
+        }
+        return results;
+    }
+
+    /**
+     * Matches chunks embedded by the given model
+     */
+    static Query sameModel(String modelId) {
+        Query recorded = Query.of(q -> q.term(t -> t.field("modelId").value(modelId)));
+        if (!EmbeddingModelType.UNRECORDED.id().equals(modelId)) {
+            return recorded;
+        }
+        // Chunks indexed before the model was recorded were all embedded by this one
+        return Query.of(q -> q.bool(b -> b
+                .should(recorded)
+                .should(s -> s.bool(n -> n.mustNot(m -> m.exists(e -> e.field("modelId")))))
+                .minimumShouldMatch("1")));
+    }
+}
@@ -0,0 +1,47 @@
+package com.cse460.llm_assistant.service;
+
+import java.util.Arrays;
+
+/**
+ * A fragment of a chunk's text around the query's matches. offset is where the fragment starts in
+ * the text of its page, or null when the search backend does not report it; highlights holds the
+ * start and end of each match within the fragment, one pair after another.
+ */
+public record Snippet(String text, Integer offset, int[] highlights) {
+
+    /**
+     * The same fragment with its offset moved by the given number of characters, from its chunk's
+     * text into its page's
+     */
+    public Snippet shift(int chunkOffset) {
+        return new Snippet(text, offset == null ? null : offset + chunkOffset, highlights);
+    }
+
+    /**
+     * Parses a fragment whose matches are wrapped in the given tags, as Elasticsearch returns them
+     */
+    static Snippet fromTagged(String fragment, String preTag, String postTag) {
+        StringBuilder text = new StringBuilder(fragment.length());
+        int[] highlights = new int[8];
+        int matches = 0;
+        int from = 0;
+        int pre;
+        while ((pre = fragment.indexOf(preTag, from)) >= 0) {
+            int post = fragment.indexOf(postTag, pre + preTag.length());
+            if (post < 0) {
+                break;
+            }
+            text.append(fragment, from, pre);
+            if (matches * 2 == highlights.length) {
+                highlights = Arrays.copyOf(highlights, highlights.length * 2);
+            }
+            highlights[matches * 2] = text.length();
+            text.append(fragment, pre + preTag.length(), post);
+            highlights[matches * 2 + 1] = text.length();
+            matches++;
+            from = post + postTag.length();
+        }
+        text.append(fragment, from, fragment.length());
+        return new Snippet(text.toString(), null, Arrays.copyOf(highlights, matches * 2));
+    }
+}
@@ -0,0 +1,66 @@
+package com.cse460.llm_assistant.service;
+
+import com.cse460.llm_assistant.model.Document;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Keeps the original PDF of every document so page images can be rendered on demand and rendered
+ * again after they are evicted from the image store. Sources are stored uncompressed so a render
+ * parses the page it needs straight from the file; PDF streams are already compressed, so gzip
+ * would save little.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SourcePdfStorageService {
+
+    private final Path sourceStorageLocation;
+
+    /**
+     * Stores the original PDF of a document, read from the stream, and returns the stored filename
+     */
+    public String storeSource(Document document, InputStream pdfData) throws IOException {
+        String filename = document.getId() + ".pdf";
+        Path target = sourceStorageLocation.resolve(filename);
+
+        // Written under a temporary name and moved, so a crash never leaves a truncated source behind
+        Path temp = sourceStorageLocation.resolve(filename + ".tmp");
+        long length;
+        try (InputStream in = pdfData) {
+            length = Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        log.debug("Stored source PDF for document {} ({} bytes)", document.getId(), length);
+        return filename;
+    }
+
+    /**
+     * Gets the stored source PDF of a document, or null if none was kept
+     */
+    public File getSourceFile(Document document) {
+        if (document.getSourcePath() == null) {
+            return null;
+        }
+        File file = sourceStorageLocation.resolve(document.getSourcePath()).toFile();
+        return file.exists() ? file : null;
+    }
+
+    /**
+     * Deletes the stored source PDF of a document, if one was kept
+     */
+    public void deleteSource(Document document) throws IOException {
+        if (document.getSourcePath() != null) {
+            Files.deleteIfExists(sourceStorageLocation.resolve(document.getSourcePath()));
+        }
+    }
+}
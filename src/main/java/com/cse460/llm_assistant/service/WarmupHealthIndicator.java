@@ -0,0 +1,31 @@
+package com.cse460.llm_assistant.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports the instance out of service until the warm-up has finished. Included in the
+ * readiness group so load balancers only route to instances that serve at full speed.
+ */
+@Component
+@RequiredArgsConstructor
+public class WarmupHealthIndicator implements HealthIndicator {
+
+    private final WarmupService warmupService;
+
+    @Override
+    public Health health() {
+        String status = warmupService.getStatus();
+        Health.Builder health = switch (status) {
+            case "COMPLETE", "SKIPPED" -> Health.up();
+            case "FAILED" -> Health.down().withDetail("error", String.valueOf(warmupService.getFailure()));
+            default -> Health.outOfService();
+        };
+        return health
+                .withDetail("status", status)
+                .withDetail("steps", warmupService.getStepMillis())
+                .build();
+    }
+}
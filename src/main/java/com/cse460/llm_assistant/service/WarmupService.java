@@ -0,0 +1,154 @@
+package com.cse460.llm_assistant.service;
+
+import com.cse460.llm_assistant.service.codec.ImageCodec;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loads the embedding model and exercises the render path in the background once the
+ * application has started, so the first real request does not pay for model loading,
+ * PDFBox's font cache scan or cold JIT. {@link WarmupHealthIndicator} keeps the instance
+ * out of the readiness group until this has finished.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WarmupService {
+
+    private static final String SAMPLE_TEXT =
+            "Warm-up page: the gateway routes each request to a replica of the search service.";
+
+    // Absent when Elasticsearch is disabled, since nothing is embedded then
+    private final ObjectProvider<EmbeddingService> embeddingService;
+    private final MultimodalPdfExtractor pdfExtractor;
+    private final ImageCodec pageImageCodec;
+
+    @Value("${warmup.enabled:true}")
+    private boolean enabled = true;
+
+    // Repetitions of the sample embed and render after the first, cold one
+    @Value("${warmup.iterations:2}")
+    private int iterations = 2;
+
+    // PENDING, RUNNING, COMPLETE, SKIPPED or FAILED
+    private volatile String status = "PENDING";
+    private volatile String failure;
+    private final Map<String, Long> stepMillis = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startWarmup() {
+        if (!enabled) {
+            status = "SKIPPED";
+            return;
+        }
+        Thread thread = new Thread(this::warmUp, "warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void warmUp() {
+        status = "RUNNING";
+        long start = System.currentTimeMillis();
+        try {
+            EmbeddingService embeddings = embeddingService.getIfAvailable();
+            if (embeddings != null) {
+                timed("model", embeddings::loadModel);
+                timed("embed", () -> {
+                    for (int i = 0; i <= iterations; i++) {
+                        embeddings.generateEmbedding(SAMPLE_TEXT);
+                        embeddings.generateEmbeddings(List.of(SAMPLE_TEXT, SAMPLE_TEXT.toUpperCase()));
+                    }
+                });
+            }
+
+            byte[] samplePdf = samplePdf();
+            timed("render", () -> {
+                for (int i = 0; i <= iterations; i++) {
+                    renderSample(samplePdf);
+                }
+            });
+
+            status = "COMPLETE";
+            log.info("Warm-up completed in {} ms: {}", System.currentTimeMillis() - start, stepMillis);
+        } catch (Exception e) {
+            failure = e.getMessage();
+            status = "FAILED";
+            log.error("Warm-up failed after {} ms", System.currentTimeMillis() - start, e);
+        }
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getFailure() {
+        return failure;
+    }
+
+    /**
+     * Duration of each completed warm-up step in milliseconds
+     */
+    public Map<String, Long> getStepMillis() {
+        synchronized (stepMillis) {
+            return new LinkedHashMap<>(stepMillis);
+        }
+    }
+
+    private void renderSample(byte[] samplePdf) throws IOException {
+        pdfExtractor.extractText(samplePdf);
+        try (PDDocument document = Loader.loadPDF(samplePdf)) {
+            BufferedImage page = pdfExtractor.renderPage(pdfExtractor.createRenderer(document), 0);
+            pageImageCodec.encode(page);
+        }
+    }
+
+    // One page with text in a standard font, which makes PDFBox build its font cache
+    private static byte[] samplePdf() throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            PDPage page = new PDPage(PDRectangle.LETTER);
+            document.addPage(page);
+            try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                content.beginText();
+                content.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 12);
+                content.newLineAtOffset(72, 700);
+                content.showText(SAMPLE_TEXT);
+                content.endText();
+                content.addRect(72, 480, 300, 160);
+                content.fill();
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    private void timed(String step, WarmupStep work) throws Exception {
+        long start = System.currentTimeMillis();
+        work.run();
+        stepMillis.put(step, System.currentTimeMillis() - start);
+    }
+
+    private interface WarmupStep {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,34 @@
+package com.cse460.llm_assistant.service.codec;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+
+/**
+ * Encodes rendered page images into a storage format
+ */
+public interface ImageCodec {
+
+    /**
+     * Format name recorded on stored images, also used as the file extension
+     */
+    String format();
+
+    /**
+     * Encodes straight into a new file without buffering the encoded image in memory
+     */
+    void encode(BufferedImage image, Path target) throws IOException;
+
+    /**
+     * Encodes into a stream; the stream is left open
+     */
+    void encode(BufferedImage image, OutputStream out) throws IOException;
+
+    default byte[] encode(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(32768);
+        encode(image, out);
+        return out.toByteArray();
+    }
+}
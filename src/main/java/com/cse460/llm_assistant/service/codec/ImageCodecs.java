@@ -0,0 +1,34 @@
+package com.cse460.llm_assistant.service.codec;
+
+import java.util.Locale;
+
+/**
+ * Creates codecs from their configuration names
+ */
+public final class ImageCodecs {
+
+    public static final String PNG = "png";
+    public static final String PNG_FAST = "png-fast";
+    public static final String JPEG = "jpeg";
+
+    // Deflate level used by "png-fast"
+    private static final int FAST_COMPRESSION_LEVEL = 1;
+
+    private ImageCodecs() {
+    }
+
+    /**
+     * @param name               one of {@code png}, {@code png-fast} or {@code jpeg}
+     * @param pngCompressionLevel deflate level used by {@code png}
+     * @param jpegQuality        quality used by {@code jpeg}
+     */
+    public static ImageCodec create(String name, int pngCompressionLevel, float jpegQuality) {
+        return switch (name.toLowerCase(Locale.ROOT)) {
+            case PNG -> new PngCodec(pngCompressionLevel);
+            case PNG_FAST -> new PngCodec(FAST_COMPRESSION_LEVEL);
+            case JPEG, "jpg" -> new JpegCodec(jpegQuality);
+            default -> throw new IllegalArgumentException("Unknown image codec: " + name
+                    + ", expected one of " + PNG + ", " + PNG_FAST + ", " + JPEG);
+        };
+    }
+}
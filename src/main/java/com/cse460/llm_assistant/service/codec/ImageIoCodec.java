@@ -0,0 +1,93 @@
+package com.cse460.llm_assistant.service.codec;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.FileImageOutputStream;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+/**
+ * Base for codecs backed by an ImageIO writer. Looking up a writer is costly, so each thread
+ * keeps its own writer and write parameters and reuses them for every image it encodes.
+ */
+abstract class ImageIoCodec implements ImageCodec {
+
+    private final String writerFormat;
+    private final ThreadLocal<CachedWriter> writers = new ThreadLocal<>();
+
+    ImageIoCodec(String writerFormat) {
+        this.writerFormat = writerFormat;
+    }
+
+    /**
+     * Applies this codec's compression settings to a fresh parameter object of the writer
+     */
+    abstract void configure(ImageWriteParam param);
+
+    /**
+     * Converts the image into a layout the writer accepts, if it does not already
+     */
+    BufferedImage prepare(BufferedImage image) {
+        return image;
+    }
+
+    @Override
+    public void encode(BufferedImage image, Path target) throws IOException {
+        // FileImageOutputStream writes through a RandomAccessFile, avoiding ImageIO's stream cache
+        Files.deleteIfExists(target);
+        try (FileImageOutputStream out = new FileImageOutputStream(target.toFile())) {
+            write(image, out);
+        }
+    }
+
+    @Override
+    public void encode(BufferedImage image, OutputStream out) throws IOException {
+        // The memory cache only holds data until it is flushed to the stream on close
+        try (MemoryCacheImageOutputStream imageOut = new MemoryCacheImageOutputStream(out)) {
+            write(image, imageOut);
+        }
+    }
+
+    private void write(BufferedImage image, ImageOutputStream out) throws IOException {
+        CachedWriter cached = writers.get();
+        if (cached == null) {
+            cached = createWriter();
+            writers.set(cached);
+        }
+
+        ImageWriter writer = cached.writer();
+        try {
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(prepare(image), null, null), cached.param());
+        } catch (IOException | RuntimeException e) {
+            // Do not reuse a writer that failed part way through an image
+            writers.remove();
+            writer.dispose();
+            throw e;
+        } finally {
+            writer.setOutput(null);
+        }
+    }
+
+    private CachedWriter createWriter() throws IOException {
+        Iterator<ImageWriter> candidates = ImageIO.getImageWritersByFormatName(writerFormat);
+        if (!candidates.hasNext()) {
+            throw new IOException("No image writer available for format: " + writerFormat);
+        }
+        ImageWriter writer = candidates.next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        configure(param);
+        return new CachedWriter(writer, param);
+    }
+
+    private record CachedWriter(ImageWriter writer, ImageWriteParam param) {
+    }
+}
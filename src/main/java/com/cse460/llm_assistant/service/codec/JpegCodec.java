@@ -0,0 +1,54 @@
+package com.cse460.llm_assistant.service.codec;
+
+import javax.imageio.ImageWriteParam;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Lossy JPEG with a quality between 0 and 1. Much smaller and faster than PNG for scanned
+ * and photographic pages, at the cost of artifacts around text.
+ */
+public class JpegCodec extends ImageIoCodec {
+
+    private final float quality;
+
+    public JpegCodec(float quality) {
+        super("jpeg");
+        if (quality < 0f || quality > 1f) {
+            throw new IllegalArgumentException("JPEG quality must be between 0 and 1: " + quality);
+        }
+        this.quality = quality;
+    }
+
+    @Override
+    public String format() {
+        return "jpg";
+    }
+
+    @Override
+    void configure(ImageWriteParam param) {
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(quality);
+        param.setProgressiveMode(ImageWriteParam.MODE_DISABLED);
+    }
+
+    @Override
+    BufferedImage prepare(BufferedImage image) {
+        // Pages are rendered as RGB; anything with alpha has to be flattened for JPEG
+        if (!image.getColorModel().hasAlpha()) {
+            return image;
+        }
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rgb.createGraphics();
+        try {
+            g.drawImage(image, 0, 0, java.awt.Color.WHITE, null);
+        } finally {
+            g.dispose();
+        }
+        return rgb;
+    }
+
+    public float getQuality() {
+        return quality;
+    }
+}
@@ -0,0 +1,36 @@
+package com.cse460.llm_assistant.service.codec;
+
+import javax.imageio.ImageWriteParam;
+
+/**
+ * Lossless PNG with a deflate level from 0 (store) to 9 (smallest). Low levels encode
+ * several times faster than high ones for a modest increase in size.
+ */
+public class PngCodec extends ImageIoCodec {
+
+    private final int compressionLevel;
+
+    public PngCodec(int compressionLevel) {
+        super("png");
+        if (compressionLevel < 0 || compressionLevel > 9) {
+            throw new IllegalArgumentException("PNG compression level must be between 0 and 9: " + compressionLevel);
+        }
+        this.compressionLevel = compressionLevel;
+    }
+
+    @Override
+    public String format() {
+        return "png";
+    }
+
+    @Override
+    void configure(ImageWriteParam param) {
+        // The JDK writer derives its deflate level from quality as 9 - round(9 * quality)
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(1f - compressionLevel / 9f);
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+}
@@ -0,0 +1,66 @@
+package com.cse460.llm_assistant.service.embedding;
+
+import dev.langchain4j.model.embedding.AllMiniLmL6V2EmbeddingModel;
+import dev.langchain4j.model.embedding.AllMiniLmL6V2QuantizedEmbeddingModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * The in-process embedding models that can be selected with embedding.model. Vectors of different
+ * models are not comparable even when their dimensions match, so every indexed chunk records the
+ * id of the model that embedded it.
+ */
+public enum EmbeddingModelType {
+
+    ALL_MINILM_L6_V2("all-minilm-l6-v2", 384, AllMiniLmL6V2EmbeddingModel::new),
+    // Int8 weights: several times smaller and faster on CPU, with vectors close to the full model's
+    ALL_MINILM_L6_V2_Q("all-minilm-l6-v2-q", 384, AllMiniLmL6V2QuantizedEmbeddingModel::new);
+
+    /**
+     * The model of chunks indexed before chunks recorded their model
+     */
+    public static final EmbeddingModelType UNRECORDED = ALL_MINILM_L6_V2;
+
+    private final String id;
+    private final int dimensions;
+    private final Supplier<EmbeddingModel> factory;
+
+    EmbeddingModelType(String id, int dimensions, Supplier<EmbeddingModel> factory) {
+        this.id = id;
+        this.dimensions = dimensions;
+        this.factory = factory;
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    /**
+     * Loads the model; this reads the ONNX file and can take a few seconds
+     */
+    public EmbeddingModel create() {
+        return factory.get();
+    }
+
+    public static EmbeddingModelType fromId(String id) {
+        return Arrays.stream(values())
+                .filter(type -> type.id.equalsIgnoreCase(id))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown embedding model " + id + ", expected one of "
+                        + Arrays.stream(values()).map(EmbeddingModelType::id).collect(Collectors.joining(", "))));
+    }
+
+    /**
+     * The model recorded on an indexed chunk, given the id it was stored with
+     */
+    public static String recordedId(String storedId) {
+        return storedId == null ? UNRECORDED.id : storedId;
+    }
+}
@@ -0,0 +1,67 @@
+package com.cse460.llm_assistant.service.keyword;
+
+import com.cse460.llm_assistant.service.Snippet;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.uhighlight.LengthGoalBreakIterator;
+import org.apache.lucene.search.uhighlight.Passage;
+import org.apache.lucene.search.uhighlight.PassageFormatter;
+import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
+
+import java.io.IOException;
+import java.text.BreakIterator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Cuts snippets of about the given length around a query's matches in the hits of a search. The
+ * matches are read from the offsets stored in the postings, so the hits' text is not analyzed
+ * again; snippet offsets are relative to the field's text.
+ */
+public final class SnippetHighlighter extends UnifiedHighlighter {
+
+    public SnippetHighlighter(IndexSearcher searcher, Analyzer analyzer, int fragmentSize) {
+        super(builder(searcher, analyzer)
+                .withBreakIterator(() -> LengthGoalBreakIterator.createClosestToLength(
+                        BreakIterator.getWordInstance(Locale.ROOT), fragmentSize, 0.5f))
+                .withFormatter(new SnippetFormatter()));
+    }
+
+    /**
+     * Snippets of each hit, in the order of the hits, at most maxSnippets each
+     */
+    @SuppressWarnings("unchecked")
+    public List<List<Snippet>> snippets(String field, Query query, TopDocs topDocs, int maxSnippets) throws IOException {
+        int[] docIds = Arrays.stream(topDocs.scoreDocs).mapToInt(hit -> hit.doc).toArray();
+        int[] maxPassages = {maxSnippets};
+        Object[] formatted = highlightFieldsAsObjects(new String[]{field}, query, docIds, maxPassages).get(field);
+
+        List<List<Snippet>> snippets = new ArrayList<>(formatted.length);
+        for (Object hit : formatted) {
+            snippets.add(hit == null ? List.of() : (List<Snippet>) hit);
+        }
+        return snippets;
+    }
+
+    private static final class SnippetFormatter extends PassageFormatter {
+
+        @Override
+        public Object format(Passage[] passages, String content) {
+            List<Snippet> snippets = new ArrayList<>(passages.length);
+            for (Passage passage : passages) {
+                int start = passage.getStartOffset();
+                int[] highlights = new int[passage.getNumMatches() * 2];
+                for (int i = 0; i < passage.getNumMatches(); i++) {
+                    highlights[i * 2] = passage.getMatchStarts()[i] - start;
+                    highlights[i * 2 + 1] = passage.getMatchEnds()[i] - start;
+                }
+                snippets.add(new Snippet(content.substring(start, passage.getEndOffset()), start, highlights));
+            }
+            return snippets;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.cse460.llm_assistant.service.pipeline;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One stage of a staged pipeline: a fixed pool of workers fed by a bounded queue. Submitting to a
+ * stage whose queue is full blocks the caller until a worker takes a task, so a slow stage holds
+ * back the stages that feed it instead of letting work pile up in memory.
+ */
+public final class PipelineStage {
+
+    private final String name;
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Work done by a stage; a failure completes the task's future exceptionally
+     */
+    public interface Task {
+        void run() throws Exception;
+    }
+
+    public PipelineStage(String name, int threads, int queueCapacity) {
+        this.name = name;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "ingest-" + name + "-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, pool) -> {
+                    if (pool.isShutdown()) {
+                        throw new RejectedExecutionException("Pipeline stage " + name + " is shut down");
+                    }
+                    try {
+                        pool.getQueue().put(runnable);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException("Interrupted while waiting for pipeline stage " + name, e);
+                    }
+                });
+    }
+
+    /**
+     * Queues a task, waiting while the stage's queue is full
+     */
+    public CompletableFuture<Void> submit(Task task) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                task.run();
+                done.complete(null);
+            } catch (Throwable e) {
+                done.completeExceptionally(e);
+            }
+        });
+        return done;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Tasks waiting for a worker
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Workers running a task
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,127 @@
+package com.cse460.llm_assistant.service.similarity;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * MinHash signatures over word shingles, for estimating how much text two documents share.
+ * The fraction of equal signature slots estimates the Jaccard similarity of the shingle sets.
+ * Signatures are split into bands for locality-sensitive hashing: documents sharing any band
+ * bucket are candidates, which finds pairs above roughly 0.4 similarity with high probability.
+ */
+public final class MinHash {
+
+    public static final int NUM_HASHES = 128;
+    public static final int BANDS = 32;
+
+    private static final int ROWS_PER_BAND = NUM_HASHES / BANDS;
+    private static final int SHINGLE_WORDS = 5;
+
+    // Multiply-shift hash functions with fixed seeds, so signatures stay comparable across restarts
+    private static final long[] MULTIPLIERS = new long[NUM_HASHES];
+    private static final long[] INCREMENTS = new long[NUM_HASHES];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x6d696e68617368L);
+        for (int i = 0; i < NUM_HASHES; i++) {
+            MULTIPLIERS[i] = random.nextLong() | 1;
+            INCREMENTS[i] = random.nextLong();
+        }
+    }
+
+    private MinHash() {
+    }
+
+    /**
+     * Signature of the text's word shingles, or null if the text has no words
+     */
+    public static int[] signature(String text) {
+        long[] words = Arrays.stream(text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+                .filter(word -> !word.isEmpty())
+                .mapToLong(MinHash::hashWord)
+                .toArray();
+        if (words.length == 0) {
+            return null;
+        }
+
+        int[] signature = new int[NUM_HASHES];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        int shingles = Math.max(1, words.length - SHINGLE_WORDS + 1);
+        for (int start = 0; start < shingles; start++) {
+            long shingle = 0;
+            for (int i = start; i < Math.min(words.length, start + SHINGLE_WORDS); i++) {
+                shingle = shingle * 0x9E3779B97F4A7C15L + words[i];
+            }
+            shingle = mix(shingle);
+            for (int i = 0; i < NUM_HASHES; i++) {
+                int value = (int) ((MULTIPLIERS[i] * shingle + INCREMENTS[i]) >>> 33);
+                if (value < signature[i]) {
+                    signature[i] = value;
+                }
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * Estimated Jaccard similarity of the shingle sets behind two signatures
+     */
+    public static double similarity(int[] a, int[] b) {
+        int equal = 0;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / NUM_HASHES;
+    }
+
+    /**
+     * One bucket per band; the band number is part of the bucket so equal rows in different bands do not collide
+     */
+    public static List<Long> buckets(int[] signature) {
+        List<Long> buckets = new ArrayList<>(BANDS);
+        for (int band = 0; band < BANDS; band++) {
+            long bucket = band;
+            for (int row = 0; row < ROWS_PER_BAND; row++) {
+                bucket = bucket * 0x9E3779B97F4A7C15L + signature[band * ROWS_PER_BAND + row];
+            }
+            buckets.add(mix(bucket));
+        }
+        return buckets;
+    }
+
+    public static String encode(int[] signature) {
+        ByteBuffer buffer = ByteBuffer.allocate(NUM_HASHES * Integer.BYTES);
+        buffer.asIntBuffer().put(signature);
+        return Base64.getEncoder().encodeToString(buffer.array());
+    }
+
+    public static int[] decode(String encoded) {
+        int[] signature = new int[NUM_HASHES];
+        ByteBuffer.wrap(Base64.getDecoder().decode(encoded)).asIntBuffer().get(signature);
+        return signature;
+    }
+
+    private static long hashWord(String word) {
+        // FNV-1a, finished with a mix so short words spread over all bits
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < word.length(); i++) {
+            hash ^= word.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,107 @@
+package com.cse460.llm_assistant.service.similarity;
+
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Hashes identifying a page's text and its rendered appearance. Two pages with equal hashes
+ * produce the same chunks and the same rendered image, so one can reuse the other's results.
+ */
+public final class PageFingerprint {
+
+    private PageFingerprint() {
+    }
+
+    public static String textHash(String pageText) {
+        MessageDigest digest = sha256();
+        digest.update(pageText.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Hash of what determines how the page renders: its boxes and rotation, its content stream,
+     * the raw data of its images and forms, and its fonts. Font subset tags are ignored, since
+     * writers pick new ones on every export.
+     */
+    public static String renderHash(PDPage page) throws IOException {
+        MessageDigest digest = sha256();
+        update(digest, String.valueOf(page.getMediaBox()));
+        update(digest, String.valueOf(page.getCropBox()));
+        update(digest, String.valueOf(page.getRotation()));
+
+        try (InputStream contents = page.getContents()) {
+            digest(digest, contents);
+        }
+
+        PDResources resources = page.getResources();
+        if (resources != null) {
+            COSDictionary xObjects = resources.getCOSObject().getCOSDictionary(COSName.XOBJECT);
+            if (xObjects != null) {
+                for (COSName name : sorted(xObjects)) {
+                    update(digest, name.getName());
+                    COSBase xObject = xObjects.getDictionaryObject(name);
+                    if (xObject instanceof COSStream stream) {
+                        try (InputStream raw = stream.createRawInputStream()) {
+                            digest(digest, raw);
+                        }
+                    }
+                }
+            }
+
+            COSDictionary fonts = resources.getCOSObject().getCOSDictionary(COSName.FONT);
+            if (fonts != null) {
+                for (COSName name : sorted(fonts)) {
+                    update(digest, name.getName());
+                    if (fonts.getDictionaryObject(name) instanceof COSDictionary font) {
+                        String baseFont = font.getNameAsString(COSName.BASE_FONT);
+                        if (baseFont != null) {
+                            update(digest, baseFont.replaceFirst("^[A-Z]{6}\\+", ""));
+                        }
+                    }
+                }
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static List<COSName> sorted(COSDictionary dictionary) {
+        List<COSName> names = new ArrayList<>(dictionary.keySet());
+        names.sort(null);
+        return names;
+    }
+
+    private static void digest(MessageDigest digest, InputStream in) throws IOException {
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        // Separator, so adjacent values cannot run together
+        digest.update((byte) 0);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
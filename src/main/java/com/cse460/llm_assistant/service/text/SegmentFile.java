@@ -0,0 +1,288 @@
+package com.cse460.llm_assistant.service.text;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * One append-only file of compressed chunk text blocks. A block holds the chunks of one page:
+ * <pre>
+ * magic, crc32 of the rest, documentId, pageNumber, chunk count, raw length, compressed length,
+ * the UTF-8 length of each chunk, then the chunks' text deflated as one stream
+ * </pre>
+ * A block with page -1 and no chunks is a tombstone for its whole document. The open segment is
+ * read with positional reads; once sealed, the file no longer changes and is memory-mapped.
+ */
+public final class SegmentFile implements Closeable {
+
+    public static final int TOMBSTONE_PAGE = -1;
+
+    private static final int MAGIC = 0x43484B31;
+    private static final int HEADER_SIZE = 32;
+
+    private final int id;
+    private final Path path;
+    private final FileChannel channel;
+    private volatile MappedByteBuffer mapped;
+    private volatile long size;
+
+    /**
+     * Where a block is, and which page it holds
+     */
+    public record Block(long documentId, int pageNumber, long offset, int length) {
+        public boolean isTombstone() {
+            return pageNumber == TOMBSTONE_PAGE;
+        }
+    }
+
+    public interface BlockVisitor {
+        void visit(Block block);
+    }
+
+    private SegmentFile(int id, Path path, FileChannel channel, long size) {
+        this.id = id;
+        this.path = path;
+        this.channel = channel;
+        this.size = size;
+    }
+
+    public static SegmentFile create(int id, Path path) throws IOException {
+        return new SegmentFile(id, path, FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE), 0);
+    }
+
+    /**
+     * Opens an existing segment and visits its blocks in order. A torn or corrupt block ends the
+     * segment: it and anything after it are cut off, as left by a crash during an append.
+     */
+    public static SegmentFile open(int id, Path path, BlockVisitor visitor) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long fileSize = channel.size();
+        long end = scan(channel, fileSize, visitor);
+        if (end < fileSize) {
+            channel.truncate(end);
+        }
+        return new SegmentFile(id, path, channel, end);
+    }
+
+    /**
+     * Visits the blocks of the segment in order
+     */
+    public void forEachBlock(BlockVisitor visitor) throws IOException {
+        scan(channel, size, visitor);
+    }
+
+    public int id() {
+        return id;
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Appends an encoded block and returns its offset. Only the store's writer calls this, one
+     * append at a time.
+     */
+    public long append(ByteBuffer block, boolean fsync) throws IOException {
+        long offset = size;
+        ByteBuffer source = block.duplicate();
+        long position = offset;
+        while (source.hasRemaining()) {
+            position += channel.write(source, position);
+        }
+        if (fsync) {
+            channel.force(false);
+        }
+        size = position;
+        return offset;
+    }
+
+    /**
+     * Forces every appended block to disk
+     */
+    public void force() throws IOException {
+        channel.force(false);
+    }
+
+    /**
+     * Maps the file once no more blocks will be appended
+     */
+    public void seal() throws IOException {
+        mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+
+    /**
+     * The raw bytes of the block at the given offset
+     */
+    public ByteBuffer read(long offset, int length) throws IOException {
+        MappedByteBuffer map = mapped;
+        if (map != null) {
+            return map.slice((int) offset, length);
+        }
+        ByteBuffer block = ByteBuffer.allocate(length);
+        readFully(channel, block, offset);
+        return block.flip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Encodes the chunks of a page as one block
+     */
+    public static ByteBuffer encode(long documentId, int pageNumber, List<String> chunks) {
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        int[] lengths = new int[chunks.size()];
+        for (int i = 0; i < chunks.size(); i++) {
+            byte[] bytes = chunks.get(i).getBytes(StandardCharsets.UTF_8);
+            lengths[i] = bytes.length;
+            raw.writeBytes(bytes);
+        }
+        byte[] rawBytes = raw.toByteArray();
+        byte[] compressed = deflate(rawBytes);
+
+        ByteBuffer block = ByteBuffer.allocate(HEADER_SIZE + 4 * lengths.length + compressed.length);
+        block.putInt(MAGIC).putInt(0).putLong(documentId).putInt(pageNumber)
+                .putInt(lengths.length).putInt(rawBytes.length).putInt(compressed.length);
+        for (int length : lengths) {
+            block.putInt(length);
+        }
+        block.put(compressed);
+        CRC32 crc = new CRC32();
+        crc.update(block.array(), 8, block.capacity() - 8);
+        block.putInt(4, (int) crc.getValue());
+        return block.flip();
+    }
+
+    public static ByteBuffer tombstone(long documentId) {
+        return encode(documentId, TOMBSTONE_PAGE, List.of());
+    }
+
+    /**
+     * Decodes the chunks of a block, in chunk sequence order
+     */
+    public static List<String> decode(ByteBuffer block) {
+        int chunkCount = block.getInt(20);
+        int rawLength = block.getInt(24);
+        int compressedLength = block.getInt(28);
+        int payload = HEADER_SIZE + 4 * chunkCount;
+
+        byte[] compressed = new byte[compressedLength];
+        block.get(payload, compressed);
+        byte[] raw = inflate(compressed, rawLength);
+
+        List<String> chunks = new ArrayList<>(chunkCount);
+        int start = 0;
+        for (int i = 0; i < chunkCount; i++) {
+            int length = block.getInt(HEADER_SIZE + 4 * i);
+            chunks.add(new String(raw, start, length, StandardCharsets.UTF_8));
+            start += length;
+        }
+        return chunks;
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        // Fastest zlib level; the JDK has no LZ4 or Snappy, and the pure-Java ones are far slower
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 64);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] compressed, int rawLength) {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed);
+            byte[] raw = new byte[rawLength];
+            int read = 0;
+            while (read < rawLength && !inflater.finished()) {
+                int n = inflater.inflate(raw, read, rawLength - read);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                read += n;
+            }
+            if (read != rawLength) {
+                throw new IllegalStateException("Chunk text block is truncated");
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Chunk text block is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Visits the valid blocks before the limit and returns where they end
+     */
+    private static long scan(FileChannel channel, long limit, BlockVisitor visitor) throws IOException {
+        long offset = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (offset + HEADER_SIZE <= limit) {
+            header.clear();
+            readFully(channel, header, offset);
+            if (header.getInt(0) != MAGIC) {
+                break;
+            }
+            int chunkCount = header.getInt(20);
+            int compressedLength = header.getInt(28);
+            long length = HEADER_SIZE + 4L * chunkCount + compressedLength;
+            if (chunkCount < 0 || compressedLength < 0 || offset + length > limit) {
+                break;
+            }
+            ByteBuffer block = ByteBuffer.allocate((int) length);
+            readFully(channel, block, offset);
+            if (!hasValidChecksum(block)) {
+                break;
+            }
+            visitor.visit(new Block(block.getLong(8), block.getInt(16), offset, (int) length));
+            offset += length;
+        }
+        return offset;
+    }
+
+    private static boolean hasValidChecksum(ByteBuffer block) {
+        CRC32 crc = new CRC32();
+        crc.update(block.array(), 8, block.capacity() - 8);
+        return (int) crc.getValue() == block.getInt(4);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position);
+            if (n < 0) {
+                throw new IOException("Unexpected end of segment file");
+            }
+            position += n;
+        }
+    }
+}
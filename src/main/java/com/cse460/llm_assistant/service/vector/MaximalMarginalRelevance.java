@@ -0,0 +1,63 @@
+package com.cse460.llm_assistant.service.vector;
+
+import java.util.Arrays;
+
+/**
+ * Maximal Marginal Relevance re-ranking. Picks results one at a time, each maximizing
+ * {@code lambda * sim(query, d) - (1 - lambda) * max sim(d, picked)}, so a result that mostly
+ * repeats one already picked loses to a slightly less relevant but different one.
+ * lambda 1 ranks by relevance alone; lower values favour diversity.
+ * <p>
+ * Vectors must be unit length, so dot products are cosine similarities. Picking k of n candidates
+ * costs k passes of n dot products.
+ */
+public final class MaximalMarginalRelevance {
+
+    private MaximalMarginalRelevance() {
+    }
+
+    /**
+     * Indices of up to k candidate rows in pick order
+     */
+    public static int[] rerank(float[] query, float[] candidates, int dims, int k, float lambda) {
+        int count = candidates.length / dims;
+        k = Math.min(k, count);
+
+        float[] relevance = new float[count];
+        VectorMath.dotAll(query, candidates, dims, relevance);
+
+        // Highest similarity of each candidate to anything picked so far
+        float[] redundancy = new float[count];
+        Arrays.fill(redundancy, Float.NEGATIVE_INFINITY);
+        float[] similarity = new float[count];
+        boolean[] picked = new boolean[count];
+        int[] order = new int[k];
+
+        for (int rank = 0; rank < k; rank++) {
+            int best = -1;
+            float bestScore = Float.NEGATIVE_INFINITY;
+            for (int i = 0; i < count; i++) {
+                if (picked[i]) {
+                    continue;
+                }
+                float score = rank == 0
+                        ? relevance[i]
+                        : lambda * relevance[i] - (1 - lambda) * redundancy[i];
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = i;
+                }
+            }
+
+            order[rank] = best;
+            picked[best] = true;
+            if (rank + 1 < k) {
+                VectorMath.dotAll(candidates, best * dims, candidates, dims, similarity);
+                for (int i = 0; i < count; i++) {
+                    redundancy[i] = Math.max(redundancy[i], similarity[i]);
+                }
+            }
+        }
+        return order;
+    }
+}
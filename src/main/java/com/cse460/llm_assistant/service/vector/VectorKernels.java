@@ -0,0 +1,11 @@
+package com.cse460.llm_assistant.service.vector;
+
+/**
+ * Inner loop of the vector math: a dot product over slices of two float arrays
+ */
+interface VectorKernels {
+
+    float dot(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+    String description();
+}
@@ -0,0 +1,206 @@
+package com.cse460.llm_assistant.service.vector;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+
+/**
+ * Dot products, cosine similarity and top-k selection over float arrays. Batches of vectors are
+ * passed as one contiguous array of rows, so scoring a query against hundreds of candidates walks
+ * memory linearly instead of chasing boxed {@code List<Float>} elements.
+ * <p>
+ * Uses the JDK Vector API when the JVM runs with {@code --add-modules jdk.incubator.vector} and
+ * falls back to scalar loops otherwise; {@code -Dvector.simd=false} forces the fallback.
+ */
+@Slf4j
+public final class VectorMath {
+
+    private static final VectorKernels KERNELS = loadKernels();
+
+    private VectorMath() {
+    }
+
+    private static VectorKernels loadKernels() {
+        VectorKernels kernels = new ScalarVectorKernels();
+        if (Boolean.parseBoolean(System.getProperty("vector.simd", "true"))
+                && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                kernels = simdKernels();
+            } catch (LinkageError | ReflectiveOperationException e) {
+                log.warn("Vector API unavailable, using scalar kernels: {}", e.getMessage());
+            }
+        }
+        log.info("Vector math kernels: {}", kernels.description());
+        return kernels;
+    }
+
+    /**
+     * Loads the SIMD kernels by name; they are compiled separately, with the Vector API module
+     */
+    static VectorKernels simdKernels() throws ReflectiveOperationException {
+        return (VectorKernels) Class.forName(VectorMath.class.getPackageName() + ".SimdVectorKernels")
+                .getDeclaredConstructor()
+                .newInstance();
+    }
+
+    /**
+     * Which kernels are in use, "scalar" or "simd (&lt;bits&gt;-bit)"
+     */
+    public static String implementation() {
+        return KERNELS.description();
+    }
+
+    public static float dot(float[] a, float[] b) {
+        if (a.length != b.length) {
+            throw new IllegalArgumentException("Vector lengths differ: " + a.length + " and " + b.length);
+        }
+        return KERNELS.dot(a, 0, b, 0, a.length);
+    }
+
+    public static float norm(float[] a) {
+        return (float) Math.sqrt(KERNELS.dot(a, 0, a, 0, a.length));
+    }
+
+    public static float cosine(float[] a, float[] b) {
+        float norms = norm(a) * norm(b);
+        return norms == 0 ? 0 : dot(a, b) / norms;
+    }
+
+    /**
+     * Scales the vector to unit length in place, so dot products with other unit vectors are cosines
+     */
+    public static float[] normalize(float[] a) {
+        return normalizeRows(a, a.length);
+    }
+
+    /**
+     * Scales every row of a contiguous batch to unit length in place
+     */
+    public static float[] normalizeRows(float[] rows, int dims) {
+        for (int offset = 0; offset < rows.length; offset += dims) {
+            float norm = (float) Math.sqrt(KERNELS.dot(rows, offset, rows, offset, dims));
+            if (norm > 0) {
+                for (int i = offset; i < offset + dims; i++) {
+                    rows[i] /= norm;
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Dot product of the query with every row of the batch, written to scores
+     */
+    public static void dotAll(float[] query, float[] rows, int dims, float[] scores) {
+        dotAll(query, 0, rows, dims, scores);
+    }
+
+    /**
+     * As {@link #dotAll(float[], float[], int, float[])}, with the query read from an offset,
+     * such as a row of the batch itself
+     */
+    public static void dotAll(float[] query, int queryOffset, float[] rows, int dims, float[] scores) {
+        int count = rows.length / dims;
+        for (int row = 0; row < count; row++) {
+            scores[row] = KERNELS.dot(query, queryOffset, rows, row * dims, dims);
+        }
+    }
+
+    /**
+     * Rows of the batch with the highest dot product with the query, best first
+     */
+    public static int[] topK(float[] query, float[] rows, int dims, int k) {
+        float[] scores = new float[rows.length / dims];
+        dotAll(query, rows, dims, scores);
+        return topK(scores, k);
+    }
+
+    /**
+     * Indices of the k highest scores, best first. Keeps a k-element min-heap, so n scores cost O(n log k).
+     */
+    public static int[] topK(float[] scores, int k) {
+        k = Math.min(k, scores.length);
+        int[] heap = new int[k];
+        int size = 0;
+        for (int i = 0; i < scores.length; i++) {
+            if (size < k) {
+                heap[size] = i;
+                siftUp(heap, size++, scores);
+            } else if (k > 0 && scores[i] > scores[heap[0]]) {
+                heap[0] = i;
+                siftDown(heap, k, scores);
+            }
+        }
+
+        // Pop the heap from the back to get best-first order
+        int[] result = new int[k];
+        for (int end = k - 1; end >= 0; end--) {
+            result[end] = heap[0];
+            heap[0] = heap[end];
+            siftDown(heap, end, scores);
+        }
+        return result;
+    }
+
+    public static float[] toArray(List<Float> vector) {
+        float[] array = new float[vector.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = vector.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * Copies equal-length vectors into one contiguous batch of rows
+     */
+    public static float[] pack(List<List<Float>> vectors, int dims) {
+        float[] rows = new float[vectors.size() * dims];
+        for (int row = 0; row < vectors.size(); row++) {
+            List<Float> vector = vectors.get(row);
+            if (vector.size() != dims) {
+                throw new IllegalArgumentException("Vector " + row + " has " + vector.size() + " dimensions, expected " + dims);
+            }
+            for (int i = 0; i < dims; i++) {
+                rows[row * dims + i] = vector.get(i);
+            }
+        }
+        return rows;
+    }
+
+    private static void siftUp(int[] heap, int index, float[] scores) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (scores[heap[index]] >= scores[heap[parent]]) {
+                return;
+            }
+            swap(heap, index, parent);
+            index = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, int size, float[] scores) {
+        int index = 0;
+        while (true) {
+            int smallest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && scores[heap[left]] < scores[heap[smallest]]) {
+                smallest = left;
+            }
+            if (right < size && scores[heap[right]] < scores[heap[smallest]]) {
+                smallest = right;
+            }
+            if (smallest == index) {
+                return;
+            }
+            swap(heap, index, smallest);
+            index = smallest;
+        }
+    }
+
+    private static void swap(int[] heap, int i, int j) {
+        int tmp = heap[i];
+        heap[i] = heap[j];
+        heap[j] = tmp;
+    }
+}
@@ -0,0 +1,98 @@
+package com.cse460.llm_assistant.loadtest;
+
+import com.cse460.llm_assistant.model.EmbeddingDocument;
+import com.cse460.llm_assistant.repository.EmbeddingRepository;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stand-in for the Elasticsearch embedding repository that keeps documents in memory.
+ * Only the operations the application uses are supported; an optional per-call delay
+ * approximates the round trip to a real cluster.
+ */
+final class InMemoryEmbeddingRepository implements InvocationHandler {
+
+    private final Map<String, EmbeddingDocument> documents = new ConcurrentHashMap<>();
+    private final long latencyMillis;
+
+    private InMemoryEmbeddingRepository(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    static EmbeddingRepository create(long latencyMillis) {
+        return (EmbeddingRepository) Proxy.newProxyInstance(
+                EmbeddingRepository.class.getClassLoader(),
+                new Class<?>[]{EmbeddingRepository.class},
+                new InMemoryEmbeddingRepository(latencyMillis));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return switch (method.getName()) {
+                case "equals" -> proxy == args[0];
+                case "hashCode" -> System.identityHashCode(proxy);
+                default -> "InMemoryEmbeddingRepository[" + documents.size() + " documents]";
+            };
+        }
+
+        simulateRoundTrip();
+        int argCount = args == null ? 0 : args.length;
+        return switch (method.getName()) {
+            case "save" -> save((EmbeddingDocument) args[0]);
+            case "saveAll" -> saveAll((Iterable<?>) args[0]);
+            case "findByDocumentId" -> findByDocumentId((Long) args[0]);
+            case "findByIds" -> ((Collection<?>) args[0]).stream()
+                    .map(documents::get)
+                    .filter(Objects::nonNull)
+                    .toList();
+            case "count" -> (long) documents.size();
+            case "deleteAll" -> {
+                if (argCount == 0) {
+                    documents.clear();
+                    yield null;
+                }
+                throw new UnsupportedOperationException(method.toString());
+            }
+            default -> throw new UnsupportedOperationException(method.toString());
+        };
+    }
+
+    private EmbeddingDocument save(EmbeddingDocument document) {
+        if (document.getId() == null) {
+            document.setId(UUID.randomUUID().toString());
+        }
+        documents.put(document.getId(), document);
+        return document;
+    }
+
+    private List<EmbeddingDocument> saveAll(Iterable<?> batch) {
+        List<EmbeddingDocument> saved = new ArrayList<>();
+        for (Object document : batch) {
+            saved.add(save((EmbeddingDocument) document));
+        }
+        return saved;
+    }
+
+    private List<EmbeddingDocument> findByDocumentId(Long documentId) {
+        return documents.values().stream()
+                .filter(doc -> documentId.equals(doc.getDocumentId()))
+                .toList();
+    }
+
+    private void simulateRoundTrip() throws InterruptedException {
+        if (latencyMillis > 0) {
+            TimeUnit.MILLISECONDS.sleep(latencyMillis);
+        }
+    }
+}
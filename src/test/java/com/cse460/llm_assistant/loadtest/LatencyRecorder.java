@@ -0,0 +1,57 @@
+package com.cse460.llm_assistant.loadtest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects request latencies per endpoint and summarizes them as throughput and percentiles
+ */
+final class LatencyRecorder {
+
+    private final Map<String, Series> series = new ConcurrentSkipListMap<>();
+
+    void record(String endpoint, long nanos, boolean success) {
+        Series s = series.computeIfAbsent(endpoint, key -> new Series());
+        synchronized (s) {
+            s.latencies.add(nanos);
+        }
+        if (!success) {
+            s.errors.incrementAndGet();
+        }
+    }
+
+    String report(double elapsedSeconds) {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%-28s %8s %7s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms"));
+        series.forEach((endpoint, s) -> {
+            long[] sorted;
+            synchronized (s) {
+                sorted = s.latencies.stream().mapToLong(Long::longValue).toArray();
+            }
+            Arrays.sort(sorted);
+            out.append(String.format("%-28s %8d %7d %9.2f %9.1f %9.1f %9.1f%n",
+                    endpoint, sorted.length, s.errors.get(), sorted.length / elapsedSeconds,
+                    percentileMillis(sorted, 0.50), percentileMillis(sorted, 0.95), percentileMillis(sorted, 0.99)));
+        });
+        return out.toString();
+    }
+
+    // Nearest-rank percentile
+    static double percentileMillis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile * sorted.length);
+        return sorted[Math.max(0, rank - 1)] / 1_000_000.0;
+    }
+
+    private static final class Series {
+        private final List<Long> latencies = new ArrayList<>();
+        private final AtomicLong errors = new AtomicLong();
+    }
+}
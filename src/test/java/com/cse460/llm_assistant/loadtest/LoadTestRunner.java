@@ -0,0 +1,364 @@
+package com.cse460.llm_assistant.loadtest;
+
+import com.cse460.llm_assistant.LlmAssistantApplication;
+import com.cse460.llm_assistant.repository.EmbeddingRepository;
+import com.cse460.llm_assistant.support.SyntheticPdfGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * End-to-end load test that starts the application on a random port against in-memory H2 and an
+ * in-memory stand-in for Elasticsearch, uploads a synthetic PDF corpus at a target concurrency,
+ * then drives the read endpoints. Reports throughput and p50/p95/p99 latency per endpoint and
+ * per ingest stage.
+ * <p>
+ * Run with {@code mvn -Ploadtest -DskipTests verify}; options are passed as {@code key=value}
+ * pairs, for example {@code -Dloadtest.args="uploads=50 concurrency=8 pages=20 images=2"}.
+ * With {@code upload-mode=batch} the corpus is sent as one ZIP archive to the batch endpoint instead.
+ */
+public final class LoadTestRunner {
+
+    private static final Map<String, String> DEFAULTS = Map.of(
+            "uploads", "20",
+            "concurrency", "4",
+            "pages", "10",
+            "words", "400",
+            "images", "1",
+            "reads", "400",
+            "render-mode", "eager",
+            "upload-mode", "single",
+            "es-latency-ms", "5",
+            "seed", "42");
+
+    private final Map<String, String> options;
+    private final HttpClient client = HttpClient.newBuilder().build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LatencyRecorder latencies = new LatencyRecorder();
+
+    private String baseUrl;
+
+    private LoadTestRunner(Map<String, String> options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        // A devtools restart would re-run main without the harness options
+        System.setProperty("spring.devtools.restart.enabled", "false");
+
+        Map<String, String> options = new HashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0 || !DEFAULTS.containsKey(arg.substring(0, eq))) {
+                throw new IllegalArgumentException("Unknown option: " + arg + ", expected one of " + DEFAULTS.keySet());
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        new LoadTestRunner(options).run();
+    }
+
+    private void run() throws Exception {
+        Path storage = Files.createTempDirectory("llm-assistant-loadtest");
+        try (ConfigurableApplicationContext context = startApplication(storage)) {
+            int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            baseUrl = "http://localhost:" + port + "/api/documents";
+
+            List<byte[]> corpus = generateCorpus();
+            List<Long> documentIds = uploadPhase(corpus);
+            indexPhase(documentIds);
+            readPhase(documentIds);
+
+            System.out.println();
+            System.out.println("Ingest stages");
+            System.out.println(stageReport(context.getBean(MeterRegistry.class)));
+        }
+    }
+
+    private ConfigurableApplicationContext startApplication(Path storage) {
+        long esLatency = intOption("es-latency-ms");
+        // Passed as command-line arguments, so they take precedence over application.properties
+        String[] properties = {
+                "server.port=0",
+                "spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                "spring.datasource.driverClassName=org.h2.Driver",
+                "spring.jpa.hibernate.ddl-auto=create-drop",
+                "spring.servlet.multipart.max-file-size=512MB",
+                "spring.servlet.multipart.max-request-size=512MB",
+                "storage.images.location=" + storage.resolve("images"),
+                "storage.sources.location=" + storage.resolve("sources"),
+                "storage.chunks.location=" + storage.resolve("chunks"),
+                "storage.uploads.location=" + storage.resolve("sessions"),
+                "search.keyword.location=" + storage.resolve("keyword-index"),
+                "storage.images.render-mode=" + options.get("render-mode"),
+                "ingest.batch.parallelism=" + options.get("concurrency"),
+                "elasticsearch.enabled=false",
+                // Chunks are still embedded and indexed, into the in-memory repository registered below
+                "embedding.enabled=true",
+                "spring.autoconfigure.exclude="
+                        + "org.springframework.boot.autoconfigure.elasticsearch.ElasticsearchRestClientAutoConfiguration,"
+                        + "org.springframework.boot.autoconfigure.elasticsearch.ElasticsearchClientAutoConfiguration,"
+                        + "org.springframework.boot.autoconfigure.data.elasticsearch.ElasticsearchDataAutoConfiguration,"
+                        + "org.springframework.boot.autoconfigure.data.elasticsearch.ElasticsearchRepositoriesAutoConfiguration",
+                "management.metrics.distribution.percentiles.ingest.stage.duration=0.5,0.95,0.99",
+                // Keep percentiles for the whole run instead of the default two-minute window
+                "management.metrics.distribution.expiry.ingest.stage.duration=6h",
+                "management.metrics.distribution.buffer-length.ingest.stage.duration=1",
+                "logging.level.root=WARN",
+                "logging.level.org.apache.pdfbox=ERROR"
+        };
+        return new SpringApplicationBuilder(LlmAssistantApplication.class)
+                .initializers(context -> ((GenericApplicationContext) context).registerBean(
+                        EmbeddingRepository.class, () -> InMemoryEmbeddingRepository.create(esLatency)))
+                .run(Arrays.stream(properties).map(property -> "--" + property).toArray(String[]::new));
+    }
+
+    private List<byte[]> generateCorpus() throws IOException {
+        int uploads = intOption("uploads");
+        long seed = Long.parseLong(options.get("seed"));
+        List<byte[]> corpus = new ArrayList<>(uploads);
+        long totalBytes = 0;
+        // Distinct seeds so duplicate detection does not short-circuit the ingest
+        for (int i = 0; i < uploads; i++) {
+            byte[] pdf = SyntheticPdfGenerator.generate(intOption("pages"), intOption("words"), intOption("images"), seed + i);
+            corpus.add(pdf);
+            totalBytes += pdf.length;
+        }
+        System.out.printf("Generated %d PDFs of %d pages, %d KiB in total%n", uploads, intOption("pages"), totalBytes / 1024);
+        return corpus;
+    }
+
+    private List<Long> uploadPhase(List<byte[]> corpus) throws Exception {
+        if ("batch".equals(options.get("upload-mode"))) {
+            return batchUploadPhase(corpus);
+        }
+        List<Long> documentIds = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService executor = Executors.newFixedThreadPool(intOption("concurrency"));
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> uploads = new ArrayList<>();
+            for (int i = 0; i < corpus.size(); i++) {
+                byte[] pdf = corpus.get(i);
+                String filename = "loadtest-" + i + ".pdf";
+                uploads.add(executor.submit(() -> {
+                    HttpResponse<String> response = timed("POST /upload", multipartUpload(filename, pdf));
+                    if (response != null && response.statusCode() == 200) {
+                        documentIds.add(objectMapper.readTree(response.body()).path("id").asLong());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> upload : uploads) {
+                upload.get();
+            }
+        } finally {
+            shutdown(executor);
+        }
+
+        double minutes = (System.nanoTime() - start) / 60e9;
+        System.out.println();
+        System.out.printf("Upload phase: %d of %d documents in %.1f s, %.1f documents/min, %.1f pages/min%n",
+                documentIds.size(), corpus.size(), minutes * 60,
+                documentIds.size() / minutes, documentIds.size() * intOption("pages") / minutes);
+        return documentIds;
+    }
+
+    private List<Long> batchUploadPhase(List<byte[]> corpus) throws Exception {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(archive)) {
+            for (int i = 0; i < corpus.size(); i++) {
+                zip.putNextEntry(new ZipEntry("loadtest-" + i + ".pdf"));
+                zip.write(corpus.get(i));
+                zip.closeEntry();
+            }
+        }
+
+        List<Long> documentIds = new ArrayList<>();
+        long start = System.nanoTime();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/batch"))
+                .header("Content-Type", "application/zip")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(archive.toByteArray()))
+                .build();
+        HttpResponse<Stream<String>> response = client.send(request, HttpResponse.BodyHandlers.ofLines());
+        try (Stream<String> lines = response.body()) {
+            for (String line : (Iterable<String>) lines::iterator) {
+                JsonNode result = objectMapper.readTree(line);
+                if ("PROCESSED".equals(result.path("status").asText())) {
+                    documentIds.add(result.path("documentId").asLong());
+                }
+            }
+        }
+        latencies.record("POST /batch", System.nanoTime() - start, response.statusCode() == 200);
+
+        double minutes = (System.nanoTime() - start) / 60e9;
+        System.out.println();
+        System.out.printf("Batch upload phase: %d of %d documents in %.1f s, %.1f documents/min, %.1f pages/min%n",
+                documentIds.size(), corpus.size(), minutes * 60,
+                documentIds.size() / minutes, documentIds.size() * intOption("pages") / minutes);
+        return documentIds;
+    }
+
+    // Uploads return before their chunks are searchable, so wait for the embedding outbox to drain
+    private void indexPhase(List<Long> documentIds) throws Exception {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MINUTES.toNanos(10);
+        List<Long> waiting = new ArrayList<>(documentIds);
+        long failed = 0;
+        while (!waiting.isEmpty() && System.nanoTime() < deadline) {
+            HttpResponse<String> response = client.send(get("/" + waiting.get(0) + "/index-status"),
+                    HttpResponse.BodyHandlers.ofString());
+            JsonNode status = objectMapper.readTree(response.body());
+            if (status.path("complete").asBoolean()) {
+                failed += status.path("failed").asLong();
+                waiting.remove(0);
+            } else {
+                Thread.sleep(250);
+            }
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Index phase: %d of %d documents searchable %.1f s after the last upload, %d chunks failed%n",
+                documentIds.size() - waiting.size(), documentIds.size(), seconds, failed);
+    }
+
+    private void readPhase(List<Long> documentIds) throws Exception {
+        if (documentIds.isEmpty()) {
+            System.out.println("No documents were ingested, skipping the read phase");
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(intOption("concurrency"));
+        Random random = new Random(Long.parseLong(options.get("seed")));
+        int reads = intOption("reads");
+        int pages = intOption("pages");
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> requests = new ArrayList<>();
+            for (int i = 0; i < reads; i++) {
+                long id = documentIds.get(random.nextInt(documentIds.size()));
+                int page = 1 + random.nextInt(pages);
+                int kind = random.nextInt(4);
+                requests.add(executor.submit(() -> {
+                    switch (kind) {
+                        case 0 -> timed("GET /{id}/text", get("/" + id + "/text"));
+                        case 1 -> timed("GET /{id}/images", get("/" + id + "/images"));
+                        case 2 -> timed("GET /{id}/pages/{n}/images", get("/" + id + "/pages/" + page + "/images"));
+                        default -> readImage(id, page);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> request : requests) {
+                request.get();
+            }
+        } finally {
+            shutdown(executor);
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Read phase: %d requests in %.1f s, %.1f requests/s%n", reads, seconds, reads / seconds);
+        System.out.println();
+        System.out.println(latencies.report(seconds));
+    }
+
+    // Looks up the page's image through the listing, then fetches the image itself
+    private void readImage(long documentId, int page) throws Exception {
+        HttpResponse<String> listing = client.send(get("/" + documentId + "/pages/" + page + "/images"),
+                HttpResponse.BodyHandlers.ofString());
+        if (listing.statusCode() != 200) {
+            return;
+        }
+        JsonNode images = objectMapper.readTree(listing.body());
+        if (images.isArray() && !images.isEmpty()) {
+            timed("GET /images/{imageId}", get("/images/" + images.get(0).path("id").asLong()));
+        }
+    }
+
+    private HttpResponse<String> timed(String endpoint, HttpRequest request) {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            latencies.record(endpoint, System.nanoTime() - start, response.statusCode() < 400);
+            return response;
+        } catch (IOException | InterruptedException e) {
+            latencies.record(endpoint, System.nanoTime() - start, false);
+            return null;
+        }
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+    }
+
+    private HttpRequest multipartUpload(String filename, byte[] pdf) throws IOException {
+        String boundary = "loadtest-" + UUID.randomUUID();
+        ByteArrayOutputStream body = new ByteArrayOutputStream(pdf.length + 512);
+        body.write(("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + filename + "\"\r\n"
+                + "Content-Type: application/pdf\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.write(pdf);
+        body.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/upload"))
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                .build();
+    }
+
+    private static String stageReport(MeterRegistry registry) {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%-10s %8s %9s %9s %9s %9s %10s%n",
+                "stage", "count", "mean ms", "p50 ms", "p95 ms", "p99 ms", "total s"));
+        for (Timer timer : registry.find("ingest.stage.duration").timers()) {
+            HistogramSnapshot snapshot = timer.takeSnapshot();
+            Map<Double, Double> percentiles = new HashMap<>();
+            for (ValueAtPercentile value : snapshot.percentileValues()) {
+                percentiles.put(value.percentile(), value.value(TimeUnit.MILLISECONDS));
+            }
+            out.append(String.format("%-10s %8d %9.1f %9.1f %9.1f %9.1f %10.2f%n",
+                    timer.getId().getTag("stage"), snapshot.count(), snapshot.mean(TimeUnit.MILLISECONDS),
+                    percentiles.getOrDefault(0.5, 0.0), percentiles.getOrDefault(0.95, 0.0),
+                    percentiles.getOrDefault(0.99, 0.0), snapshot.total(TimeUnit.SECONDS)));
+        }
+        return out.toString();
+    }
+
+    private int intOption(String name) {
+        return Integer.parseInt(options.get(name));
+    }
+
+    private static void shutdown(ExecutorService executor) throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+}
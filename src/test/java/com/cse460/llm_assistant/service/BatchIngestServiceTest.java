@@ -0,0 +1,170 @@
+package com.cse460.llm_assistant.service;
+
+import com.cse460.llm_assistant.model.Document;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+class BatchIngestServiceTest {
+
+    private static final byte[] PDF = "%PDF-1.4 test".getBytes(StandardCharsets.US_ASCII);
+
+    private final PdfProcessingService pdfProcessingService = mock(PdfProcessingService.class);
+    private final BatchIngestService batchIngestService = new BatchIngestService(pdfProcessingService, 2, 0, 1, 1);
+    private final List<BatchIngestService.ItemResult> results = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        batchIngestService.shutdown();
+    }
+
+    @Test
+    void testZipEntriesAreIngestedAndNonPdfsSkipped() throws Exception {
+        AtomicLong ids = new AtomicLong();
+        when(pdfProcessingService.processAndStorePdf(any(), isNull(), isNull())).thenAnswer(invocation ->
+                Document.builder().id(ids.incrementAndGet()).status("PROCESSED").build());
+
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(zip)) {
+            addZipEntry(out, "a.pdf", PDF);
+            addZipEntry(out, "reports/b.pdf", PDF);
+            addZipEntry(out, "notes.txt", "text".getBytes(StandardCharsets.UTF_8));
+            addZipEntry(out, "renamed.pdf", "not a pdf".getBytes(StandardCharsets.UTF_8));
+        }
+
+        Map<String, Object> summary = batchIngestService.ingestArchive(
+                new ByteArrayInputStream(zip.toByteArray()), BatchIngestService.ZIP, results::add);
+
+        assertEquals(4L, summary.get("total"));
+        assertEquals(2L, summary.get("processed"));
+        assertEquals(2L, summary.get("skipped"));
+        assertEquals(Map.of("a.pdf", "PROCESSED", "reports/b.pdf", "PROCESSED",
+                        "notes.txt", "SKIPPED", "renamed.pdf", "SKIPPED"),
+                results.stream().collect(Collectors.toMap(
+                        BatchIngestService.ItemResult::file, BatchIngestService.ItemResult::status)));
+
+        // Entries are stored under their own name, without the folder they were in
+        verify(pdfProcessingService).processAndStorePdf(
+                argThat(file -> "b.pdf".equals(file.getOriginalFilename())), isNull(), isNull());
+    }
+
+    @Test
+    void testGzippedTarEntriesReportRejectionsAndOversizedEntries() throws Exception {
+        when(pdfProcessingService.processAndStorePdf(any(), isNull(), isNull()))
+                .thenThrow(new IngestRejectedException("busy", 5));
+
+        ByteArrayOutputStream tgz = new ByteArrayOutputStream();
+        try (TarArchiveOutputStream out = new TarArchiveOutputStream(new GZIPOutputStream(tgz))) {
+            addTarEntry(out, "small.pdf", PDF);
+            byte[] large = new byte[2 * 1024 * 1024];
+            System.arraycopy(PDF, 0, large, 0, PDF.length);
+            addTarEntry(out, "large.pdf", large);
+        }
+
+        Map<String, Object> summary = batchIngestService.ingestArchive(
+                new ByteArrayInputStream(tgz.toByteArray()), BatchIngestService.TAR_GZ, results::add);
+
+        assertEquals(1L, summary.get("rejected"));
+        assertEquals(1L, summary.get("skipped"));
+        assertEquals(1, results.stream().filter(result -> "large.pdf".equals(result.file())
+                && BatchIngestService.SKIPPED.equals(result.status())).count());
+        verify(pdfProcessingService, times(1)).processAndStorePdf(any(), isNull(), isNull());
+    }
+
+    @Test
+    void testBatchFinishesWhenProcessingThrowsAnError() throws Exception {
+        List<Path> spooled = new CopyOnWriteArrayList<>();
+        AtomicInteger calls = new AtomicInteger();
+        when(pdfProcessingService.processAndStorePdf(any(), isNull(), isNull())).thenAnswer(invocation -> {
+            // Entries reach the ingest as files on disk, not as bytes in memory
+            SpooledUpload upload = invocation.getArgument(0);
+            assertArrayEquals(PDF, Files.readAllBytes(upload.getPath()));
+            spooled.add(upload.getPath());
+            if (calls.incrementAndGet() == 1) {
+                throw new OutOfMemoryError("Java heap space");
+            }
+            return Document.builder().id(1L).status("PROCESSED").build();
+        });
+
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(zip)) {
+            addZipEntry(out, "a.pdf", PDF);
+            addZipEntry(out, "b.pdf", PDF);
+        }
+
+        Map<String, Object> summary = batchIngestService.ingestArchive(
+                new ByteArrayInputStream(zip.toByteArray()), BatchIngestService.ZIP, results::add);
+
+        assertEquals(1L, summary.get("failed"));
+        assertEquals(1L, summary.get("processed"));
+        // Spooled entries are deleted however processing ended
+        assertEquals(2, spooled.size());
+        assertTrue(spooled.stream().noneMatch(Files::exists));
+    }
+
+    @Test
+    void testBatchesBeyondTheLimitAreTurnedAway() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        batchIngestService.start(() -> {
+            running.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        assertThrows(RejectedExecutionException.class, () -> batchIngestService.start(() -> { }));
+        release.countDown();
+    }
+
+    @Test
+    void testArchiveTypeFromNameOrContentType() {
+        assertEquals(BatchIngestService.ZIP, BatchIngestService.archiveType("docs.ZIP", null));
+        assertEquals(BatchIngestService.TAR_GZ, BatchIngestService.archiveType("docs.tgz", null));
+        assertEquals(BatchIngestService.TAR, BatchIngestService.archiveType(null, "application/x-tar"));
+        assertNull(BatchIngestService.archiveType("report.pdf", "application/pdf"));
+    }
+
+    private static void addZipEntry(ZipOutputStream out, String name, byte[] content) throws IOException {
+        out.putNextEntry(new ZipEntry(name));
+        out.write(content);
+        out.closeEntry();
+    }
+
+    private static void addTarEntry(TarArchiveOutputStream out, String name, byte[] content) throws IOException {
+        TarArchiveEntry entry = new TarArchiveEntry(name);
+        entry.setSize(content.length);
+        out.putArchiveEntry(entry);
+        out.write(content);
+        out.closeArchiveEntry();
+    }
+}
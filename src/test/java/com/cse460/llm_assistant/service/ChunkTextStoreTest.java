@@ -0,0 +1,211 @@
+package com.cse460.llm_assistant.service;
+
+import com.cse460.llm_assistant.model.Document;
+import com.cse460.llm_assistant.model.DocumentContent;
+import com.cse460.llm_assistant.repository.DocumentContentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ChunkTextStoreTest {
+
+    @TempDir
+    Path storeDir;
+
+    private final DocumentContentRepository contentRepository = mock(DocumentContentRepository.class);
+    private ChunkTextStore store;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        store = open(64);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        store.close();
+    }
+
+    @Test
+    void testPagesAndDeletionsSurviveReopening() throws Exception {
+        store.putPage(1L, 1, List.of("Résumé of the ", "cache design"));
+        store.putPage(1L, 2, List.of("second page"));
+        store.putPage(2L, 1, List.of("deleted"));
+        store.deleteDocument(2L);
+        store.close();
+
+        store = open(64);
+
+        assertEquals(List.of("Résumé of the ", "cache design"), store.readPage(1L, 1));
+        assertEquals(List.of(1, 2), List.copyOf(store.readDocument(1L).keySet()));
+        assertTrue(store.readPage(2L, 1).isEmpty());
+
+        DocumentContent chunk = DocumentContent.builder()
+                .document(Document.builder().id(1L).build()).pageNumber(1).chunkSequence(1).build();
+        store.load(List.of(chunk));
+        assertEquals("cache design", chunk.getContent());
+    }
+
+    @Test
+    void testConcurrentWritersShareSyncs() throws Exception {
+        ReflectionTestUtils.setField(store, "fsync", true);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> writes = new ArrayList<>();
+            for (int page = 1; page <= 40; page++) {
+                int pageNumber = page;
+                writes.add(executor.submit(() -> {
+                    store.putPage(3L, pageNumber, List.of("page " + pageNumber));
+                    return null;
+                }));
+            }
+            for (Future<?> write : writes) {
+                write.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        store.close();
+
+        store = open(64);
+        assertEquals(40, store.readDocument(3L).size());
+        assertEquals(List.of("page 17"), store.readPage(3L, 17));
+    }
+
+    @Test
+    void testTornBlockLeftByACrashIsCutOff() throws Exception {
+        store.putPage(1L, 1, List.of("kept"));
+        store.close();
+        Files.write(segments().get(0), new byte[]{0x43, 0x48, 0x4B, 0x31, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        store = open(64);
+        store.putPage(1L, 2, List.of("appended after the crash"));
+        store.close();
+        store = open(64);
+
+        assertEquals(List.of("kept"), store.readPage(1L, 1));
+        assertEquals(List.of("appended after the crash"), store.readPage(1L, 2));
+    }
+
+    @Test
+    void testCompactionDropsDeadSegmentsAndKeepsTombstones() throws Exception {
+        store.close();
+        // Every block starts a new segment
+        store = open(0);
+        store.putPage(1L, 1, List.of("live"));
+        store.putPage(2L, 1, List.of("deleted"));
+        store.deleteDocument(2L);
+        store.putPage(1L, 2, List.of("open segment"));
+        assertEquals(4, segments().size());
+
+        store.compact();
+
+        // The deleted page's segment is gone; the tombstone moved past the live block's segment
+        assertEquals(3, segments().size());
+        store.close();
+        store = open(0);
+        assertTrue(store.readPage(2L, 1).isEmpty());
+        assertEquals(List.of("live"), store.readPage(1L, 1));
+        assertEquals(List.of("open segment"), store.readPage(1L, 2));
+    }
+
+    @Test
+    void testLegacyContentIsMovedOutOfTheDatabaseOnce() throws Exception {
+        store.close();
+        Files.delete(storeDir.resolve("legacy-migrated"));
+        when(contentRepository.findDocumentIdsWithLegacyContent()).thenReturn(List.of(7L));
+        when(contentRepository.findLegacyByDocumentId(7L)).thenReturn(List.of(
+                legacy(1, 1, "second"), legacy(1, 0, "first "), legacy(2, 0, "next page")));
+        when(contentRepository.clearLegacyContent(7L)).thenReturn(3);
+
+        store = open(64);
+        store.close();
+        store = open(64);
+
+        assertEquals(List.of("first ", "second"), store.readPage(7L, 1));
+        assertEquals(List.of("next page"), store.readPage(7L, 2));
+        verify(contentRepository, times(1)).clearLegacyContent(7L);
+    }
+
+    @Test
+    void testLegacyContentIsReadFromTheDatabaseUntilItIsMoved() throws Exception {
+        store.close();
+        Files.delete(storeDir.resolve("legacy-migrated"));
+        CountDownLatch release = new CountDownLatch(1);
+        when(contentRepository.findDocumentIdsWithLegacyContent()).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return List.of(7L);
+        });
+        when(contentRepository.findLegacyByDocumentId(7L)).thenReturn(List.of(legacy(1, 0, "still in the database")));
+        when(contentRepository.clearLegacyContent(7L)).thenReturn(1);
+
+        store = openWithoutWaiting(64);
+        assertEquals(List.of("still in the database"), store.readPage(7L, 1));
+
+        release.countDown();
+        store.legacyMigration().get(5, TimeUnit.SECONDS);
+        assertEquals(List.of("still in the database"), store.readPage(7L, 1));
+        verify(contentRepository).clearLegacyContent(7L);
+    }
+
+    @Test
+    void testSecondStoreOnTheSameDirectoryFailsToOpen() throws Exception {
+        store.putPage(1L, 1, List.of("first writer"));
+
+        assertThrows(IOException.class, () -> openWithoutWaiting(64));
+        assertEquals(List.of("first writer"), store.readPage(1L, 1));
+
+        store.close();
+        store = open(64);
+        assertEquals(List.of("first writer"), store.readPage(1L, 1));
+    }
+
+    private ChunkTextStore open(long segmentSizeMb) throws Exception {
+        ChunkTextStore opened = openWithoutWaiting(segmentSizeMb);
+        opened.legacyMigration().get(5, TimeUnit.SECONDS);
+        return opened;
+    }
+
+    private ChunkTextStore openWithoutWaiting(long segmentSizeMb) throws Exception {
+        ChunkTextStore opened = new ChunkTextStore(contentRepository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        ReflectionTestUtils.setField(opened, "location", storeDir.toString());
+        ReflectionTestUtils.setField(opened, "segmentSizeMb", segmentSizeMb);
+        ReflectionTestUtils.setField(opened, "fsync", false);
+        opened.open();
+        return opened;
+    }
+
+    private List<Path> segments() throws Exception {
+        try (Stream<Path> files = Files.list(storeDir)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("segment-")).sorted().toList();
+        }
+    }
+
+    private static DocumentContent legacy(int pageNumber, int chunkSequence, String text) {
+        return DocumentContent.builder()
+                .pageNumber(pageNumber)
+                .chunkSequence(chunkSequence)
+                .legacyContent(text)
+                .build();
+    }
+}
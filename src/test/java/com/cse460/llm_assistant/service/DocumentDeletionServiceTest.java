@@ -0,0 +1,162 @@
+package com.cse460.llm_assistant.service;
+
+import com.cse460.llm_assistant.model.Document;
+import com.cse460.llm_assistant.repository.DocumentContentRepository;
+import com.cse460.llm_assistant.repository.DocumentImageRepository;
+import com.cse460.llm_assistant.repository.DocumentLshBandRepository;
+import com.cse460.llm_assistant.repository.DocumentPageSignatureRepository;
+import com.cse460.llm_assistant.repository.DocumentRepository;
+import com.cse460.llm_assistant.repository.EmbeddingOutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyFloat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DocumentDeletionServiceTest {
+
+    @Mock
+    private DocumentRepository documentRepository;
+
+    @Mock
+    private DocumentContentRepository contentRepository;
+
+    @Mock
+    private DocumentImageRepository imageRepository;
+
+    @Mock
+    private EmbeddingOutboxRepository outboxRepository;
+
+    @Mock
+    private DocumentPageSignatureRepository pageSignatureRepository;
+
+    @Mock
+    private DocumentLshBandRepository bandRepository;
+
+    @Mock
+    private ImageStorageService imageStorageService;
+
+    @Mock
+    private SourcePdfStorageService sourcePdfStorageService;
+
+    @Mock
+    private ChunkTextStore chunkTextStore;
+
+    @Mock
+    private KeywordIndexService keywordIndexService;
+
+    @Mock
+    private DocumentStatusCountService statusCounts;
+
+    @Mock
+    private ObjectProvider<EmbeddingIndexService> indexProvider;
+
+    @Mock
+    private EmbeddingIndexService indexService;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+    @InjectMocks
+    private DocumentDeletionService deletionService;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(indexProvider.getIfAvailable()).thenReturn(indexService);
+        lenient().when(indexService.isReady()).thenReturn(true);
+    }
+
+    @Test
+    void testDeleteRemovesRowsAndStartsIndexDeletion() throws Exception {
+        Document document = Document.builder().id(5L).status("PROCESSED").contentHash("abc").build();
+        when(documentRepository.findById(5L)).thenReturn(Optional.of(document));
+        when(contentRepository.bulkDeleteByDocumentId(5L)).thenReturn(120);
+        when(imageRepository.bulkDeleteByDocumentId(5L)).thenReturn(12);
+        when(imageRepository.findImagePathsByDocumentId(5L)).thenReturn(List.of("5_p1_0_a.png", "5_p2_0_b.png"));
+        when(indexService.deleteByDocumentId(eq(5L), anyFloat())).thenReturn("node:1");
+
+        DocumentDeletionService.Deletion deletion = deletionService.delete(5L).orElseThrow();
+
+        assertEquals(120, deletion.chunks());
+        assertEquals(12, deletion.images());
+        assertEquals(DocumentDeletionService.DELETING, document.getStatus());
+        assertNull(document.getContentHash());
+        verify(outboxRepository).bulkDeleteByDocumentId(5L);
+        verify(pageSignatureRepository).bulkDeleteByDocumentId(5L);
+        verify(bandRepository).bulkDeleteByDocumentId(5L);
+        verify(documentRepository).updateDeleteTaskId(5L, "node:1");
+        verify(keywordIndexService).deleteDocument(5L);
+        verify(imageStorageService).deleteImageFiles(List.of("5_p1_0_a.png", "5_p2_0_b.png"));
+        verify(statusCounts).transition("PROCESSED", DocumentDeletionService.DELETING);
+    }
+
+    @Test
+    void testDocumentStillProcessingIsNotDeleted() {
+        when(documentRepository.findById(5L)).thenReturn(Optional.of(Document.builder().id(5L).status("PROCESSING").build()));
+
+        assertThrows(IllegalStateException.class, () -> deletionService.delete(5L));
+        assertTrue(deletionService.delete(6L).isEmpty());
+        verifyNoInteractions(contentRepository, imageRepository, keywordIndexService);
+    }
+
+    @Test
+    void testSweepDropsOnlyDocumentsWithNoChunksLeftInTheIndex() throws Exception {
+        Document done = deleting(1L, "node:1");
+        Document running = deleting(2L, "node:2");
+        Document leftovers = deleting(3L, "node:3");
+        when(documentRepository.findByStatus(DocumentDeletionService.DELETING)).thenReturn(List.of(done, running, leftovers));
+        when(indexService.isTaskCompleted("node:1")).thenReturn(true);
+        when(indexService.isTaskCompleted("node:2")).thenReturn(false);
+        when(indexService.isTaskCompleted("node:3")).thenReturn(true);
+        when(indexService.countByDocumentId(1L)).thenReturn(0L);
+        // A chunk indexed after the delete-by-query took its snapshot
+        when(indexService.countByDocumentId(3L)).thenReturn(1L);
+        when(indexService.deleteByDocumentId(eq(3L), anyFloat())).thenReturn("node:4");
+
+        deletionService.sweep();
+
+        verify(imageStorageService).deleteImagesOfDocuments(Set.of(1L, 2L, 3L));
+        verify(sourcePdfStorageService).deleteSource(done);
+        verify(chunkTextStore).deleteDocument(1L);
+        verify(documentRepository).updateDeleteTaskId(3L, "node:4");
+        verify(documentRepository).deleteAllByIdInBatch(List.of(1L));
+        verify(statusCounts).transition(DocumentDeletionService.DELETING, null, 1);
+        verify(indexService, never()).deleteByDocumentId(eq(2L), anyFloat());
+
+        // The image store is listed once per tombstone, not again while Elasticsearch catches up
+        when(documentRepository.findByStatus(DocumentDeletionService.DELETING)).thenReturn(List.of(running, leftovers));
+        deletionService.sweep();
+        verify(imageStorageService, times(1)).deleteImagesOfDocuments(any());
+    }
+
+    @Test
+    void testSweepWithoutDeletedDocumentsTouchesNothing() throws Exception {
+        when(documentRepository.findByStatus(DocumentDeletionService.DELETING)).thenReturn(List.of());
+
+        deletionService.sweep();
+
+        verifyNoInteractions(imageStorageService, indexService);
+        verify(documentRepository, never()).deleteAllByIdInBatch(any());
+        verify(contentRepository, never()).bulkDeleteByDocumentId(anyLong());
+    }
+
+    private static Document deleting(Long id, String taskId) {
+        return Document.builder().id(id).status(DocumentDeletionService.DELETING).deleteTaskId(taskId).build();
+    }
+}
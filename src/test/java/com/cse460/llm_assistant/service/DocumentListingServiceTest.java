@@ -0,0 +1,65 @@
+package com.cse460.llm_assistant.service;
+
+import com.cse460.llm_assistant.model.projection.DocumentSummaryView;
+import com.cse460.llm_assistant.repository.DocumentRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class DocumentListingServiceTest {
+
+    private static final LocalDateTime NOON = LocalDateTime.of(2025, 3, 1, 12, 0, 0, 123_000_000);
+
+    private final DocumentRepository documentRepository = mock(DocumentRepository.class);
+    private final DocumentListingService listingService = new DocumentListingService(documentRepository);
+
+    @Test
+    void testFullPageEndsWithCursorOfItsLastDocument() {
+        List<DocumentSummaryView> rows = summaries(9, 8, 7);
+        when(documentRepository.findPageByStatusBefore(eq("FAILED"), any(), any(), any(), eq(PageRequest.of(0, 3))))
+                .thenReturn(rows);
+
+        DocumentListingService.DocumentPage page = listingService.list("FAILED", null, null, null, 2);
+
+        assertEquals(2, page.documents().size());
+        DocumentListingService.Cursor cursor = DocumentListingService.decode(page.nextCursor());
+        assertEquals(8L, cursor.id());
+        assertEquals(NOON.minusMinutes(8), cursor.uploadedAt());
+    }
+
+    @Test
+    void testNextPageSeeksPastTheCursorAndLastPageHasNoCursor() {
+        String cursor = DocumentListingService.encode(new DocumentListingService.Cursor(NOON, 42L));
+        LocalDateTime from = NOON.minusDays(1);
+        List<DocumentSummaryView> rows = summaries(41);
+        when(documentRepository.findPageBefore(from, NOON, 42L, PageRequest.of(0, 11))).thenReturn(rows);
+
+        DocumentListingService.DocumentPage page = listingService.list(null, from, NOON.plusDays(1), cursor, 10);
+
+        assertEquals(1, page.documents().size());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void testForeignCursorIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> listingService.list(null, null, null, "bm90LWEtY3Vyc29y", 10));
+        assertThrows(IllegalArgumentException.class, () -> listingService.list(null, null, null, "%%", 10));
+    }
+
+    private static List<DocumentSummaryView> summaries(long... ids) {
+        return LongStream.of(ids).mapToObj(id -> {
+            DocumentSummaryView view = mock(DocumentSummaryView.class);
+            when(view.getId()).thenReturn(id);
+            when(view.getUploadedAt()).thenReturn(NOON.minusMinutes(id));
+            return view;
+        }).toList();
+    }
+}
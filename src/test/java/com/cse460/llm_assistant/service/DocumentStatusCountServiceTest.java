@@ -0,0 +1,85 @@
+package com.cse460.llm_assistant.service;
+
+import com.cse460.llm_assistant.model.DocumentStatusCount;
+import com.cse460.llm_assistant.repository.DocumentRepository;
+import com.cse460.llm_assistant.repository.DocumentStatusCountRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class DocumentStatusCountServiceTest {
+
+    private final DocumentStatusCountRepository countRepository = mock(DocumentStatusCountRepository.class);
+    private final DocumentRepository documentRepository = mock(DocumentRepository.class);
+    private final DocumentStatusCountService statusCounts = new DocumentStatusCountService(countRepository,
+            documentRepository, new TransactionTemplate(mock(PlatformTransactionManager.class)));
+
+    @Test
+    void testTransitionMovesCountBetweenStatuses() {
+        when(countRepository.add(anyString(), anyLong())).thenReturn(1);
+
+        statusCounts.transition(null, "PROCESSING");
+        statusCounts.transition("PROCESSING", "FAILED");
+        statusCounts.transition("FAILED", "FAILED");
+        statusCounts.transition("DELETING", null, 3);
+
+        verify(countRepository).add("PROCESSING", 1);
+        verify(countRepository).add("PROCESSING", -1);
+        verify(countRepository).add("FAILED", 1);
+        verify(countRepository).add("DELETING", -3);
+        verifyNoMoreInteractions(countRepository);
+    }
+
+    @Test
+    void testTransitionToAStatusWithoutACounterFails() {
+        when(countRepository.add("ARCHIVED", 1)).thenReturn(0);
+
+        assertThrows(IllegalStateException.class, () -> statusCounts.transition(null, "ARCHIVED"));
+    }
+
+    @Test
+    void testSeedCountsExistingDocumentsOnceAndCountsListEveryStatus() {
+        when(documentRepository.countGroupedByStatus()).thenReturn(List.of(new DocumentStatusCount("PROCESSED", 7)));
+        List<DocumentStatusCount> seeded = new ArrayList<>();
+        when(countRepository.saveAll(anyIterable())).thenAnswer(invocation -> {
+            Iterable<DocumentStatusCount> counters = invocation.getArgument(0);
+            counters.forEach(seeded::add);
+            return seeded;
+        });
+
+        statusCounts.seed();
+        when(countRepository.findAll()).thenReturn(seeded);
+        statusCounts.seed();
+
+        verify(documentRepository, times(1)).countGroupedByStatus();
+        assertEquals(Map.of("PROCESSING", 0L, "PROCESSED", 7L, "FAILED", 0L, "DELETING", 0L), statusCounts.counts());
+        assertEquals(DocumentStatusCountService.STATUSES, List.copyOf(statusCounts.counts().keySet()));
+    }
+
+    @Test
+    void testSeedAddsCountersForStatusesAddedLater() {
+        when(countRepository.findAll()).thenReturn(List.of(new DocumentStatusCount("PROCESSING", 1),
+                new DocumentStatusCount("PROCESSED", 7), new DocumentStatusCount("FAILED", 0)));
+        when(documentRepository.countGroupedByStatus()).thenReturn(List.of(new DocumentStatusCount("PROCESSED", 7)));
+        List<DocumentStatusCount> seeded = new ArrayList<>();
+        when(countRepository.saveAll(anyIterable())).thenAnswer(invocation -> {
+            Iterable<DocumentStatusCount> counters = invocation.getArgument(0);
+            counters.forEach(seeded::add);
+            return seeded;
+        });
+
+        statusCounts.seed();
+
+        assertEquals(List.of(new DocumentStatusCount(DocumentDeletionService.DELETING, 0)), seeded);
+    }
+}
@@ -0,0 +1,24 @@
+package com.cse460.llm_assistant.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EmbeddingIndexServiceTest {
+
+    @Test
+    void generationIndicesCanBeRolledOver() {
+        String index = EmbeddingIndexService.indexName("documents", 3);
+
+        // Rollover increments a trailing number, so the first index of a generation must end in one
+        assertEquals("documents-v3-000001", index);
+        assertEquals(3, EmbeddingIndexService.generationOf(index));
+        assertEquals(3, EmbeddingIndexService.generationOf("documents-v3-000042"));
+        assertEquals(12, EmbeddingIndexService.generationOf("documents-v12-000001"));
+    }
+
+    @Test
+    void indicesOutsideTheSchemeHaveNoGeneration() {
+        assertEquals(0, EmbeddingIndexService.generationOf("documents"));
+    }
+}
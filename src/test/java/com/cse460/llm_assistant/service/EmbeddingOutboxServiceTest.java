@@ -0,0 +1,157 @@
+package com.cse460.llm_assistant.service;
+
+import com.cse460.llm_assistant.model.Document;
+import com.cse460.llm_assistant.model.DocumentContent;
+import com.cse460.llm_assistant.model.EmbeddingOutbox;
+import com.cse460.llm_assistant.model.projection.OutboxStatusCount;
+import com.cse460.llm_assistant.repository.DocumentContentRepository;
+import com.cse460.llm_assistant.repository.EmbeddingOutboxRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EmbeddingOutboxServiceTest {
+
+    @Mock
+    private EmbeddingOutboxRepository outboxRepository;
+
+    @Mock
+    private DocumentContentRepository contentRepository;
+
+    @Mock
+    private EmbeddingService embeddingService;
+
+    @Mock
+    private ChunkTextStore chunkTextStore;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+    @InjectMocks
+    private EmbeddingOutboxService outboxService;
+
+    private final Document document = Document.builder().id(3L).filename("a.pdf").build();
+    private List<EmbeddingOutbox> entries;
+
+    private void stubBatch() {
+        entries = new ArrayList<>(List.of(entry(10L), entry(11L)));
+        when(outboxRepository.findDue(any(), any())).thenReturn(entries);
+        when(outboxRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(contentRepository.findAllWithDocumentByIdIn(any())).thenReturn(List.of(chunk(10L, 0), chunk(11L, 1)));
+    }
+
+    @Test
+    void indexedEntriesAreDeleted() throws Exception {
+        stubBatch();
+        List<EmbeddingOutbox> claimed = List.copyOf(entries);
+        when(embeddingService.indexChunks(anyList(), anyMap())).thenReturn(Set.of());
+
+        assertEquals(2, outboxService.drainBatch());
+
+        verify(outboxRepository).deleteAll(claimed);
+        assertTrue(entries.isEmpty());
+        claimed.forEach(entry -> assertEquals(1, entry.getAttempts()));
+    }
+
+    @Test
+    void chunksWithoutEntriesCountAsIndexed() {
+        when(outboxRepository.countByStatus(3L)).thenReturn(List.of(
+                statusCount(EmbeddingOutboxService.PENDING, 2), statusCount(EmbeddingOutboxService.FAILED, 1)));
+        when(contentRepository.countByDocumentId(3L)).thenReturn(10L);
+
+        assertEquals(new EmbeddingOutboxService.IndexStatus(2, 7, 1), outboxService.indexStatus(3L));
+    }
+
+    @Test
+    void rejectedChunksAreRetriedWhileOthersAreIndexed() throws Exception {
+        stubBatch();
+        EmbeddingOutbox indexed = entries.get(0);
+        EmbeddingOutbox rejected = entries.get(1);
+        when(embeddingService.indexChunks(anyList(), anyMap())).thenReturn(Set.of(11L));
+
+        outboxService.drainBatch();
+
+        verify(outboxRepository).deleteAll(List.of(indexed));
+        assertEquals(List.of(rejected), entries);
+        assertEquals(EmbeddingOutboxService.PENDING, rejected.getStatus());
+        assertTrue(rejected.getNextAttemptAt().isAfter(LocalDateTime.now()));
+        assertEquals("Rejected by Elasticsearch", rejected.getLastError());
+    }
+
+    @Test
+    void failedBatchBacksOffAndEventuallyGivesUp() throws Exception {
+        stubBatch();
+        when(embeddingService.indexChunks(anyList(), anyMap())).thenThrow(new DataAccessResourceFailureException("Connection refused"));
+
+        outboxService.drainBatch();
+        for (EmbeddingOutbox entry : entries) {
+            assertEquals(EmbeddingOutboxService.PENDING, entry.getStatus());
+            assertEquals("Connection refused", entry.getLastError());
+            assertTrue(entry.getNextAttemptAt().isAfter(LocalDateTime.now()));
+        }
+
+        // The last allowed attempt fails for good
+        entries.forEach(entry -> entry.setAttempts(7));
+        outboxService.drainBatch();
+        entries.forEach(entry -> assertEquals(EmbeddingOutboxService.FAILED, entry.getStatus()));
+    }
+
+    @Test
+    void backoffDoublesUpToTheCap() {
+        assertEquals(1000, outboxService.backoffMillis(1));
+        assertEquals(2000, outboxService.backoffMillis(2));
+        assertEquals(8000, outboxService.backoffMillis(4));
+        assertEquals(300000, outboxService.backoffMillis(20));
+    }
+
+    private static OutboxStatusCount statusCount(String status, long count) {
+        return new OutboxStatusCount() {
+            @Override
+            public String getStatus() {
+                return status;
+            }
+
+            @Override
+            public long getCount() {
+                return count;
+            }
+        };
+    }
+
+    private EmbeddingOutbox entry(Long contentId) {
+        return EmbeddingOutbox.builder()
+                .documentId(document.getId())
+                .contentId(contentId)
+                .status(EmbeddingOutboxService.PENDING)
+                .nextAttemptAt(LocalDateTime.now())
+                .build();
+    }
+
+    private DocumentContent chunk(Long id, int sequence) {
+        return DocumentContent.builder()
+                .id(id)
+                .document(document)
+                .pageNumber(1)
+                .chunkSequence(sequence)
+                .content("chunk " + sequence)
+                .build();
+    }
+}
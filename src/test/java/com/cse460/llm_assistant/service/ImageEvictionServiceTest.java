@@ -0,0 +1,76 @@
+package com.cse460.llm_assistant.service;
+
+import com.cse460.llm_assistant.model.DocumentImage;
+import com.cse460.llm_assistant.repository.DocumentImageRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class ImageEvictionServiceTest {
+
+    private static final long KB = 1024;
+
+    private final DocumentImageRepository imageRepository = mock(DocumentImageRepository.class);
+    private final ImageStorageService imageStorageService = mock(ImageStorageService.class);
+    private final TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+    private final ImageEvictionService evictionService = new ImageEvictionService(imageRepository,
+            imageStorageService, transactionTemplate, new SimpleMeterRegistry(), 1, 0.5);
+
+    @Test
+    void testLeastRecentlyUsedImagesAreEvictedDownToTheLowWatermark() {
+        List<DocumentImage> images = LongStream.rangeClosed(1, 4)
+                .mapToObj(id -> DocumentImage.builder().id(id).imagePath(id + ".png").sizeBytes(400 * KB).build())
+                .toList();
+        when(imageRepository.sumStoredBytes()).thenReturn(1600 * KB);
+        when(imageRepository.findEvictionCandidates(any())).thenReturn(images);
+        when(imageRepository.clearImagePath(anyLong(), anyString())).thenReturn(1);
+
+        evictionService.sweep();
+
+        // 1600 KB down to at most half of the 1 MB budget takes three of the four images
+        verify(imageStorageService).deleteImageFile("1.png");
+        verify(imageStorageService).deleteImageFile("2.png");
+        verify(imageStorageService).deleteImageFile("3.png");
+        verify(imageStorageService, never()).deleteImageFile("4.png");
+    }
+
+    @Test
+    void testImageRenderedAgainWhileEvictingIsKept() {
+        DocumentImage image = DocumentImage.builder().id(1L).imagePath("1.png").sizeBytes(2048 * KB).build();
+        when(imageRepository.sumStoredBytes()).thenReturn(2048 * KB);
+        when(imageRepository.findEvictionCandidates(any())).thenReturn(List.of(image)).thenReturn(List.of());
+        when(imageRepository.clearImagePath(1L, "1.png")).thenReturn(0);
+
+        evictionService.sweep();
+
+        verify(imageStorageService, never()).deleteImageFile(anyString());
+    }
+
+    @Test
+    void testAccessesAreWrittenOnceByTheNextSweep() {
+        evictionService.recordAccess(7L);
+        evictionService.recordAccess(8L);
+
+        evictionService.sweep();
+        evictionService.sweep();
+
+        verify(imageRepository, times(1)).updateLastAccessedAt(anyCollection(), any());
+        verify(imageRepository).updateLastAccessedAt(argThatContains(7L, 8L), any());
+    }
+
+    private static Collection<Long> argThatContains(Long... ids) {
+        return argThat(collection -> collection.size() == ids.length && collection.containsAll(List.of(ids)));
+    }
+}
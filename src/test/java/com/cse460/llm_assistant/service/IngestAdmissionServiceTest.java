@@ -0,0 +1,63 @@
+package com.cse460.llm_assistant.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IngestAdmissionServiceTest {
+
+    private static final long MB = 1024 * 1024;
+
+    @Test
+    void testReservationsWithinBudgetAreAdmitted() {
+        IngestAdmissionService admission = new IngestAdmissionService(100, 50, 7);
+
+        try (IngestAdmissionService.Reservation first = admission.admit(40 * MB);
+             IngestAdmissionService.Reservation second = admission.admit(40 * MB)) {
+            assertEquals(80 * MB, admission.getReservedBytes());
+        }
+
+        assertEquals(0, admission.getReservedBytes());
+    }
+
+    @Test
+    void testUploadExceedingBudgetIsRejectedWithRetryAfter() {
+        IngestAdmissionService admission = new IngestAdmissionService(100, 50, 7);
+
+        try (IngestAdmissionService.Reservation held = admission.admit(80 * MB)) {
+            IngestRejectedException rejected = assertThrows(IngestRejectedException.class,
+                    () -> admission.admit(40 * MB));
+            assertEquals(7, rejected.getRetryAfterSeconds());
+        }
+
+        // Once the running upload finishes the same request fits again
+        try (IngestAdmissionService.Reservation retried = admission.admit(40 * MB)) {
+            assertEquals(40 * MB, admission.getReservedBytes());
+        }
+    }
+
+    @Test
+    void testOversizedUploadRunsAloneInsteadOfStarving() {
+        IngestAdmissionService admission = new IngestAdmissionService(100, 50, 7);
+
+        try (IngestAdmissionService.Reservation huge = admission.admit(500 * MB)) {
+            assertEquals(100 * MB, admission.getReservedBytes());
+            assertThrows(IngestRejectedException.class, () -> admission.admit(MB));
+        }
+    }
+
+    @Test
+    void testEstimateGrowsWithPageAreaAndRetainedPages() {
+        IngestAdmissionService admission = new IngestAdmissionService(100, 50, 7);
+        // A letter page at 300 DPI
+        long letterPixels = 2550L * 3300L;
+
+        long textOnly = admission.estimateCost(MB, 10, 0, false);
+        long rendered = admission.estimateCost(MB, 10, letterPixels, false);
+        long renderedAndRetained = admission.estimateCost(MB, 10, letterPixels, true);
+
+        assertEquals(3 * MB, textOnly);
+        assertTrue(rendered > textOnly + letterPixels * 4 - 1);
+        assertTrue(renderedAndRetained > rendered);
+    }
+}
@@ -0,0 +1,73 @@
+package com.cse460.llm_assistant.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IngestPipelineTest {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final IngestPipeline pipeline = new IngestPipeline(registry, 1, 1, 1, 1);
+
+    @AfterEach
+    void tearDown() {
+        pipeline.shutdown();
+    }
+
+    @Test
+    void testFullStageQueueHoldsBackTheSubmitter() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        IngestPipeline.Run run = pipeline.start();
+        run.storeChunks(() -> release.await(5, TimeUnit.SECONDS));
+        run.storeChunks(() -> { });
+
+        CountDownLatch submitted = new CountDownLatch(1);
+        Thread submitter = new Thread(() -> {
+            try {
+                run.storeChunks(() -> { });
+                submitted.countDown();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        submitter.start();
+
+        // One task runs, one waits in the queue, and the third submit waits for room
+        assertFalse(submitted.await(200, TimeUnit.MILLISECONDS));
+        assertEquals(1.0, registry.get("ingest.pipeline.queue.depth").tag("stage", IngestPipeline.CHUNKS).gauge().value());
+        assertEquals(1.0, registry.get("ingest.pipeline.active").tag("stage", IngestPipeline.CHUNKS).gauge().value());
+
+        release.countDown();
+        assertTrue(submitted.await(5, TimeUnit.SECONDS));
+        submitter.join();
+        run.await();
+        assertEquals(0.0, registry.get("ingest.pipeline.queue.depth").tag("stage", IngestPipeline.CHUNKS).gauge().value());
+    }
+
+    @Test
+    void testFailedTaskFailsTheRunOnceEveryTaskHasFinished() throws Exception {
+        AtomicBoolean written = new AtomicBoolean();
+        IngestPipeline.Run run = pipeline.start();
+        run.writeFile(() -> {
+            Thread.sleep(100);
+            written.set(true);
+        });
+        run.storeChunks(() -> {
+            throw new IOException("disk full");
+        });
+
+        IOException failure = assertThrows(IOException.class, run::await);
+
+        assertEquals("disk full", failure.getMessage());
+        assertTrue(written.get());
+        assertThrows(IOException.class, () -> run.storeChunks(() -> { }));
+    }
+}
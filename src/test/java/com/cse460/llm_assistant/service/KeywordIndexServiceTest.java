@@ -0,0 +1,118 @@
+package com.cse460.llm_assistant.service;
+
+import com.cse460.llm_assistant.model.Document;
+import com.cse460.llm_assistant.model.DocumentContent;
+import com.cse460.llm_assistant.repository.DocumentContentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class KeywordIndexServiceTest {
+
+    @TempDir
+    Path indexDir;
+
+    private final DocumentContentRepository contentRepository = mock(DocumentContentRepository.class);
+    private KeywordIndexService keywordIndex;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        keywordIndex = open();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        keywordIndex.close();
+    }
+
+    @Test
+    void testQueryMatchesStemmedTermsAndRanksByBm25() throws Exception {
+        keywordIndex.addChunks(List.of(
+                chunk(1L, 10L, "The service caches rendered pages and evicts them when the store is full"),
+                chunk(2L, 10L, "Caching caches cached: every request checks the cache before rendering"),
+                chunk(3L, 11L, "Shards and replicas of the vector index")));
+        keywordIndex.refresh();
+
+        List<SearchResult> results = keywordIndex.search("the Cached", 10);
+
+        // "the" is a stop word and "cached" stems to "cach", matching both forms in the first two chunks
+        assertEquals(2, results.size());
+        assertEquals(1, results.get(0).chunkSequence());
+        assertTrue(results.get(0).score() > results.get(1).score());
+        assertEquals(10L, results.get(1).documentId());
+        assertTrue(keywordIndex.search("the and of", 10).isEmpty());
+    }
+
+    @Test
+    void testDeletedDocumentIsNotFoundAndChunksAreReplacedById() throws Exception {
+        keywordIndex.addChunks(List.of(chunk(1L, 10L, "latency budget"), chunk(2L, 11L, "latency histogram")));
+        keywordIndex.addChunks(List.of(chunk(2L, 11L, "latency percentiles")));
+        keywordIndex.deleteDocument(10L);
+        keywordIndex.refresh();
+
+        List<SearchResult> results = keywordIndex.search("latency", 10);
+
+        assertEquals(1, results.size());
+        assertEquals("latency percentiles", results.get(0).snippets().get(0).text());
+    }
+
+    @Test
+    void testSnippetsPointIntoThePageText() throws Exception {
+        String filler = "Pages are rendered on demand and kept until the store runs out of space. ".repeat(10);
+        String content = filler + "Eviction removes the least recently viewed images first. " + filler;
+        // The third chunk of its page
+        keywordIndex.addChunks(List.of(chunk(3L, 10L, content)));
+        keywordIndex.refresh();
+
+        Snippet snippet = keywordIndex.search("evicting", 10).get(0).snippets().get(0);
+
+        assertTrue(snippet.text().length() < 300);
+        assertEquals(2, snippet.highlights().length);
+        int match = snippet.highlights()[0];
+        assertEquals("Eviction", snippet.text().substring(match, snippet.highlights()[1]));
+        assertEquals(2000 + content.indexOf("Eviction"), snippet.offset() + match);
+    }
+
+    @Test
+    void testIndexMissingChunksIsRebuiltFromTheDatabase() throws Exception {
+        keywordIndex.addChunks(List.of(chunk(1L, 10L, "queue depth")));
+        keywordIndex.close();
+
+        // Reopened with one chunk while the database holds two, as when chunks were stored but never indexed
+        keywordIndex = open();
+        when(contentRepository.count()).thenReturn(2L);
+        when(contentRepository.findWithDocumentByIdGreaterThan(anyLong(), any()))
+                .thenReturn(List.of(chunk(1L, 10L, "queue depth"), chunk(2L, 10L, "queue latency")));
+
+        keywordIndex.rebuildIfIncomplete();
+
+        assertEquals(2, keywordIndex.search("queue", 10).size());
+    }
+
+    private KeywordIndexService open() throws Exception {
+        KeywordIndexService service = new KeywordIndexService(contentRepository, mock(ChunkTextStore.class));
+        ReflectionTestUtils.setField(service, "location", indexDir.toString());
+        service.open();
+        return service;
+    }
+
+    private static DocumentContent chunk(Long id, Long documentId, String content) {
+        return DocumentContent.builder()
+                .id(id)
+                .document(Document.builder().id(documentId).build())
+                .pageNumber(1)
+                .chunkSequence(id.intValue() - 1)
+                .content(content)
+                .build();
+    }
+}
@@ -0,0 +1,148 @@
+package com.cse460.llm_assistant.service;
+
+import com.cse460.llm_assistant.model.Document;
+import com.cse460.llm_assistant.repository.DocumentContentRepository;
+import com.cse460.llm_assistant.repository.DocumentRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PdfProcessingServiceTest {
+
+    @Mock
+    private DocumentRepository documentRepository;
+
+    @Mock
+    private DocumentContentRepository contentRepository;
+
+    @Mock
+    private EmbeddingOutboxService outboxService;
+
+    @Mock
+    private ObjectProvider<EmbeddingOutboxService> outboxProvider;
+
+    // Runs callbacks directly; the transaction manager is only asked to begin and commit
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+    @Mock
+    private MultimodalPdfExtractor pdfExtractor;
+
+    @Mock
+    private ImageStorageService imageStorageService;
+
+    @Mock
+    private SourcePdfStorageService sourcePdfStorageService;
+
+    @Mock
+    private PageRenderService pageRenderService;
+
+    @Mock
+    private KeywordIndexService keywordIndexService;
+
+    @Mock
+    private DocumentStatusCountService statusCounts;
+
+    @Mock
+    private ChunkTextStore chunkTextStore;
+
+    @Spy
+    private IngestAdmissionService admissionService = new IngestAdmissionService(64, 1000, 1);
+
+    @Spy
+    private IngestMetrics metrics = new IngestMetrics(new SimpleMeterRegistry(), admissionService);
+
+    @InjectMocks
+    private PdfProcessingService pdfProcessingService;
+
+    private final MockMultipartFile upload = new MockMultipartFile("file", "notes.txt", "text/plain",
+            "Architecture notes for the duplicate upload test".getBytes(StandardCharsets.UTF_8));
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(outboxProvider.getIfAvailable()).thenReturn(outboxService);
+    }
+
+    @Test
+    void testConcurrentDuplicateUploadsRunOneIngest() throws Exception {
+        when(documentRepository.findByContentHash(anyString())).thenReturn(Optional.empty());
+
+        CountDownLatch firstInsert = new CountDownLatch(1);
+        CountDownLatch duplicatesJoined = new CountDownLatch(1);
+        when(documentRepository.save(any(Document.class))).thenAnswer(invocation -> {
+            Document document = invocation.getArgument(0);
+            if (document.getId() == null) {
+                // Hold the first ingest open until the duplicate uploads have arrived
+                firstInsert.countDown();
+                assertTrue(duplicatesJoined.await(5, TimeUnit.SECONDS));
+                document.setId(42L);
+            }
+            return document;
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Document>> results = new ArrayList<>();
+            results.add(executor.submit(() -> pdfProcessingService.processAndStorePdf(upload, null, null)));
+            assertTrue(firstInsert.await(5, TimeUnit.SECONDS));
+
+            for (int i = 0; i < 3; i++) {
+                results.add(executor.submit(() -> pdfProcessingService.processAndStorePdf(upload, null, null)));
+            }
+            Thread.sleep(200);
+            duplicatesJoined.countDown();
+
+            for (Future<Document> result : results) {
+                Document document = result.get(10, TimeUnit.SECONDS);
+                assertEquals(42L, document.getId());
+                assertEquals("PROCESSED", document.getStatus());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // One document was inserted and its chunks queued for indexing for all four uploads
+        verify(contentRepository, times(1)).saveAll(any());
+        verify(outboxService, times(1)).enqueue(any());
+    }
+
+    @Test
+    void testInsertRaceWithAnotherNodeReturnsStoredDocument() throws Exception {
+        Document stored = Document.builder().id(7L).status("PROCESSED").build();
+        when(documentRepository.findByContentHash(anyString()))
+                .thenReturn(Optional.empty()).thenReturn(Optional.empty()).thenReturn(Optional.of(stored));
+        when(documentRepository.save(any(Document.class)))
+                .thenThrow(new DataIntegrityViolationException("uk_documents_content_hash"));
+
+        Document result = pdfProcessingService.processAndStorePdf(upload, null, null);
+
+        assertSame(stored, result);
+        verifyNoInteractions(contentRepository, outboxService);
+    }
+}
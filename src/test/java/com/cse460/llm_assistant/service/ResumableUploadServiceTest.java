@@ -0,0 +1,171 @@
+package com.cse460.llm_assistant.service;
+
+import com.cse460.llm_assistant.model.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ResumableUploadServiceTest {
+
+    @TempDir
+    Path spoolDir;
+
+    private final PdfProcessingService pdfProcessingService = mock(PdfProcessingService.class);
+    private final byte[] content = new byte[300_000];
+    private ResumableUploadService uploadService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        new Random(460).nextBytes(content);
+        uploadService = new ResumableUploadService(pdfProcessingService);
+        ReflectionTestUtils.setField(uploadService, "location", spoolDir.toString());
+        uploadService.open();
+    }
+
+    @Test
+    void testResentAndDroppedRangesAreNotReceivedTwice() throws Exception {
+        String id = uploadService.create("large.pdf", "application/pdf", content.length, "Large", null).uploadId();
+
+        // The connection drops 100,000 bytes into a range meant to cover the first 200,000
+        assertThrows(IOException.class,
+                () -> uploadService.append(id, 0, 199_999, content.length, new DroppingInputStream(range(0, 200_000), 100_000)));
+        assertEquals(100_000, uploadService.status(id).orElseThrow().offset());
+
+        // The client resends from an earlier position; the overlap is skipped
+        assertEquals(250_000, append(id, 50_000, 250_000).orElseThrow().offset());
+        assertThrows(IllegalStateException.class, () -> append(id, 260_000, 300_000));
+        assertThrows(IllegalStateException.class, () -> uploadService.complete(id));
+        assertTrue(append(id, 250_000, 300_000).orElseThrow().isComplete());
+
+        Document stored = Document.builder().id(9L).build();
+        when(pdfProcessingService.processAndStorePdf(any(), eq("Large"), isNull(), any())).thenAnswer(invocation -> {
+            SpooledUpload upload = invocation.getArgument(0);
+            assertArrayEquals(content, Files.readAllBytes(upload.getPath()));
+            return stored;
+        });
+
+        assertSame(stored, uploadService.complete(id).orElseThrow());
+
+        String expectedHash = PdfProcessingService.computeHash(new MockMultipartFile("file", content));
+        verify(pdfProcessingService).processAndStorePdf(any(), eq("Large"), isNull(), eq(expectedHash));
+        assertTrue(uploadService.status(id).isEmpty());
+        try (var files = Files.list(spoolDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void testUploadTurnedAwayByAdmissionCanBeCompletedAgain() throws Exception {
+        String id = uploadService.create("large.pdf", "application/pdf", content.length, null, null).uploadId();
+        append(id, 0, content.length);
+        when(pdfProcessingService.processAndStorePdf(any(), any(), any(), any()))
+                .thenThrow(new IngestRejectedException("busy", 10))
+                .thenReturn(Document.builder().id(3L).build());
+
+        assertThrows(IngestRejectedException.class, () -> uploadService.complete(id));
+        assertTrue(uploadService.status(id).isPresent());
+        assertEquals(3L, uploadService.complete(id).orElseThrow().getId());
+    }
+
+    @Test
+    void testStalledConnectionDoesNotHoldUpTheUpload() throws Exception {
+        String id = uploadService.create("large.pdf", "application/pdf", content.length, null, null).uploadId();
+        CountDownLatch stalled = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        InputStream stalling = new SequenceInputStream(range(0, 100_000), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                stalled.countDown();
+                try {
+                    resume.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IOException("Read timed out");
+            }
+        });
+        Thread first = new Thread(() -> assertThrows(IOException.class,
+                () -> uploadService.append(id, 0, content.length - 1, content.length, stalling)));
+        first.start();
+        assertTrue(stalled.await(5, TimeUnit.SECONDS));
+
+        // The client resumes on a new connection while the first one hangs
+        assertEquals(100_000, uploadService.status(id).orElseThrow().offset());
+        uploadService.expireSessions();
+        assertTrue(append(id, 100_000, content.length).orElseThrow().isComplete());
+        resume.countDown();
+        first.join();
+
+        when(pdfProcessingService.processAndStorePdf(any(), any(), any(), any())).thenAnswer(invocation -> {
+            SpooledUpload upload = invocation.getArgument(0);
+            assertArrayEquals(content, Files.readAllBytes(upload.getPath()));
+            return Document.builder().id(4L).build();
+        });
+        assertEquals(4L, uploadService.complete(id).orElseThrow().getId());
+    }
+
+    @Test
+    void testBodyMustMatchContentRange() throws Exception {
+        String id = uploadService.create("large.pdf", "application/pdf", content.length, null, null).uploadId();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> uploadService.append(id, 0, 99, content.length + 1, range(0, 100)));
+        assertThrows(IllegalArgumentException.class,
+                () -> uploadService.append(id, 0, 99, content.length, range(0, 150)));
+        assertThrows(IllegalArgumentException.class,
+                () -> uploadService.append(id, 0, 199, -1, range(0, 150)));
+        // The bytes of a short body are still kept
+        assertEquals(150, uploadService.status(id).orElseThrow().offset());
+    }
+
+    private Optional<ResumableUploadService.UploadStatus> append(String id, int from, int to) throws IOException {
+        return uploadService.append(id, from, to - 1, content.length, range(from, to));
+    }
+
+    private InputStream range(int from, int to) {
+        return new ByteArrayInputStream(Arrays.copyOfRange(content, from, to));
+    }
+
+    /**
+     * Fails like a dropped connection once the given number of bytes has been read
+     */
+    private static final class DroppingInputStream extends FilterInputStream {
+
+        private int remaining;
+
+        private DroppingInputStream(InputStream in, int dropAfter) {
+            super(in);
+            this.remaining = dropAfter;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining == 0) {
+                throw new IOException("Connection reset");
+            }
+            int n = super.read(b, off, Math.min(len, remaining));
+            remaining -= Math.max(n, 0);
+            return n;
+        }
+    }
+}
@@ -1,29 +1,66 @@
 package com.cse460.llm_assistant.service;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import com.cse460.llm_assistant.model.Document;
+import com.cse460.llm_assistant.model.DocumentContent;
+import com.cse460.llm_assistant.model.EmbeddingDocument;
 import com.cse460.llm_assistant.repository.EmbeddingRepository;
+import com.cse460.llm_assistant.service.embedding.EmbeddingModelType;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 @ActiveProfiles("test")
 public class SimpleEmbeddingTest {
 
-    @InjectMocks
     private EmbeddingService embeddingService;
 
     @Mock
     private EmbeddingRepository embeddingRepository;
 
+    @Mock
+    private IngestMetrics metrics;
+
+    @Mock
+    private ObjectProvider<ElasticsearchOperations> operationsProvider;
+
+    @Mock
+    private ElasticsearchOperations operations;
+
+    @Mock
+    private ObjectProvider<EmbeddingIndexService> indexProvider;
+
+    @Mock
+    private EmbeddingIndexService indexService;
+
+    // Built by hand, since constructor injection cannot tell the two providers apart
+    @BeforeEach
+    public void setUp() {
+        embeddingService = new EmbeddingService(embeddingRepository, metrics, operationsProvider, indexProvider);
+    }
+
     @Test
     public void testEmbeddingGeneration() {
         // Test simple embedding generation
@@ -36,4 +73,75 @@ public class SimpleEmbeddingTest {
         System.out.println("Generated embedding with " + embedding.size() + " dimensions");
         System.out.println("Sample embedding values: " + embedding.subList(0, 5));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testQuantizedModelEmbedsCloseToTheFullModel() {
+        String testText = "Chunks are embedded and indexed in the background from the outbox";
+        List<Float> full = embeddingService.generateEmbedding(testText);
+        ReflectionTestUtils.setField(embeddingService, "modelName", EmbeddingModelType.ALL_MINILM_L6_V2_Q.id());
+        ReflectionTestUtils.setField(embeddingService, "embeddingModel", null);
+        List<Float> quantized = embeddingService.generateEmbedding(testText);
+
+        assertEquals(EmbeddingModelType.ALL_MINILM_L6_V2_Q.dimensions(), quantized.size());
+        assertTrue(cosine(full, quantized) > 0.9, "cosine " + cosine(full, quantized));
+    }
+
+    @Test
+    public void testVectorsOfAnotherModelAreNotReused() throws Exception {
+        ReflectionTestUtils.setField(embeddingService, "modelName", EmbeddingModelType.ALL_MINILM_L6_V2_Q.id());
+        DocumentContent chunk = DocumentContent.builder()
+                .id(7L)
+                .document(Document.builder().id(2L).build())
+                .pageNumber(1)
+                .chunkSequence(0)
+                .content("identical page text")
+                .build();
+        List<Float> fullPrecisionVector = Collections.nCopies(384, 0.05f);
+        // Indexed before chunks recorded their model, so by the full precision model
+        when(embeddingRepository.findByIds(any())).thenReturn(List.of(EmbeddingDocument.builder()
+                .id("1-1-0").content("identical page text").embedding(fullPrecisionVector).build()));
+
+        embeddingService.indexChunks(List.of(chunk), Map.of(7L, "1-1-0"));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<EmbeddingDocument>> saved = ArgumentCaptor.forClass(List.class);
+        verify(embeddingRepository).saveAll(saved.capture());
+        EmbeddingDocument indexed = saved.getValue().get(0);
+        assertEquals(EmbeddingModelType.ALL_MINILM_L6_V2_Q.id(), indexed.getModelId());
+        assertNotEquals(fullPrecisionVector, indexed.getEmbedding());
+    }
+
+    @Test
+    public void testChunkHeldByAnOlderIndexIsWrittenToIt() throws Exception {
+        when(indexProvider.getIfAvailable()).thenReturn(indexService);
+        when(operationsProvider.getObject()).thenReturn(operations);
+        Document document = Document.builder().id(2L).build();
+        DocumentContent held = DocumentContent.builder()
+                .id(7L).document(document).pageNumber(1).chunkSequence(0).content("first chunk").build();
+        DocumentContent fresh = DocumentContent.builder()
+                .id(8L).document(document).pageNumber(1).chunkSequence(1).content("second chunk").build();
+        // The alias rolled over after the first chunk was indexed
+        when(indexService.locate(List.of("2-1-0", "2-1-1"))).thenReturn(Map.of("2-1-0", "documents-v1-000001"));
+
+        embeddingService.indexChunks(List.of(held, fresh));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<EmbeddingDocument>> throughAlias = ArgumentCaptor.forClass(List.class);
+        verify(embeddingRepository).saveAll(throughAlias.capture());
+        assertEquals(List.of("2-1-1"), throughAlias.getValue().stream().map(EmbeddingDocument::getId).toList());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<EmbeddingDocument>> toHoldingIndex = ArgumentCaptor.forClass(List.class);
+        verify(operations).save(toHoldingIndex.capture(), eq(IndexCoordinates.of("documents-v1-000001")));
+        assertEquals(List.of("2-1-0"), toHoldingIndex.getValue().stream().map(EmbeddingDocument::getId).toList());
+    }
+
+    private static double cosine(List<Float> a, List<Float> b) {
+        double dot = 0, normA = 0, normB = 0;
+        for (int i = 0; i < a.size(); i++) {
+            dot += a.get(i) * b.get(i);
+            normA += a.get(i) * a.get(i);
+            normB += b.get(i) * b.get(i);
+        }
+        return dot / Math.sqrt(normA * normB);
+    }
+}
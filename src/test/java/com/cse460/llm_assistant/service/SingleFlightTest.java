@@ -0,0 +1,83 @@
+package com.cse460.llm_assistant.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    @Test
+    void testConcurrentCallersShareOneExecution() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            results.add(executor.submit(() -> singleFlight.execute("page-1", () -> {
+                executions.incrementAndGet();
+                started.countDown();
+                awaitQuietly(release);
+                return "rendered";
+            })));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            // These arrive while the first call is still running
+            CountDownLatch joining = new CountDownLatch(7);
+            for (int i = 0; i < 7; i++) {
+                results.add(executor.submit(() -> {
+                    joining.countDown();
+                    return singleFlight.execute("page-1", () -> {
+                        executions.incrementAndGet();
+                        return "duplicate";
+                    });
+                }));
+            }
+            assertTrue(joining.await(5, TimeUnit.SECONDS));
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("rendered", result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, executions.get());
+            assertEquals(0, singleFlight.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testFailureIsSharedAndKeyIsReleased() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+        IOException thrown = assertThrows(IOException.class,
+                () -> singleFlight.execute("page-2", () -> {
+                    throw new IOException("render failed");
+                }));
+        assertEquals("render failed", thrown.getMessage());
+
+        // A later call runs again instead of replaying the failure
+        assertEquals("ok", singleFlight.execute("page-2", () -> "ok"));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.cse460.llm_assistant.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnippetTest {
+
+    @Test
+    void testTaggedFragmentIsParsedIntoTextAndMatchOffsets() {
+        Snippet snippet = Snippet.fromTagged("the <em>cache</em> holds <em>rendered</em> pages", "<em>", "</em>");
+
+        assertEquals("the cache holds rendered pages", snippet.text());
+        assertArrayEquals(new int[]{4, 9, 16, 24}, snippet.highlights());
+        assertNull(snippet.offset());
+        assertNull(snippet.shift(1000).offset());
+    }
+
+    @Test
+    void testFragmentWithoutMatchesOrWithAnUnclosedTagIsKeptAsIs() {
+        assertEquals(0, Snippet.fromTagged("no matches here", "<em>", "</em>").highlights().length);
+        Snippet unclosed = Snippet.fromTagged("a <em>b", "<em>", "</em>");
+        assertEquals("a <em>b", unclosed.text());
+        assertEquals(0, unclosed.highlights().length);
+    }
+}
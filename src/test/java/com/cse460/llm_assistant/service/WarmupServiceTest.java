@@ -0,0 +1,68 @@
+package com.cse460.llm_assistant.service;
+
+import com.cse460.llm_assistant.service.codec.PngCodec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WarmupServiceTest {
+
+    @Mock
+    private EmbeddingService embeddingService;
+
+    @Mock
+    private ObjectProvider<EmbeddingService> embeddingProvider;
+
+    private WarmupService warmupService;
+    private WarmupHealthIndicator healthIndicator;
+
+    @BeforeEach
+    void setup() {
+        MultimodalPdfExtractor extractor = new MultimodalPdfExtractor();
+        // Keep the sample render small; the resolution does not matter for the test
+        ReflectionTestUtils.setField(extractor, "renderDpi", 36f);
+
+        lenient().when(embeddingProvider.getIfAvailable()).thenReturn(embeddingService);
+        warmupService = new WarmupService(embeddingProvider, extractor, new PngCodec(1));
+        ReflectionTestUtils.setField(warmupService, "iterations", 1);
+        healthIndicator = new WarmupHealthIndicator(warmupService);
+    }
+
+    @Test
+    void readinessWaitsForWarmup() {
+        assertEquals(Status.OUT_OF_SERVICE, healthIndicator.health().getStatus());
+
+        warmupService.warmUp();
+
+        assertEquals("COMPLETE", warmupService.getStatus());
+        assertEquals(Status.UP, healthIndicator.health().getStatus());
+        assertTrue(warmupService.getStepMillis().keySet().containsAll(List.of("model", "embed", "render")));
+        verify(embeddingService).loadModel();
+        verify(embeddingService, times(2)).generateEmbedding(anyString());
+        verify(embeddingService, times(2)).generateEmbeddings(anyList());
+    }
+
+    @Test
+    void failedWarmupReportsDown() {
+        doThrow(new IllegalStateException("model missing")).when(embeddingService).loadModel();
+
+        warmupService.warmUp();
+
+        assertEquals("FAILED", warmupService.getStatus());
+        assertEquals(Status.DOWN, healthIndicator.health().getStatus());
+        assertEquals("model missing", healthIndicator.health().getDetails().get("error"));
+    }
+}
@@ -0,0 +1,114 @@
+package com.cse460.llm_assistant.service.codec;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageCodecTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void pngIsLosslessAtEveryLevel() throws IOException {
+        BufferedImage page = samplePage();
+
+        for (String name : List.of(ImageCodecs.PNG, ImageCodecs.PNG_FAST)) {
+            ImageCodec codec = ImageCodecs.create(name, 9, 0.85f);
+            Path target = tempDir.resolve("page-" + name + "." + codec.format());
+            codec.encode(page, target);
+
+            BufferedImage decoded = ImageIO.read(target.toFile());
+            assertNotNull(decoded, name + " should produce a readable image");
+            for (int y = 0; y < page.getHeight(); y += 37) {
+                for (int x = 0; x < page.getWidth(); x += 37) {
+                    assertEquals(page.getRGB(x, y), decoded.getRGB(x, y), name + " changed pixel " + x + "," + y);
+                }
+            }
+        }
+    }
+
+    @Test
+    void higherPngLevelsProduceSmallerFiles() throws IOException {
+        BufferedImage page = samplePage();
+
+        byte[] stored = new PngCodec(0).encode(page);
+        byte[] fast = new PngCodec(1).encode(page);
+        byte[] best = new PngCodec(9).encode(page);
+
+        assertTrue(fast.length < stored.length, "level 1 should compress: " + fast.length + " vs " + stored.length);
+        assertTrue(best.length <= fast.length, "level 9 should not be larger than level 1");
+    }
+
+    @Test
+    void jpegWritesReadableJpgFiles() throws IOException {
+        ImageCodec codec = ImageCodecs.create(ImageCodecs.JPEG, 4, 0.8f);
+        assertEquals("jpg", codec.format());
+
+        BufferedImage withAlpha = new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB);
+        byte[] encoded = codec.encode(withAlpha);
+
+        assertEquals((byte) 0xff, encoded[0]);
+        assertEquals((byte) 0xd8, encoded[1]);
+        assertNotNull(ImageIO.read(new ByteArrayInputStream(encoded)));
+    }
+
+    @Test
+    void codecIsSafeToShareAcrossThreads() throws Exception {
+        ImageCodec codec = new PngCodec(4);
+        BufferedImage page = samplePage();
+        byte[] expected = codec.encode(page);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<byte[]>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                results.add(executor.submit(() -> codec.encode(page)));
+            }
+            for (Future<byte[]> result : results) {
+                assertArrayEquals(expected, result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void unknownCodecIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> ImageCodecs.create("webp", 4, 0.85f));
+        assertThrows(IllegalArgumentException.class, () -> new PngCodec(10));
+    }
+
+    // Text-like content: a white page with dark lines and a colored block
+    private static BufferedImage samplePage() {
+        BufferedImage page = new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = page.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, 400, 300);
+            g.setColor(Color.DARK_GRAY);
+            for (int y = 20; y < 200; y += 12) {
+                g.drawLine(20, y, 20 + (y * 7) % 360, y);
+            }
+            g.setColor(new Color(40, 90, 200));
+            g.fillRect(60, 220, 280, 60);
+        } finally {
+            g.dispose();
+        }
+        return page;
+    }
+}
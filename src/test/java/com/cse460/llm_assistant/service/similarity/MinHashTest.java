@@ -0,0 +1,58 @@
+package com.cse460.llm_assistant.service.similarity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MinHashTest {
+
+    private static final String[] VOCABULARY = {"layer", "service", "request", "cache", "index", "query",
+            "vector", "document", "page", "render", "shard", "replica", "thread", "queue", "latency", "memory"};
+
+    @Test
+    void editedCopyIsSimilarAndUnrelatedTextIsNot() {
+        String original = words(2000, 1);
+        // One page's worth of text replaced, as when a single page of a report changes
+        String edited = original.substring(0, original.length() / 2) + words(100, 2)
+                + original.substring(original.length() / 2 + 700);
+        String unrelated = words(2000, 3);
+
+        int[] signature = MinHash.signature(original);
+        assertEquals(1.0, MinHash.similarity(signature, MinHash.signature(original)));
+        assertTrue(MinHash.similarity(signature, MinHash.signature(edited)) > 0.8);
+        assertTrue(MinHash.similarity(signature, MinHash.signature(unrelated)) < 0.1);
+    }
+
+    @Test
+    void similarDocumentsShareBucketsAndCaseAndPunctuationAreIgnored() {
+        String text = words(500, 4);
+        int[] signature = MinHash.signature(text);
+        int[] reformatted = MinHash.signature(text.toUpperCase().replace(" ", ",  "));
+
+        assertArrayEquals(signature, reformatted);
+        Set<Long> buckets = new HashSet<>(MinHash.buckets(signature));
+        assertEquals(MinHash.BANDS, buckets.size());
+        assertTrue(MinHash.buckets(MinHash.signature(words(500, 5))).stream().noneMatch(buckets::contains));
+    }
+
+    @Test
+    void signatureSurvivesEncodingAndTextWithoutWordsHasNone() {
+        int[] signature = MinHash.signature(words(50, 6));
+
+        assertArrayEquals(signature, MinHash.decode(MinHash.encode(signature)));
+        assertNull(MinHash.signature(" \n\t.,;"));
+    }
+
+    private static String words(int count, long seed) {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append(VOCABULARY[random.nextInt(VOCABULARY.length)]).append(random.nextInt(50)).append(' ');
+        }
+        return text.toString();
+    }
+}
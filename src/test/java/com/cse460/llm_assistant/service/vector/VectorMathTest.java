@@ -0,0 +1,82 @@
+package com.cse460.llm_assistant.service.vector;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class VectorMathTest {
+
+    private final Random random = new Random(42);
+
+    @Test
+    void simdAndScalarKernelsAgree() throws ReflectiveOperationException {
+        // Maven adds the Vector API module; other runners may not
+        assumeTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent());
+
+        VectorKernels scalar = new ScalarVectorKernels();
+        VectorKernels simd = VectorMath.simdKernels();
+        // Lengths around the lane counts exercise the unrolled, single-lane and scalar tail loops
+        for (int length : new int[]{0, 1, 7, 8, 15, 16, 17, 33, 384, 385}) {
+            float[] a = randomVector(length + 3);
+            float[] b = randomVector(length + 5);
+            assertEquals(scalar.dot(a, 3, b, 5, length), simd.dot(a, 3, b, 5, length), 1e-4f, "length " + length);
+        }
+    }
+
+    @Test
+    void cosineOfScaledVectorIsOne() {
+        float[] a = randomVector(384);
+        float[] b = a.clone();
+        for (int i = 0; i < b.length; i++) {
+            b[i] *= 3;
+        }
+
+        assertEquals(1f, VectorMath.cosine(a, b), 1e-5f);
+        assertEquals(1f, VectorMath.norm(VectorMath.normalize(b)), 1e-5f);
+    }
+
+    @Test
+    void topKMatchesFullSort() {
+        int dims = 64;
+        float[] query = randomVector(dims);
+        float[] rows = randomVector(dims * 300);
+        float[] scores = new float[300];
+        VectorMath.dotAll(query, rows, dims, scores);
+
+        int[] expected = IntStream.range(0, 300).boxed()
+                .sorted(Comparator.comparing(i -> -scores[i]))
+                .limit(10)
+                .mapToInt(Integer::intValue)
+                .toArray();
+        assertArrayEquals(expected, VectorMath.topK(query, rows, dims, 10));
+        assertEquals(0, VectorMath.topK(scores, 0).length);
+        assertEquals(300, VectorMath.topK(scores, 1000).length);
+    }
+
+    @Test
+    void mmrSkipsNearDuplicates() {
+        int dims = 3;
+        float[] query = VectorMath.normalize(new float[]{1, 0, 0});
+        float[] candidates = VectorMath.normalizeRows(new float[]{
+                1f, 0.10f, 0f,      // most relevant
+                1f, 0.11f, 0f,      // near copy of the first
+                1f, 0f, 0.60f,      // less relevant, different direction
+        }, dims);
+
+        assertArrayEquals(new int[]{0, 1, 2}, MaximalMarginalRelevance.rerank(query, candidates, dims, 3, 1f));
+        assertArrayEquals(new int[]{0, 2}, MaximalMarginalRelevance.rerank(query, candidates, dims, 2, 0.5f));
+    }
+
+    private float[] randomVector(int length) {
+        float[] vector = new float[length];
+        for (int i = 0; i < length; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,123 @@
+package com.cse460.llm_assistant.support;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Builds deterministic PDFs of configurable size for benchmarks and load tests.
+ * Pages carry word-wrapped filler text and optional embedded raster images, so both
+ * text extraction and page rendering do representative work.
+ */
+public final class SyntheticPdfGenerator {
+
+    private static final String[] WORDS = {
+            "architecture", "service", "gateway", "latency", "throughput", "cluster", "replica", "index",
+            "document", "pipeline", "render", "embedding", "vector", "search", "cache", "storage",
+            "request", "response", "queue", "worker", "node", "shard", "deploy", "network", "model",
+            "the", "of", "and", "to", "in", "for", "with", "on", "by", "is", "are", "from", "each"
+    };
+
+    private static final float MARGIN = 54;
+    private static final float FONT_SIZE = 10;
+    private static final float LEADING = 13;
+
+    private SyntheticPdfGenerator() {
+    }
+
+    /**
+     * @param pages         number of letter-size pages
+     * @param wordsPerPage  filler words written on each page
+     * @param imagesPerPage embedded raster images drawn on each page
+     * @param seed          seed for the generated text and images
+     */
+    public static byte[] generate(int pages, int wordsPerPage, int imagesPerPage, long seed) throws IOException {
+        Random random = new Random(seed);
+        PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+
+        try (PDDocument document = new PDDocument()) {
+            for (int pageNum = 1; pageNum <= pages; pageNum++) {
+                PDPage page = new PDPage(PDRectangle.LETTER);
+                document.addPage(page);
+
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    float y = page.getMediaBox().getHeight() - MARGIN;
+
+                    for (int i = 0; i < imagesPerPage; i++) {
+                        PDImageXObject image = LosslessFactory.createFromImage(document, diagram(random, 240, 140));
+                        float x = MARGIN + (i % 2) * 260;
+                        content.drawImage(image, x, y - 140, 240, 140);
+                        if (i % 2 == 1 || i == imagesPerPage - 1) {
+                            y -= 150;
+                        }
+                    }
+
+                    content.beginText();
+                    content.setFont(font, FONT_SIZE);
+                    content.setLeading(LEADING);
+                    content.newLineAtOffset(MARGIN, y - LEADING);
+
+                    float maxWidth = page.getMediaBox().getWidth() - 2 * MARGIN;
+                    StringBuilder line = new StringBuilder("Page " + pageNum + ".");
+                    for (int w = 0; w < wordsPerPage && y > MARGIN; w++) {
+                        String word = WORDS[random.nextInt(WORDS.length)];
+                        float width = font.getStringWidth(line + " " + word) / 1000 * FONT_SIZE;
+                        if (width > maxWidth) {
+                            content.showText(line.toString());
+                            content.newLine();
+                            y -= LEADING;
+                            line.setLength(0);
+                            line.append(word);
+                        } else {
+                            line.append(' ').append(word);
+                        }
+                    }
+                    content.showText(line.toString());
+                    content.endText();
+                }
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    // A block diagram with noise, so image streams do not compress to nothing
+    private static BufferedImage diagram(Random random, int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                int shade = 225 + random.nextInt(30);
+                image.setRGB(x, y, (shade << 16) | (shade << 8) | shade);
+            }
+        }
+
+        Graphics2D g = image.createGraphics();
+        try {
+            for (int i = 0; i < 4; i++) {
+                g.setColor(new Color(random.nextInt(200), random.nextInt(200), random.nextInt(200)));
+                int boxX = 10 + i * 57;
+                g.fillRect(boxX, 20 + random.nextInt(60), 45, 40);
+                if (i > 0) {
+                    g.drawLine(boxX - 12, height / 2, boxX, height / 2);
+                }
+            }
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+}